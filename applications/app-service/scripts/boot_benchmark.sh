@@ -0,0 +1,111 @@
+#!/usr/bin/env bash
+# Boot benchmark: regular boot jar vs fast-boot image (Spring AOT + CDS)
+# Starts each variant several times and reports, per run, the time from launch to the first
+# successful (2xx) request on a hot route and to the readiness probe reporting UP.
+#
+# Build both variants first, with the same JDK as the one on PATH:
+#   ./gradlew :app-service:bootJar
+#   ./gradlew :app-service:fastBootImage -PfastBoot
+#
+# Usage: ./boot_benchmark.sh [-n runs] [-p port] [-u path]
+# Defaults: 5 runs, port 8080, /api/v1/franchises?limit=1
+# The database must be reachable with the usual DB_* variables, or export
+# SPRING_PROFILES_ACTIVE=in-memory (and build the fast-boot image with -PfastBootProfiles=in-memory).
+
+RUNS=5
+PORT=8080
+URL_PATH="/api/v1/franchises?limit=1"
+TIMEOUT_SECONDS=180
+while getopts "n:p:u:" opt; do
+    case "$opt" in
+        n) RUNS="$OPTARG" ;;
+        p) PORT="$OPTARG" ;;
+        u) URL_PATH="$OPTARG" ;;
+        *) exit 2 ;;
+    esac
+done
+
+APP_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+BOOT_JAR="$(ls "$APP_DIR"/build/libs/*.jar 2>/dev/null | grep -v -- '-plain.jar' | head -n 1)"
+FAST_BOOT_DIR="$APP_DIR/build/fast-boot"
+
+# Milliseconds since the epoch. date +%s%3N is GNU only; EPOCHREALTIME needs bash 5 and its decimal
+# separator follows the locale, older shells (macOS ships bash 3.2) fall back to python3
+now_ms() {
+    if [ -n "$EPOCHREALTIME" ]; then
+        micros="${EPOCHREALTIME/[.,]/}"
+        echo $((micros / 1000))
+    else
+        python3 -c 'import time; print(int(time.time() * 1000))'
+    fi
+}
+
+# Launch the command, poll until both checks pass, print "<first request ms> <ready ms>"
+measure() {
+    start=$(now_ms)
+    "$@" --server.port="$PORT" > /dev/null 2>&1 &
+    pid=$!
+    first_request=""
+    ready=""
+    deadline=$((start + TIMEOUT_SECONDS * 1000))
+    while [ -z "$first_request" ] || [ -z "$ready" ]; do
+        if [ "$(now_ms)" -gt "$deadline" ] || ! kill -0 "$pid" 2> /dev/null; then
+            kill "$pid" 2> /dev/null
+            wait "$pid" 2> /dev/null
+            echo "failed"
+            return
+        fi
+        if [ -z "$first_request" ] && curl -sf -o /dev/null "http://localhost:$PORT$URL_PATH"; then
+            first_request=$(($(now_ms) - start))
+        fi
+        if [ -z "$ready" ] && curl -sf -o /dev/null "http://localhost:$PORT/actuator/health/readiness"; then
+            ready=$(($(now_ms) - start))
+        fi
+        sleep 0.05
+    done
+    kill "$pid"
+    wait "$pid" 2> /dev/null
+    echo "$first_request $ready"
+}
+
+median() {
+    awk '{ value[NR] = $1 } END { print value[int((NR + 1) / 2)] }'
+}
+
+run_variant() {
+    name="$1"
+    shift
+    echo "== $name"
+    i=1
+    while [ "$i" -le "$RUNS" ]; do
+        result=$(measure "$@")
+        if [ "$result" = "failed" ]; then
+            echo "run $i: did not become ready within ${TIMEOUT_SECONDS}s"
+        else
+            echo "$result" | awk -v run="$i" '{ printf "run %d: first request %d ms, ready %d ms\n", run, $1, $2 }'
+            echo "$result" >> "$RESULTS/$name"
+        fi
+        i=$((i + 1))
+    done
+    if [ -s "$RESULTS/$name" ]; then
+        first=$(cut -d ' ' -f 1 "$RESULTS/$name" | sort -n | median)
+        ready=$(cut -d ' ' -f 2 "$RESULTS/$name" | sort -n | median)
+        echo "median: first request $first ms, ready $ready ms"
+    fi
+}
+
+RESULTS="$(mktemp -d)"
+trap 'rm -rf "$RESULTS"' EXIT
+
+if [ -n "$BOOT_JAR" ]; then
+    run_variant boot-jar java -jar "$BOOT_JAR"
+else
+    echo "No boot jar in $APP_DIR/build/libs, skipping the baseline"
+fi
+
+if [ -f "$FAST_BOOT_DIR/franquicias-api.jsa" ]; then
+    run_variant fast-boot java -XX:SharedArchiveFile="$FAST_BOOT_DIR/franquicias-api.jsa" \
+        -Dspring.aot.enabled=true -jar "$FAST_BOOT_DIR/franquicias-api.jar"
+else
+    echo "No CDS archive in $FAST_BOOT_DIR, run ./gradlew :app-service:fastBootImage -PfastBoot"
+fi
@@ -2,7 +2,6 @@ package com.nequi.franquicias;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 
 /**
  * Main application class for Franquicias API
@@ -15,9 +14,12 @@ import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
     "com.nequi.franquicias.config",
     "com.nequi.franquicias.web",
     "com.nequi.franquicias.jpa.repository",
-    "com.nequi.franquicias.jpa.adapters"
+    "com.nequi.franquicias.jpa.adapters",
+    "com.nequi.franquicias.jpa.cache",
+    "com.nequi.franquicias.jpa.config",
+    "com.nequi.franquicias.memory.adapters",
+    "com.nequi.franquicias.memory.store"
 })
-@EnableR2dbcRepositories(basePackages = "com.nequi.franquicias.jpa.repositories")
 public class FranquiciasApiApplication {
     
     public static void main(String[] args) {
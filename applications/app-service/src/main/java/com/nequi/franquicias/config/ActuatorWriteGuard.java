@@ -0,0 +1,69 @@
+package com.nequi.franquicias.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Requires a bearer token for every actuator operation that is not a read
+ * Write operations such as POST /actuator/r2dbcpool/{name} change the running instance, so they are
+ * refused outright while no token is configured, and answered with 401 when the token does not match.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ActuatorWriteGuard implements WebFilter {
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    private final String basePath;
+    private final byte[] token;
+    
+    public ActuatorWriteGuard(@Value("${management.endpoints.web.base-path:/actuator}") String basePath,
+                              @Value("${franquicias.management.token:}") String token) {
+        this.basePath = basePath.endsWith("/") ? basePath : basePath + "/";
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS
+                || !exchange.getRequest().getPath().value().startsWith(basePath)) {
+            return chain.filter(exchange);
+        }
+        
+        if (token.length == 0) {
+            return reject(exchange, HttpStatus.FORBIDDEN);
+        }
+        if (!authorized(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION))) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            return reject(exchange, HttpStatus.UNAUTHORIZED);
+        }
+        return chain.filter(exchange);
+    }
+    
+    private boolean authorized(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return false;
+        }
+        byte[] presented = authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8);
+        // Constant time, so the token cannot be guessed byte by byte from response times
+        return MessageDigest.isEqual(presented, token);
+    }
+    
+    private static Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,47 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * In-memory snapshot of the franchise tree served by GET /api/v1/franchises
+ * Disabled with franquicias.catalog.snapshot.enabled=false, every read then queries the database
+ */
+@Configuration
+public class CatalogSnapshotConfig {
+    
+    @Bean
+    public CatalogSnapshotCache catalogSnapshotCache(
+            FranchiseRepository franchiseRepository,
+            @Value("${franquicias.catalog.snapshot.enabled:true}") boolean enabled,
+            @Value("${franquicias.catalog.snapshot.max-staleness:10s}") Duration maxStaleness) {
+        return enabled
+                ? new CatalogSnapshotCache(franchiseRepository, maxStaleness)
+                : CatalogSnapshotCache.disabled();
+    }
+    
+    @Bean
+    public MeterBinder catalogSnapshotMetrics(CatalogSnapshotCache catalogSnapshotCache) {
+        return registry -> {
+            Gauge.builder("catalog.snapshot.version", catalogSnapshotCache, CatalogSnapshotCache::getVersion)
+                    .description("Version of the published catalog snapshot")
+                    .register(registry);
+            Gauge.builder("catalog.snapshot.age", catalogSnapshotCache, CatalogSnapshotCache::getAgeSeconds)
+                    .description("Time since the full load the published snapshot derives from")
+                    .baseUnit("seconds")
+                    .register(registry);
+            FunctionCounter.builder("catalog.snapshot.reloads", catalogSnapshotCache,
+                            CatalogSnapshotCache::getReloadCount)
+                    .description("Full reloads of the catalog snapshot from the database")
+                    .register(registry);
+        };
+    }
+}
@@ -2,15 +2,17 @@ package com.nequi.franquicias.config;
 
 import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Profile;
 
 /**
  * Database configuration for schema management
  * Flyway integration for R2DBC environments
  */
 @Configuration
+@Profile("!in-memory")
 public class DatabaseConfig {
     
     @Value("${spring.flyway.url}")
@@ -25,29 +27,18 @@ public class DatabaseConfig {
     @Value("${spring.flyway.locations:classpath:db/migration}")
     private String flywayLocations;
     
-    @Value("${spring.flyway.enabled:true}")
-    private boolean flywayEnabled;
-    
     /**
-     * Run Flyway migrations after application startup
-     * This is needed because R2DBC doesn't support Flyway auto-configuration
+     * Flyway configured for the JDBC URL, since R2DBC doesn't support Flyway auto-configuration
+     * Only configured here: migrations are run by the {@link StartupPipeline} before the instance reports ready.
+     * Declaring the bean also keeps Spring Boot's own initializer from migrating during context refresh.
      */
-    @EventListener(ApplicationReadyEvent.class)
-    public void runFlywayMigrations() {
-        if (!flywayEnabled) {
-            return;
-        }
-        
-        try {
-            Flyway flyway = Flyway.configure()
-                    .dataSource(flywayUrl, flywayUser, flywayPassword)
-                    .locations(flywayLocations)
-                    .baselineOnMigrate(true)
-                    .load();
-            
-            flyway.migrate();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to run Flyway migrations", e);
-        }
+    @Bean
+    @ConditionalOnProperty(name = "spring.flyway.enabled", havingValue = "true", matchIfMissing = true)
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(flywayUrl, flywayUser, flywayPassword)
+                .locations(flywayLocations)
+                .baselineOnMigrate(true)
+                .load();
     }
 }
@@ -0,0 +1,39 @@
+package com.nequi.franquicias.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.nequi.franquicias.jpa.cache.CachingBranchRepository;
+import com.nequi.franquicias.jpa.cache.CachingFranchiseRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Micrometer metrics of the franchise and branch lookup caches
+ * Each cache gets the standard cache.gets (hit/miss), cache.puts, cache.evictions and cache.size meters,
+ * plus a cache.hit.ratio gauge, all tagged by cache name
+ */
+@Configuration
+@Profile("!in-memory")
+public class EntityCacheMetricsConfig {
+    
+    @Bean
+    public MeterBinder entityCacheMetrics(CachingFranchiseRepository franchiseRepository,
+                                          CachingBranchRepository branchRepository) {
+        return registry -> {
+            bind(registry, "franchises", franchiseRepository.getCache());
+            bind(registry, "branches", branchRepository.getCache());
+        };
+    }
+    
+    private void bind(MeterRegistry registry, String name, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of lookups served from the cache since startup")
+                .tag("cache", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.jpa.config.PoolSettings;
+import com.nequi.franquicias.jpa.config.PoolValidation;
+import com.nequi.franquicias.jpa.config.ReadWriteRoutingConnectionFactory;
+import com.nequi.franquicias.jpa.config.TunableConnectionPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to inspect and tune the connection pools without a restart
+ * GET /actuator/r2dbcpool lists the pools, POST /actuator/r2dbcpool/{name} changes one
+ * Disabled unless management.endpoint.r2dbcpool.enabled is set; writes need the token checked by ActuatorWriteGuard
+ */
+@Component
+@Endpoint(id = "r2dbcpool", enableByDefault = false)
+@Profile("!in-memory")
+@RequiredArgsConstructor
+public class R2dbcPoolEndpoint {
+    
+    private final ReadWriteRoutingConnectionFactory connectionFactory;
+    
+    @ReadOperation
+    public Map<String, Map<String, Object>> pools() {
+        Map<String, Map<String, Object>> pools = new LinkedHashMap<>();
+        connectionFactory.getPools().values().stream().distinct()
+                .forEach(pool -> pools.put(pool.getName(), describe(pool)));
+        return pools;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> pool(@Selector String name) {
+        return describe(find(name));
+    }
+    
+    /**
+     * Resize a pool or change its validation depth; omitted fields keep their value
+     * A size change swaps in a new pool, the old one is closed once its connections are returned
+     */
+    @WriteOperation
+    public Map<String, Object> configure(@Selector String name,
+                                         @Nullable Integer initialSize,
+                                         @Nullable Integer maxSize,
+                                         @Nullable String validation) {
+        TunableConnectionPool pool = find(name);
+        try {
+            pool.reconfigure(initialSize, maxSize,
+                    validation != null ? PoolValidation.valueOf(validation.toUpperCase(Locale.ROOT)) : null);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        return describe(pool);
+    }
+    
+    private TunableConnectionPool find(String name) {
+        return connectionFactory.getPools().values().stream()
+                .filter(pool -> pool.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new InvalidEndpointRequestException(
+                        "Unknown pool: " + name, "Unknown pool: " + name));
+    }
+    
+    private Map<String, Object> describe(TunableConnectionPool pool) {
+        PoolSettings settings = pool.getSettings();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("initialSize", settings.getInitialSize());
+        description.put("maxSize", settings.getMaxSize());
+        description.put("validation", settings.getValidation());
+        pool.getMetrics().ifPresent(metrics -> {
+            description.put("acquired", metrics.acquiredSize());
+            description.put("allocated", metrics.allocatedSize());
+            description.put("idle", metrics.idleSize());
+            description.put("pending", metrics.pendingAcquireSize());
+        });
+        return description;
+    }
+}
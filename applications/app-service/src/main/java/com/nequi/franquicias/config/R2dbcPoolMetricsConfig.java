@@ -0,0 +1,83 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.jpa.config.PoolObserver;
+import com.nequi.franquicias.jpa.config.PoolValidation;
+import com.nequi.franquicias.jpa.config.ReadWriteRoutingConnectionFactory;
+import com.nequi.franquicias.jpa.config.TunableConnectionPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.r2dbc.pool.PoolMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer gauges and timers for each pool behind the routing connection factory
+ * Pools are tagged by name (writer/reader) so replica load can be compared with primary load
+ */
+@Configuration
+@Profile("!in-memory")
+public class R2dbcPoolMetricsConfig {
+    
+    @Bean
+    public MeterBinder r2dbcRoutingPoolMetrics(ReadWriteRoutingConnectionFactory connectionFactory) {
+        // Without a replica both routes share the writer pool, bind it once
+        return registry -> connectionFactory.getPools().values().stream().distinct().forEach(pool -> {
+            gauge(registry, pool, "r2dbc.pool.acquired", "Connections in use", PoolMetrics::acquiredSize);
+            gauge(registry, pool, "r2dbc.pool.allocated", "Connections allocated, in use or idle", PoolMetrics::allocatedSize);
+            gauge(registry, pool, "r2dbc.pool.idle", "Idle connections", PoolMetrics::idleSize);
+            gauge(registry, pool, "r2dbc.pool.pending", "Subscribers waiting for a connection", PoolMetrics::pendingAcquireSize);
+            gauge(registry, pool, "r2dbc.pool.max.allocated", "Maximum pool size", PoolMetrics::getMaxAllocatedSize);
+            pool.setObserver(new MicrometerPoolObserver(registry));
+        });
+    }
+    
+    private void gauge(MeterRegistry registry, TunableConnectionPool pool,
+                       String metric, String description, ToDoubleFunction<PoolMetrics> value) {
+        // Read through the tunable pool so the gauge follows a resized pool
+        Gauge.builder(metric, pool, p -> p.getMetrics().map(value::applyAsDouble).orElse(0.0))
+                .description(description)
+                .tag("name", pool.getName())
+                .register(registry);
+    }
+    
+    /**
+     * Records acquire and validation latency as histograms, so Prometheus can compute percentiles
+     */
+    private static class MicrometerPoolObserver implements PoolObserver {
+        
+        private final MeterRegistry registry;
+        
+        MicrometerPoolObserver(MeterRegistry registry) {
+            this.registry = registry;
+        }
+        
+        @Override
+        public void onAcquire(String pool, long nanos, boolean success) {
+            Timer.builder("r2dbc.pool.acquire")
+                    .description("Time to obtain a connection, including the wait for a free one")
+                    .tag("name", pool)
+                    .tag("outcome", success ? "success" : "error")
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public void onValidation(String pool, PoolValidation validation, long nanos, boolean valid) {
+            Timer.builder("r2dbc.pool.validation")
+                    .description("Round trip spent validating a connection before use")
+                    .tag("name", pool)
+                    .tag("depth", validation.name().toLowerCase())
+                    .tag("outcome", valid ? "valid" : "invalid")
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
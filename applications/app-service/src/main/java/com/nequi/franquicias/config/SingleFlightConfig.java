@@ -0,0 +1,39 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.usecase.coalescing.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Coalescing of identical concurrent reads, used by the top stock products queries
+ * Disabled with franquicias.single-flight.enabled=false, every request then runs its own query
+ */
+@Configuration
+public class SingleFlightConfig {
+    
+    @Bean
+    public SingleFlight singleFlight(@Value("${franquicias.single-flight.enabled:true}") boolean enabled) {
+        return enabled ? new SingleFlight() : SingleFlight.disabled();
+    }
+    
+    @Bean
+    public MeterBinder singleFlightMetrics(SingleFlight singleFlight) {
+        return registry -> {
+            Gauge.builder("single.flight.in.flight", singleFlight, SingleFlight::getInFlightCount)
+                    .description("Coalesced reads currently executing")
+                    .register(registry);
+            FunctionCounter.builder("single.flight.calls", singleFlight, SingleFlight::getExecutionCount)
+                    .description("Reads by outcome: executed, or joined an identical read in flight")
+                    .tag("outcome", "executed")
+                    .register(registry);
+            FunctionCounter.builder("single.flight.calls", singleFlight, SingleFlight::getJoinedCount)
+                    .description("Reads by outcome: executed, or joined an identical read in flight")
+                    .tag("outcome", "joined")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.jpa.config.ReadWriteRoutingConnectionFactory;
+import com.nequi.franquicias.jpa.config.TunableConnectionPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Startup pipeline run before the readiness probe reports the instance ready
+ * Without a database (in-memory profile) there is nothing to migrate or warm up but the routes
+ */
+@Configuration
+public class StartupConfig {
+    
+    @Bean
+    public StartupPipeline startupPipeline(
+            ObjectProvider<Flyway> flyway,
+            ObjectProvider<ReadWriteRoutingConnectionFactory> connectionFactory,
+            WebClient.Builder webClientBuilder,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${franquicias.startup.pool-warmup.enabled:true}") boolean poolWarmupEnabled,
+            @Value("${franquicias.startup.route-warmup.enabled:true}") boolean routeWarmupEnabled,
+            @Value("${franquicias.startup.route-warmup.paths:}") String[] routeWarmupPaths,
+            @Value("${franquicias.startup.route-warmup.iterations:50}") int routeWarmupIterations,
+            @Value("${franquicias.startup.route-warmup.concurrency:4}") int routeWarmupConcurrency,
+            @Value("${franquicias.startup.route-warmup.timeout:30s}") Duration routeWarmupTimeout) {
+        // Without a replica both routes share the writer pool, warm it once
+        List<TunableConnectionPool> pools = poolWarmupEnabled && connectionFactory.getIfAvailable() != null
+                ? connectionFactory.getIfAvailable().getPools().values().stream().distinct().toList()
+                : List.of();
+        List<String> paths = Arrays.stream(routeWarmupPaths)
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .toList();
+        StartupPipeline.RouteWarmup routeWarmup = new StartupPipeline.RouteWarmup(
+                routeWarmupEnabled, paths, routeWarmupIterations, routeWarmupConcurrency, routeWarmupTimeout);
+        return new StartupPipeline(flyway.getIfAvailable(), pools, routeWarmup, webClientBuilder, environment,
+                meterRegistry);
+    }
+}
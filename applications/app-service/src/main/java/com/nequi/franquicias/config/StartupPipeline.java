@@ -0,0 +1,146 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.jpa.config.TunableConnectionPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup work that has to be done before the instance reports ready
+ * Runs as an ApplicationRunner: the server is already listening, but Spring Boot only publishes
+ * ReadinessState.ACCEPTING_TRAFFIC once every runner has returned, so /actuator/health/readiness
+ * stays down until migrations, pool warm-up and route warm-up are done.
+ * Migrations and pool warm-up run in parallel; route warm-up needs the schema and runs after them.
+ * Each phase is timed as startup.phase, tagged by phase and outcome.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class StartupPipeline implements ApplicationRunner {
+    
+    private final Flyway flyway;
+    private final List<TunableConnectionPool> pools;
+    private final RouteWarmup routeWarmup;
+    private final WebClient.Builder webClientBuilder;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Mono.when(migrate(), warmPools())
+                .then(warmRoutes())
+                .block();
+        long nanos = System.nanoTime() - start;
+        Timer.builder("startup.pipeline")
+                .description("Time from the server listening to the instance reporting ready")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Startup pipeline finished in {} ms, accepting traffic", TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+    
+    /**
+     * Flyway uses blocking JDBC, so it runs on the bounded elastic scheduler
+     * A failed migration fails the startup, as the schema the adapters expect is not there
+     */
+    private Mono<Void> migrate() {
+        if (flyway == null) {
+            return Mono.empty();
+        }
+        return timed("migrations", Mono.fromCallable(flyway::migrate)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(result -> log.info("Applied {} Flyway migrations, schema at version {}",
+                        result.migrationsExecuted, result.targetSchemaVersion)))
+                .onErrorMap(error -> new IllegalStateException("Failed to run Flyway migrations", error));
+    }
+    
+    /**
+     * Open the initial connections of every pool up front, so the first requests don't pay for the handshakes
+     */
+    private Mono<Void> warmPools() {
+        if (pools.isEmpty()) {
+            return Mono.empty();
+        }
+        return timed("pool-warmup", Flux.fromIterable(pools)
+                .flatMap(pool -> pool.warmup()
+                        .doOnNext(opened -> log.info("Pool {} warmed up {} connections", pool.getName(), opened))))
+                // The pools open connections on demand anyway, a failure here only costs latency
+                .onErrorResume(error -> {
+                    log.warn("Pool warm-up failed: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+    
+    /**
+     * Replay GET requests on the hot routes through the local server
+     * Loads and compiles the routing, handler, codec and adapter code paths before real traffic arrives.
+     * Response statuses don't matter, ids that don't exist still go through the whole stack.
+     */
+    private Mono<Void> warmRoutes() {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (!routeWarmup.enabled() || routeWarmup.paths().isEmpty() || port == null) {
+            return Mono.empty();
+        }
+        WebClient client = webClientBuilder.baseUrl("http://localhost:" + port).build();
+        return timed("route-warmup", Flux.range(0, routeWarmup.iterations())
+                .concatMapIterable(iteration -> routeWarmup.paths())
+                .flatMap(path -> client.get()
+                        .uri(path)
+                        .exchangeToMono(response -> response.releaseBody()
+                                .thenReturn(response.statusCode().is5xxServerError()))
+                        .onErrorReturn(true), routeWarmup.concurrency())
+                .filter(Boolean::booleanValue)
+                .count()
+                .doOnNext(failures -> log.info("Route warm-up sent {} requests, {} failed",
+                        routeWarmup.iterations() * routeWarmup.paths().size(), failures))
+                .timeout(routeWarmup.timeout()))
+                // Warm-up only shortens the first requests, it never holds the instance back
+                .onErrorResume(error -> {
+                    log.warn("Route warm-up stopped: {}", error.getMessage());
+                    return Mono.empty();
+                });
+    }
+    
+    private Mono<Void> timed(String phase, Publisher<?> work) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Flux.from(work).then()
+                    .doOnSuccess(unused -> record(phase, start, "success"))
+                    .doOnError(error -> record(phase, start, "error"));
+        });
+    }
+    
+    private void record(String phase, long start, String outcome) {
+        long nanos = System.nanoTime() - start;
+        Timer.builder("startup.phase")
+                .description("Time spent in a startup phase before the instance reports ready")
+                .tag("phase", phase)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Startup phase {} finished in {} ms ({})", phase, TimeUnit.NANOSECONDS.toMillis(nanos), outcome);
+    }
+    
+    /**
+     * @param enabled whether to replay the hot routes at all
+     * @param paths request paths, including the query string, relative to the server root
+     * @param iterations times each path is requested
+     * @param concurrency requests in flight at once
+     * @param timeout time after which the warm-up is abandoned
+     */
+    public record RouteWarmup(boolean enabled, List<String> paths, int iterations, int concurrency, Duration timeout) {
+    }
+}
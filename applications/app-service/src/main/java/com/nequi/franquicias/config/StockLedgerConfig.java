@@ -0,0 +1,84 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import com.nequi.franquicias.usecase.product.StockLedgerCompactor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Background compaction of the stock ledger
+ * Disabled with franquicias.stock.ledger.compaction.enabled=false, e.g. to compact from a single instance
+ */
+@Configuration
+@ConditionalOnProperty(name = "franquicias.stock.ledger.compaction.enabled", havingValue = "true", matchIfMissing = true)
+public class StockLedgerConfig {
+    
+    @Bean
+    public StockLedgerCompactor stockLedgerCompactor(
+            StockMovementRepository stockMovementRepository,
+            @Value("${franquicias.stock.ledger.compaction.interval:1s}") Duration interval,
+            @Value("${franquicias.stock.ledger.compaction.batch-size:5000}") int batchSize,
+            @Value("${franquicias.stock.ledger.compaction.settle-delay:1s}") Duration settleDelay) {
+        return new StockLedgerCompactor(stockMovementRepository, interval, batchSize, settleDelay);
+    }
+    
+    /**
+     * Runs in the same phase as the write-behind buffer: stopped after in-flight requests are drained
+     * and before the connection pool is closed
+     */
+    @Bean
+    public SmartLifecycle stockLedgerLifecycle(StockLedgerCompactor stockLedgerCompactor) {
+        return new SmartLifecycle() {
+            private volatile boolean running;
+            
+            @Override
+            public void start() {
+                stockLedgerCompactor.start();
+                running = true;
+            }
+            
+            @Override
+            public void stop() {
+                stockLedgerCompactor.stop();
+                running = false;
+            }
+            
+            @Override
+            public boolean isRunning() {
+                return running;
+            }
+            
+            @Override
+            public int getPhase() {
+                return SmartLifecycle.DEFAULT_PHASE - 4096;
+            }
+        };
+    }
+    
+    @Bean
+    public MeterBinder stockLedgerMetrics(StockLedgerCompactor stockLedgerCompactor) {
+        return registry -> {
+            FunctionCounter.builder("stock.ledger.folded", stockLedgerCompactor,
+                            StockLedgerCompactor::getFoldedCount)
+                    .description("Stock movements folded into product snapshots")
+                    .register(registry);
+            FunctionCounter.builder("stock.ledger.compaction.failures", stockLedgerCompactor,
+                            StockLedgerCompactor::getFailureCount)
+                    .description("Compaction runs that failed and will be retried")
+                    .register(registry);
+            Gauge.builder("stock.ledger.compaction.duration", stockLedgerCompactor,
+                            StockLedgerCompactor::getLastRunSeconds)
+                    .description("Duration of the last compaction run")
+                    .baseUnit("seconds")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.nequi.franquicias.config;
+
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.product.StockWriteBehindBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Opt-in write-behind mode for absolute stock sets
+ * Enabled with franquicias.stock.write-behind.enabled=true
+ */
+@Configuration
+@ConditionalOnProperty(name = "franquicias.stock.write-behind.enabled", havingValue = "true")
+public class StockWriteBehindConfig {
+    
+    @Bean
+    public StockWriteBehindBuffer stockWriteBehindBuffer(
+            ProductRepository productRepository,
+            @Value("${franquicias.stock.write-behind.flush-interval:200ms}") Duration flushInterval,
+            @Value("${franquicias.stock.write-behind.max-entries:1000}") int maxEntries) {
+        return new StockWriteBehindBuffer(productRepository, flushInterval, maxEntries);
+    }
+    
+    /**
+     * Starts the periodic flush and, on shutdown, writes whatever is still pending
+     * Its phase is below the web server's, so it stops after graceful shutdown has drained in-flight requests
+     * and before the connection pool is closed
+     */
+    @Bean
+    public SmartLifecycle stockWriteBehindLifecycle(
+            StockWriteBehindBuffer stockWriteBehindBuffer,
+            @Value("${franquicias.stock.write-behind.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        return new SmartLifecycle() {
+            private volatile boolean running;
+            
+            @Override
+            public void start() {
+                stockWriteBehindBuffer.start();
+                running = true;
+            }
+            
+            @Override
+            public void stop() {
+                stockWriteBehindBuffer.stop(shutdownTimeout);
+                running = false;
+            }
+            
+            @Override
+            public boolean isRunning() {
+                return running;
+            }
+            
+            @Override
+            public int getPhase() {
+                return SmartLifecycle.DEFAULT_PHASE - 4096;
+            }
+        };
+    }
+    
+    /**
+     * Coalescing ratio = submitted / written; 1.0 means no set was absorbed by a later one
+     */
+    @Bean
+    public MeterBinder stockWriteBehindMetrics(StockWriteBehindBuffer stockWriteBehindBuffer) {
+        return registry -> {
+            FunctionCounter.builder("stock.writebehind.submitted", stockWriteBehindBuffer,
+                            StockWriteBehindBuffer::getSubmittedCount)
+                    .description("Stock sets accepted by the write-behind buffer")
+                    .register(registry);
+            FunctionCounter.builder("stock.writebehind.written", stockWriteBehindBuffer,
+                            StockWriteBehindBuffer::getWrittenCount)
+                    .description("Product rows sent to the database by write-behind flushes")
+                    .register(registry);
+            Gauge.builder("stock.writebehind.pending", stockWriteBehindBuffer,
+                            StockWriteBehindBuffer::getPendingCount)
+                    .description("Products waiting for the next flush")
+                    .register(registry);
+            Gauge.builder("stock.writebehind.coalescing.ratio", stockWriteBehindBuffer,
+                            buffer -> buffer.getWrittenCount() == 0
+                                    ? 1.0
+                                    : (double) buffer.getSubmittedCount() / buffer.getWrittenCount())
+                    .description("Stock sets submitted per row written")
+                    .register(registry);
+        };
+    }
+}
@@ -3,16 +3,28 @@ package com.nequi.franquicias.config;
 import com.nequi.franquicias.model.gateways.BranchRepository;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
 import com.nequi.franquicias.usecase.branch.AddBranchToFranchiseUseCase;
 import com.nequi.franquicias.usecase.branch.UpdateBranchNameUseCase;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
+import com.nequi.franquicias.usecase.coalescing.SingleFlight;
 import com.nequi.franquicias.usecase.franchise.CreateFranchiseUseCase;
+import com.nequi.franquicias.usecase.franchise.ExportCatalogUseCase;
 import com.nequi.franquicias.usecase.franchise.GetAllFranchisesUseCase;
 import com.nequi.franquicias.usecase.franchise.GetTopStockProductPerBranchUseCase;
 import com.nequi.franquicias.usecase.franchise.UpdateFranchiseNameUseCase;
 import com.nequi.franquicias.usecase.product.AddProductToBranchUseCase;
+import com.nequi.franquicias.usecase.product.AdjustProductStockUseCase;
+import com.nequi.franquicias.usecase.product.GetStockLevelUseCase;
+import com.nequi.franquicias.usecase.product.GetStockMovementsUseCase;
+import com.nequi.franquicias.usecase.product.ImportProductsUseCase;
+import com.nequi.franquicias.usecase.product.RecordStockMovementUseCase;
 import com.nequi.franquicias.usecase.product.RemoveProductFromBranchUseCase;
+import com.nequi.franquicias.usecase.product.StockWriteBehindBuffer;
 import com.nequi.franquicias.usecase.product.UpdateProductNameUseCase;
+import com.nequi.franquicias.usecase.product.UpdateProductStockBatchUseCase;
 import com.nequi.franquicias.usecase.product.UpdateProductStockUseCase;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -27,33 +39,40 @@ public class UseCaseConfig {
     
     @Bean
     public CreateFranchiseUseCase createFranchiseUseCase(
-            FranchiseRepository franchiseRepository) {
-        return new CreateFranchiseUseCase(franchiseRepository);
+            FranchiseRepository franchiseRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new CreateFranchiseUseCase(franchiseRepository, catalogSnapshotCache);
     }
     
     @Bean
     public GetAllFranchisesUseCase getAllFranchisesUseCase(
             FranchiseRepository franchiseRepository,
-            BranchRepository branchRepository,
-            ProductRepository productRepository) {
-        return new GetAllFranchisesUseCase(franchiseRepository, branchRepository, productRepository);
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new GetAllFranchisesUseCase(franchiseRepository, catalogSnapshotCache);
     }
     
     @Bean
     public UpdateFranchiseNameUseCase updateFranchiseNameUseCase(
+            FranchiseRepository franchiseRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new UpdateFranchiseNameUseCase(franchiseRepository, catalogSnapshotCache);
+    }
+    
+    @Bean
+    public ExportCatalogUseCase exportCatalogUseCase(
             FranchiseRepository franchiseRepository) {
-        return new UpdateFranchiseNameUseCase(franchiseRepository);
+        return new ExportCatalogUseCase(franchiseRepository);
     }
     
     @Bean
     public GetTopStockProductPerBranchUseCase getTopStockProductPerBranchUseCase(
             FranchiseRepository franchiseRepository,
-            BranchRepository branchRepository,
-            ProductRepository productRepository) {
+            ProductRepository productRepository,
+            SingleFlight singleFlight) {
         return new GetTopStockProductPerBranchUseCase(
                 franchiseRepository, 
-                branchRepository, 
-                productRepository);
+                productRepository,
+                singleFlight);
     }
     
     // ============ Branch Use Cases ============
@@ -61,14 +80,15 @@ public class UseCaseConfig {
     @Bean
     public AddBranchToFranchiseUseCase addBranchToFranchiseUseCase(
             BranchRepository branchRepository,
-            FranchiseRepository franchiseRepository) {
-        return new AddBranchToFranchiseUseCase(branchRepository, franchiseRepository);
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new AddBranchToFranchiseUseCase(branchRepository, catalogSnapshotCache);
     }
     
     @Bean
     public UpdateBranchNameUseCase updateBranchNameUseCase(
-            BranchRepository branchRepository) {
-        return new UpdateBranchNameUseCase(branchRepository);
+            BranchRepository branchRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new UpdateBranchNameUseCase(branchRepository, catalogSnapshotCache);
     }
     
     // ============ Product Use Cases ============
@@ -76,25 +96,89 @@ public class UseCaseConfig {
     @Bean
     public AddProductToBranchUseCase addProductToBranchUseCase(
             ProductRepository productRepository,
-            BranchRepository branchRepository) {
-        return new AddProductToBranchUseCase(productRepository, branchRepository);
+            ObjectProvider<StockWriteBehindBuffer> stockWriteBehindBuffer,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new AddProductToBranchUseCase(
+                productRepository,
+                stockWriteBehindBuffer.getIfAvailable(),
+                catalogSnapshotCache);
     }
     
     @Bean
     public RemoveProductFromBranchUseCase removeProductFromBranchUseCase(
-            ProductRepository productRepository) {
-        return new RemoveProductFromBranchUseCase(productRepository);
+            ProductRepository productRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new RemoveProductFromBranchUseCase(productRepository, catalogSnapshotCache);
     }
     
     @Bean
     public UpdateProductStockUseCase updateProductStockUseCase(
-            ProductRepository productRepository) {
-        return new UpdateProductStockUseCase(productRepository);
+            ProductRepository productRepository,
+            ObjectProvider<StockWriteBehindBuffer> stockWriteBehindBuffer,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new UpdateProductStockUseCase(
+                productRepository,
+                stockWriteBehindBuffer.getIfAvailable(),
+                catalogSnapshotCache);
+    }
+    
+    @Bean
+    public AdjustProductStockUseCase adjustProductStockUseCase(
+            ProductRepository productRepository,
+            ObjectProvider<StockWriteBehindBuffer> stockWriteBehindBuffer,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new AdjustProductStockUseCase(
+                productRepository,
+                stockWriteBehindBuffer.getIfAvailable(),
+                catalogSnapshotCache);
+    }
+    
+    @Bean
+    public ImportProductsUseCase importProductsUseCase(
+            ProductRepository productRepository,
+            BranchRepository branchRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new ImportProductsUseCase(productRepository, branchRepository, catalogSnapshotCache);
+    }
+    
+    @Bean
+    public UpdateProductStockBatchUseCase updateProductStockBatchUseCase(
+            ProductRepository productRepository,
+            BranchRepository branchRepository,
+            ObjectProvider<StockWriteBehindBuffer> stockWriteBehindBuffer,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new UpdateProductStockBatchUseCase(
+                productRepository,
+                branchRepository,
+                stockWriteBehindBuffer.getIfAvailable(),
+                catalogSnapshotCache);
     }
     
     @Bean
     public UpdateProductNameUseCase updateProductNameUseCase(
-            ProductRepository productRepository) {
-        return new UpdateProductNameUseCase(productRepository);
+            ProductRepository productRepository,
+            CatalogSnapshotCache catalogSnapshotCache) {
+        return new UpdateProductNameUseCase(productRepository, catalogSnapshotCache);
+    }
+    
+    // ============ Stock Ledger Use Cases ============
+    
+    @Bean
+    public RecordStockMovementUseCase recordStockMovementUseCase(
+            StockMovementRepository stockMovementRepository,
+            ObjectProvider<StockWriteBehindBuffer> stockWriteBehindBuffer) {
+        return new RecordStockMovementUseCase(stockMovementRepository, stockWriteBehindBuffer.getIfAvailable());
+    }
+    
+    @Bean
+    public GetStockLevelUseCase getStockLevelUseCase(
+            StockMovementRepository stockMovementRepository) {
+        return new GetStockLevelUseCase(stockMovementRepository);
+    }
+    
+    @Bean
+    public GetStockMovementsUseCase getStockMovementsUseCase(
+            StockMovementRepository stockMovementRepository) {
+        return new GetStockMovementsUseCase(stockMovementRepository);
     }
 }
@@ -0,0 +1,25 @@
+package com.nequi.franquicias.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat view of one product of the catalog together with its branch and franchise
+ * Branches without products and franchises without branches appear once with the missing columns empty
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogRow {
+    
+    private Long franchiseId;
+    private String franchiseName;
+    private Long branchId;
+    private String branchName;
+    private Long productId;
+    private String productName;
+    private Integer stock;
+}
@@ -32,6 +32,11 @@ public class Product {
     
     private Long branchId;
     
+    /**
+     * Optimistic locking counter, incremented by every write; null when unknown
+     */
+    private Long version;
+    
     /**
      * Business rule: Check if product has sufficient stock
      */
@@ -58,6 +63,7 @@ public class Product {
                 .name(this.name)
                 .stock(newStock)
                 .branchId(this.branchId)
+                .version(this.version)
                 .build();
     }
     
@@ -73,6 +79,7 @@ public class Product {
                 .name(newName.trim())
                 .stock(this.stock)
                 .branchId(this.branchId)
+                .version(this.version)
                 .build();
     }
 }
@@ -0,0 +1,31 @@
+package com.nequi.franquicias.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Current stock of a product derived from the ledger
+ * The stock is the snapshot stored in the product plus the movements not yet folded into it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevel {
+    
+    private Long productId;
+    
+    private Integer stock;
+    
+    /**
+     * Stock stored in the product by the last compaction or direct write
+     */
+    private Integer snapshotStock;
+    
+    /**
+     * Movements appended after the snapshot
+     */
+    private Integer pendingMovements;
+}
@@ -0,0 +1,44 @@
+package com.nequi.franquicias.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the append-only stock ledger of a product
+ * Movements are never updated; the stock of a product is its last snapshot plus the movements appended after it
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+    
+    private Long id;
+    
+    private Long productId;
+    
+    private StockMovementType type;
+    
+    /**
+     * New stock for SET, signed amount for DELTA and TRANSFER
+     */
+    private Integer quantity;
+    
+    /**
+     * Product on the other side of a TRANSFER, null otherwise
+     */
+    private Long counterpartProductId;
+    
+    private LocalDateTime createdAt;
+    
+    /**
+     * Business rule: Stock after applying this movement to the given stock
+     */
+    public int applyTo(int stock) {
+        return type.applyTo(stock, quantity);
+    }
+}
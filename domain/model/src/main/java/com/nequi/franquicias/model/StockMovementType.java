@@ -0,0 +1,42 @@
+package com.nequi.franquicias.model;
+
+/**
+ * Kind of change recorded in the stock ledger
+ */
+public enum StockMovementType {
+    
+    /**
+     * Absolute value: the stock becomes the movement quantity
+     */
+    SET {
+        @Override
+        public int applyTo(int stock, int quantity) {
+            return quantity;
+        }
+    },
+    
+    /**
+     * Relative change: the quantity is added to the stock, negative to subtract
+     */
+    DELTA {
+        @Override
+        public int applyTo(int stock, int quantity) {
+            return stock + quantity;
+        }
+    },
+    
+    /**
+     * One leg of a transfer between two products: signed like a delta, the other leg names this product
+     */
+    TRANSFER {
+        @Override
+        public int applyTo(int stock, int quantity) {
+            return stock + quantity;
+        }
+    };
+    
+    /**
+     * Business rule: Stock after applying a movement of this type
+     */
+    public abstract int applyTo(int stock, int quantity);
+}
@@ -0,0 +1,16 @@
+package com.nequi.franquicias.model.exceptions;
+
+/**
+ * Exception thrown when an entity would break a uniqueness rule, such as a repeated name in the same parent
+ */
+public class DuplicateEntityException extends DomainException {
+    
+    public DuplicateEntityException(String entityName, String name, String parentName, Long parentId) {
+        super(String.format("%s with name '%s' already exists in %s with ID %d", entityName, name, parentName, parentId),
+                "DUPLICATE_ENTITY");
+    }
+    
+    public DuplicateEntityException(String message) {
+        super(message, "DUPLICATE_ENTITY");
+    }
+}
@@ -0,0 +1,12 @@
+package com.nequi.franquicias.model.exceptions;
+
+/**
+ * Exception thrown when a stock adjustment would leave a product with negative stock
+ */
+public class InsufficientStockException extends DomainException {
+    
+    public InsufficientStockException(Long productId, Integer delta) {
+        super(String.format("Insufficient stock in product with ID %d to apply a change of %d", productId, delta),
+                "INSUFFICIENT_STOCK");
+    }
+}
@@ -0,0 +1,12 @@
+package com.nequi.franquicias.model.exceptions;
+
+/**
+ * Exception thrown when a conditional write finds the entity at a different version than the caller expected
+ */
+public class VersionConflictException extends DomainException {
+    
+    public VersionConflictException(String entityName, Long id, Long expectedVersion) {
+        super(String.format("%s with ID %d is no longer at version %d", entityName, id, expectedVersion),
+                "VERSION_CONFLICT");
+    }
+}
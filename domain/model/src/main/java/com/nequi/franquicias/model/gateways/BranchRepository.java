@@ -12,11 +12,21 @@ public interface BranchRepository {
     
     /**
      * Save a branch
+     * Fails with DuplicateEntityException if the name is taken in the franchise,
+     * or EntityNotFoundException if the franchise does not exist
      * @param branch the branch to save
      * @return Mono of saved branch with generated ID
      */
     Mono<Branch> save(Branch branch);
     
+    /**
+     * Insert a branch, or return the existing one with the same name in the franchise, in one statement
+     * Fails with EntityNotFoundException if the franchise does not exist
+     * @param branch the branch holding name and franchise ID
+     * @return Mono of the created or existing branch
+     */
+    Mono<Branch> upsert(Branch branch);
+    
     /**
      * Find branch by ID
      * @param id the branch ID
@@ -40,10 +50,18 @@ public interface BranchRepository {
     /**
      * Update branch
      * @param branch the branch to update
-     * @return Mono of updated branch
+     * @return Mono of updated branch, empty if not found
      */
     Mono<Branch> update(Branch branch);
     
+    /**
+     * Rename a branch with a single statement, reading the row back in the same transaction
+     * @param branchId the branch ID
+     * @param name the new name
+     * @return Mono of the renamed branch with its franchise ID, without products, empty if not found
+     */
+    Mono<Branch> updateName(Long branchId, String name);
+    
     /**
      * Delete branch by ID
      * @param id the branch ID to delete
@@ -1,9 +1,12 @@
 package com.nequi.franquicias.model.gateways;
 
+import com.nequi.franquicias.model.CatalogRow;
 import com.nequi.franquicias.model.Franchise;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Gateway interface for Franchise persistence operations
  * Following Clean Architecture principles - this is a port
@@ -30,13 +33,65 @@ public interface FranchiseRepository {
      */
     Flux<Franchise> findAll();
     
+    /**
+     * Find all franchises with their branches and products loaded
+     * Resolved by the adapter in a single round trip instead of one query per branch
+     * @return Flux of franchises ordered by ID, each with its branches and products
+     */
+    Flux<Franchise> findAllWithBranchesAndProducts();
+    
+    /**
+     * Find a page of franchises with their branches and products loaded using keyset pagination
+     * @param afterId only franchises with an ID greater than this one are returned (0 for the first page)
+     * @param limit maximum number of franchises in the page
+     * @return Flux of franchises ordered by ID, each with its branches and products
+     */
+    Flux<Franchise> findPageWithBranchesAndProducts(Long afterId, int limit);
+    
+    /**
+     * Stream the whole catalog as flat rows
+     * Rows are fetched from the database in bounded chunks as the subscriber requests them
+     * @return Flux of catalog rows ordered by franchise, branch and product ID
+     */
+    Flux<CatalogRow> streamCatalog();
+    
+    /**
+     * Fingerprint of the whole catalog, read without loading it
+     * It changes whenever a franchise, branch or product is added, changed or removed
+     * @return Mono of an opaque value made of characters allowed in an ETag
+     */
+    Mono<String> findCatalogFingerprint();
+    
+    /**
+     * Fingerprint of some franchises with their branches and products, read without loading them
+     * @param franchiseIds the franchise IDs
+     * @return Mono of an opaque value made of characters allowed in an ETag
+     */
+    Mono<String> findCatalogFingerprint(List<Long> franchiseIds);
+    
+    /**
+     * Fingerprint of the top stock product of every branch of some franchises, read from the top-stock read model
+     * It changes whenever a branch is added, renamed or removed, or the top product of a branch changes
+     * @param franchiseIds the franchise IDs
+     * @return Mono of an opaque value made of characters allowed in an ETag
+     */
+    Mono<String> findTopStockFingerprint(List<Long> franchiseIds);
+    
     /**
      * Update franchise
      * @param franchise the franchise to update
-     * @return Mono of updated franchise
+     * @return Mono of updated franchise, empty if not found
      */
     Mono<Franchise> update(Franchise franchise);
     
+    /**
+     * Rename a franchise with a single statement, reading the row back in the same transaction
+     * @param franchiseId the franchise ID
+     * @param name the new name
+     * @return Mono of the renamed franchise, without branches, empty if not found
+     */
+    Mono<Franchise> updateName(Long franchiseId, String name);
+    
     /**
      * Delete franchise by ID
      * @param id the franchise ID to delete
@@ -1,9 +1,12 @@
 package com.nequi.franquicias.model.gateways;
 
+import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.Product;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Gateway interface for Product persistence operations
  * Following Clean Architecture principles - this is a port
@@ -12,11 +15,29 @@ public interface ProductRepository {
     
     /**
      * Save a product
+     * Fails with DuplicateEntityException if the name is taken in the branch,
+     * or EntityNotFoundException if the branch does not exist
      * @param product the product to save
      * @return Mono of saved product with generated ID
      */
     Mono<Product> save(Product product);
     
+    /**
+     * Insert a product, or set the stock of the existing one with the same name in the branch, in one statement
+     * Fails with EntityNotFoundException if the branch does not exist
+     * @param product the product holding name, stock and branch ID
+     * @return Mono of the created or updated product
+     */
+    Mono<Product> upsert(Product product);
+    
+    /**
+     * Insert many products with a single multi-row statement
+     * Products whose name already exists in their branch are skipped instead of failing the statement
+     * @param products the products to insert, each with name, stock and branch ID
+     * @return Mono with the number of inserted products, or an EntityNotFoundException if a branch does not exist
+     */
+    Mono<Long> insertAll(List<Product> products);
+    
     /**
      * Find product by ID
      * @param id the product ID
@@ -31,6 +52,14 @@ public interface ProductRepository {
      */
     Flux<Product> findByBranchId(Long branchId);
     
+    /**
+     * Find the product with the given name in a branch
+     * @param branchId the branch ID
+     * @param name the product name
+     * @return Mono of product or empty if the branch has no product with that name
+     */
+    Mono<Product> findByBranchIdAndName(Long branchId, String name);
+    
     /**
      * Find all products
      * @return Flux of all products
@@ -38,12 +67,23 @@ public interface ProductRepository {
     Flux<Product> findAll();
     
     /**
-     * Update product
-     * @param product the product to update
-     * @return Mono of updated product
+     * Update product name and stock
+     * @param product the product to update; if it holds a version, the update only applies to that version
+     * @return Mono of updated product with its new version, empty if not found,
+     *         or a VersionConflictException if the product holds a different version
      */
     Mono<Product> update(Product product);
     
+    /**
+     * Rename a product with a single statement
+     * @param productId the product ID
+     * @param name the new name
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of the renamed product with its ID, name and new version, empty if not found,
+     *         or a VersionConflictException if the product holds a different version
+     */
+    Mono<Product> updateName(Long productId, String name, Long expectedVersion);
+    
     /**
      * Delete product by ID
      * @param id the product ID to delete
@@ -74,10 +114,52 @@ public interface ProductRepository {
     Mono<Product> findTopByBranchIdOrderByStockDesc(Long branchId);
     
     /**
-     * Update product stock
+     * Find every branch of the given franchises together with its highest stock products
+     * Resolved by the adapter in a single round trip regardless of the number of franchises or branches
+     * @param franchiseIds the franchise IDs
+     * @param limit maximum number of products per branch
+     * @return Flux of branches ordered by franchise and branch ID; products are ordered by stock descending
+     *         and empty for branches without products
+     */
+    Flux<Branch> findTopStockProductsPerBranch(List<Long> franchiseIds, int limit);
+    
+    /**
+     * Update product stock with a single statement
+     * @param productId the product ID
+     * @param newStock the new stock value
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of the updated product with its ID, stock and new version, empty if not found,
+     *         or a VersionConflictException if the product holds a different version
+     */
+    Mono<Product> updateStock(Long productId, Integer newStock, Long expectedVersion);
+    
+    /**
+     * Update product stock only if the product belongs to the given branch
      * @param productId the product ID
+     * @param branchId the branch the product must belong to
      * @param newStock the new stock value
-     * @return Mono of updated product
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of the updated product with its ID, stock, branch ID and new version, empty if not found in the branch,
+     *         or a VersionConflictException if the product holds a different version
+     */
+    Mono<Product> updateStockInBranch(Long productId, Long branchId, Integer newStock, Long expectedVersion);
+    
+    /**
+     * Update the stock of many products in one transaction using batched statements
+     * Products with a branch ID are only updated if they belong to that branch
+     * @param products the products holding ID, new stock and optionally branch ID
+     * @return Flux emitting, in input order, whether each product was updated
+     */
+    Flux<Boolean> updateStockBatch(List<Product> products);
+    
+    /**
+     * Atomically add a delta to the product stock, refusing changes that would make it negative
+     * @param productId the product ID
+     * @param delta the amount to add (negative to subtract)
+     * @param expectedVersion version the product must still have, or null to adjust unconditionally
+     * @return Mono of updated product, empty if the product does not exist,
+     *         an InsufficientStockException if the stock would go below zero,
+     *         or a VersionConflictException if the product holds a different version
      */
-    Mono<Product> updateStock(Long productId, Integer newStock);
+    Mono<Product> adjustStock(Long productId, Integer delta, Long expectedVersion);
 }
@@ -0,0 +1,56 @@
+package com.nequi.franquicias.model.gateways;
+
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.StockMovement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Gateway interface for the append-only stock ledger
+ * Following Clean Architecture principles - this is a port
+ */
+public interface StockMovementRepository {
+    
+    /**
+     * Append a movement without touching the product row
+     * @param movement the movement holding product ID, type and quantity
+     * @return Mono of the movement with its generated ID
+     */
+    Mono<StockMovement> append(StockMovement movement);
+    
+    /**
+     * Append several movements atomically with a single statement, used for both legs of a transfer
+     * @param movements the movements to append
+     * @return Mono completing once every movement is stored
+     */
+    Mono<Void> appendAll(List<StockMovement> movements);
+    
+    /**
+     * Find the movements of a product using keyset pagination on the movement ID
+     * @param productId the product ID
+     * @param afterId ID of the last movement of the previous page, 0 for the first page
+     * @param limit maximum number of movements
+     * @return Flux of movements ordered by ID
+     */
+    Flux<StockMovement> findByProductId(Long productId, Long afterId, int limit);
+    
+    /**
+     * Derive the current stock of a product from its snapshot and the movements appended after it
+     * @param productId the product ID
+     * @return Mono of the stock level, or empty if the product does not exist
+     */
+    Mono<StockLevel> findCurrentStock(Long productId);
+    
+    /**
+     * Fold the oldest pending movements into the product snapshots in one transaction
+     * Movements younger than the settle delay are left for a later run, so that an append whose ID was
+     * assigned earlier but whose transaction commits later is never skipped
+     * @param maxMovements maximum number of movements folded by this run
+     * @param settleDelay minimum age of a movement before it is folded
+     * @return Mono with the number of movements folded
+     */
+    Mono<Integer> compact(int maxMovements, Duration settleDelay);
+}
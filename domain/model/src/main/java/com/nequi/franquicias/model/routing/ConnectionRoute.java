@@ -0,0 +1,49 @@
+package com.nequi.franquicias.model.routing;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Database route a reactive pipeline should use, carried in the Reactor context
+ * Read-only use cases opt into the reader; everything else stays on the writer
+ */
+public enum ConnectionRoute {
+    
+    WRITER,
+    READER;
+    
+    public static final String CONTEXT_KEY = "franquicias.connection-route";
+    public static final String STICKY_KEY = "franquicias.connection-route.sticky";
+    
+    /**
+     * Mark a pipeline as read-only so it may be served by the reader
+     * Usage: {@code flux.contextWrite(ConnectionRoute::useReader)}
+     * @param context the subscriber context
+     * @return context routed to the reader
+     */
+    public static Context useReader(Context context) {
+        return context.put(CONTEXT_KEY, READER);
+    }
+    
+    /**
+     * Pin a pipeline to the writer even if it asks for the reader (read-your-writes)
+     * Usage: {@code mono.contextWrite(ConnectionRoute::stickToWriter)}
+     * @param context the subscriber context
+     * @return context pinned to the writer
+     */
+    public static Context stickToWriter(Context context) {
+        return context.put(STICKY_KEY, Boolean.TRUE);
+    }
+    
+    /**
+     * Resolve the route for the current subscriber context
+     * @param context the subscriber context
+     * @return WRITER unless the pipeline asked for the reader and is not pinned
+     */
+    public static ConnectionRoute resolve(ContextView context) {
+        if (context.getOrDefault(STICKY_KEY, Boolean.FALSE)) {
+            return WRITER;
+        }
+        return context.getOrDefault(CONTEXT_KEY, WRITER);
+    }
+}
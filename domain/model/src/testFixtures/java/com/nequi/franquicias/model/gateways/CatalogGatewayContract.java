@@ -0,0 +1,359 @@
+package com.nequi.franquicias.model.gateways;
+
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour every implementation of the catalog gateways must share
+ * Each adapter module extends this class and supplies its repositories, so the in-memory profile and the
+ * database adapters are held to the same rules: unique names, missing parents, skipped inserts, versions,
+ * the stock guard and the top-stock order.
+ * Names are unique per test, so implementations may keep their data between tests.
+ */
+public abstract class CatalogGatewayContract {
+    
+    private static final Long MISSING_ID = 999_999_999L;
+    
+    protected abstract FranchiseRepository franchiseRepository();
+    
+    protected abstract BranchRepository branchRepository();
+    
+    protected abstract ProductRepository productRepository();
+    
+    @Test
+    void franchiseNamesAreUnique() {
+        String name = unique("Franchise");
+        franchise(name);
+        
+        StepVerifier.create(franchiseRepository().save(Franchise.builder().name(name).build()))
+                .expectError(DuplicateEntityException.class)
+                .verify();
+    }
+    
+    @Test
+    void branchNamesAreUniqueWithinTheirFranchise() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Franchise other = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        
+        StepVerifier.create(branchRepository().save(Branch.builder().name(branch.getName()).franchiseId(franchise.getId()).build()))
+                .expectError(DuplicateEntityException.class)
+                .verify();
+        StepVerifier.create(branchRepository().save(Branch.builder().name(branch.getName()).franchiseId(other.getId()).build()))
+                .assertNext(saved -> assertEquals(other.getId(), saved.getFranchiseId()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void productNamesAreUniqueWithinTheirBranch() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Branch other = branch(franchise, unique("Branch"));
+        Product product = product(branch, unique("Product"), 1);
+        
+        StepVerifier.create(productRepository().save(newProduct(branch, product.getName(), 2)))
+                .expectError(DuplicateEntityException.class)
+                .verify();
+        StepVerifier.create(productRepository().save(newProduct(other, product.getName(), 2)))
+                .assertNext(saved -> assertEquals(other.getId(), saved.getBranchId()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void branchOfAMissingFranchiseIsNotFound() {
+        StepVerifier.create(branchRepository().save(Branch.builder().name(unique("Branch")).franchiseId(MISSING_ID).build()))
+                .expectError(EntityNotFoundException.class)
+                .verify();
+    }
+    
+    @Test
+    void productOfAMissingBranchIsNotFound() {
+        StepVerifier.create(productRepository().save(Product.builder().name(unique("Product")).stock(1).branchId(MISSING_ID).build()))
+                .expectError(EntityNotFoundException.class)
+                .verify();
+    }
+    
+    @Test
+    void insertAllSkipsTakenNamesAndCountsTheRest() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Product taken = product(branch, unique("Product"), 1);
+        
+        StepVerifier.create(productRepository().insertAll(List.of(
+                        newProduct(branch, taken.getName(), 5),
+                        newProduct(branch, unique("Product"), 6),
+                        newProduct(branch, unique("Product"), 7))))
+                .expectNext(2L)
+                .verifyComplete();
+        StepVerifier.create(productRepository().findById(taken.getId()))
+                .assertNext(product -> assertEquals(1, product.getStock()))
+                .verifyComplete();
+        StepVerifier.create(productRepository().findByBranchId(branch.getId()).count())
+                .expectNext(3L)
+                .verifyComplete();
+    }
+    
+    @Test
+    void insertAllIntoAMissingBranchInsertsNothing() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        
+        StepVerifier.create(productRepository().insertAll(List.of(
+                        newProduct(branch, unique("Product"), 5),
+                        Product.builder().name(unique("Product")).stock(6).branchId(MISSING_ID).build())))
+                .expectError(EntityNotFoundException.class)
+                .verify();
+        StepVerifier.create(productRepository().findByBranchId(branch.getId()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void everyStockWriteBumpsTheVersion() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Product product = product(branch, unique("Product"), 10);
+        
+        Product updated = productRepository().updateStock(product.getId(), 7, product.getVersion()).block();
+        assertEquals(7, updated.getStock());
+        assertTrue(updated.getVersion() > product.getVersion(), "updateStock kept version " + updated.getVersion());
+        
+        Product adjusted = productRepository().adjustStock(product.getId(), 3, updated.getVersion()).block();
+        assertEquals(10, adjusted.getStock());
+        assertTrue(adjusted.getVersion() > updated.getVersion(), "adjustStock kept version " + adjusted.getVersion());
+        
+        Product inBranch = productRepository().updateStockInBranch(product.getId(), branch.getId(), 4, null).block();
+        assertEquals(4, inBranch.getStock());
+        assertTrue(inBranch.getVersion() > adjusted.getVersion(), "updateStockInBranch kept version " + inBranch.getVersion());
+    }
+    
+    @Test
+    void upsertReturnsTheVersionItWrote() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        String name = unique("Product");
+        
+        Product inserted = productRepository().upsert(newProduct(branch, name, 5)).block();
+        Product updated = productRepository().upsert(newProduct(branch, name, 8)).block();
+        
+        assertEquals(inserted.getId(), updated.getId());
+        assertTrue(updated.getVersion() > inserted.getVersion(), "upsert kept version " + updated.getVersion());
+        StepVerifier.create(productRepository().findById(updated.getId()))
+                .assertNext(current -> {
+                    assertEquals(8, current.getStock());
+                    assertEquals(updated.getVersion(), current.getVersion());
+                })
+                .verifyComplete();
+    }
+    
+    @Test
+    void staleVersionIsAConflict() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Product product = product(branch, unique("Product"), 10);
+        Long stale = product.getVersion();
+        productRepository().updateStock(product.getId(), 7, stale).block();
+        
+        StepVerifier.create(productRepository().updateStock(product.getId(), 8, stale))
+                .expectError(VersionConflictException.class)
+                .verify();
+        StepVerifier.create(productRepository().updateStockInBranch(product.getId(), branch.getId(), 8, stale))
+                .expectError(VersionConflictException.class)
+                .verify();
+        StepVerifier.create(productRepository().adjustStock(product.getId(), 1, stale))
+                .expectError(VersionConflictException.class)
+                .verify();
+        StepVerifier.create(productRepository().updateName(product.getId(), unique("Product"), stale))
+                .expectError(VersionConflictException.class)
+                .verify();
+        StepVerifier.create(productRepository().findById(product.getId()))
+                .assertNext(current -> assertEquals(7, current.getStock()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void writesToAMissingProductAreEmpty() {
+        StepVerifier.create(productRepository().updateStock(MISSING_ID, 1, 0L))
+                .verifyComplete();
+        StepVerifier.create(productRepository().adjustStock(MISSING_ID, 1, null))
+                .verifyComplete();
+    }
+    
+    @Test
+    void stockWriteInAnotherBranchIsEmpty() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Branch other = branch(franchise, unique("Branch"));
+        Product product = product(branch, unique("Product"), 10);
+        
+        StepVerifier.create(productRepository().updateStockInBranch(product.getId(), other.getId(), 1, null))
+                .verifyComplete();
+        StepVerifier.create(productRepository().updateStockBatch(List.of(
+                        Product.builder().id(product.getId()).stock(3).branchId(branch.getId()).build(),
+                        Product.builder().id(product.getId()).stock(4).branchId(other.getId()).build(),
+                        Product.builder().id(MISSING_ID).stock(5).build())))
+                .expectNext(true, false, false)
+                .verifyComplete();
+        StepVerifier.create(productRepository().findById(product.getId()))
+                .assertNext(current -> assertEquals(3, current.getStock()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void stockNeverGoesBelowZero() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Product product = product(branch, unique("Product"), 3);
+        
+        StepVerifier.create(productRepository().adjustStock(product.getId(), -5, null))
+                .expectError(InsufficientStockException.class)
+                .verify();
+        StepVerifier.create(productRepository().findById(product.getId()))
+                .assertNext(current -> assertEquals(3, current.getStock()))
+                .verifyComplete();
+        StepVerifier.create(productRepository().adjustStock(product.getId(), -3, null))
+                .assertNext(current -> assertEquals(0, current.getStock()))
+                .verifyComplete();
+    }
+    
+    @Test
+    void topStockIsOrderedByStockThenIdAndKeepsEmptyBranches() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Branch empty = branch(franchise, unique("Branch"));
+        Product five = product(branch, unique("Product"), 5);
+        Product firstNine = product(branch, unique("Product"), 9);
+        Product secondNine = product(branch, unique("Product"), 9);
+        Product one = product(branch, unique("Product"), 1);
+        
+        assertTopStock(franchise, 3, List.of(firstNine.getId(), secondNine.getId(), five.getId()), List.of());
+        assertTopStock(franchise, 1, List.of(firstNine.getId()), List.of());
+        StepVerifier.create(productRepository().findTopByBranchIdOrderByStockDesc(branch.getId()))
+                .assertNext(top -> assertEquals(firstNine.getId(), top.getId()))
+                .verifyComplete();
+        StepVerifier.create(productRepository().findTopByBranchIdOrderByStockDesc(empty.getId()))
+                .verifyComplete();
+        
+        // The top product of a branch follows every kind of write
+        productRepository().updateStock(firstNine.getId(), 0, null).block();
+        assertTopStock(franchise, 1, List.of(secondNine.getId()), List.of());
+        productRepository().deleteById(secondNine.getId()).block();
+        assertTopStock(franchise, 1, List.of(five.getId()), List.of());
+        productRepository().adjustStock(one.getId(), 20, null).block();
+        assertTopStock(franchise, 1, List.of(one.getId()), List.of());
+        productRepository().updateStockBatch(List.of(Product.builder().id(five.getId()).stock(30).build())).blockLast();
+        assertTopStock(franchise, 2, List.of(five.getId(), one.getId()), List.of());
+    }
+    
+    @Test
+    void topStockFingerprintFollowsTheTopProducts() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch branch = branch(franchise, unique("Branch"));
+        Product top = product(branch, unique("Product"), 9);
+        Product other = product(branch, unique("Product"), 5);
+        List<String> fingerprints = new ArrayList<>();
+        fingerprints.add(topStockFingerprint(franchise));
+        
+        productRepository().updateStock(other.getId(), 12, null).block();
+        fingerprints.add(topStockFingerprint(franchise));
+        productRepository().updateName(other.getId(), unique("Product"), null).block();
+        fingerprints.add(topStockFingerprint(franchise));
+        productRepository().deleteById(other.getId()).block();
+        fingerprints.add(topStockFingerprint(franchise));
+        productRepository().adjustStock(top.getId(), 1, null).block();
+        fingerprints.add(topStockFingerprint(franchise));
+        
+        assertEquals(fingerprints.size(), fingerprints.stream().distinct().count(), "Fingerprints " + fingerprints);
+    }
+    
+    @Test
+    void concurrentWritesToABranchKeepItsTopStockProduct() {
+        Franchise franchise = franchise(unique("Franchise"));
+        Branch first = branch(franchise, unique("Branch"));
+        Branch second = branch(franchise, unique("Branch"));
+        List<Product> products = new ArrayList<>();
+        for (int stock = 1; stock <= 8; stock++) {
+            products.add(newProduct(first, unique("Product"), stock));
+            products.add(newProduct(second, unique("Product"), stock));
+        }
+        
+        // First inserts into both empty branches at once, then deletes of their two best products at once
+        List<Product> saved = Flux.fromIterable(products)
+                .flatMap(product -> productRepository().save(product), products.size())
+                .collectList()
+                .block();
+        assertTopStock(franchise, 1, List.of(best(saved, first, 0)), List.of(best(saved, second, 0)));
+        
+        Flux.just(best(saved, first, 0), best(saved, first, 1), best(saved, second, 0), best(saved, second, 1))
+                .flatMap(productId -> productRepository().deleteById(productId), 4)
+                .blockLast();
+        assertTopStock(franchise, 1, List.of(best(saved, first, 2)), List.of(best(saved, second, 2)));
+    }
+    
+    /**
+     * @param rank position of the product in the branch's top-stock order, from 0
+     */
+    private static Long best(List<Product> products, Branch branch, int rank) {
+        return products.stream()
+                .filter(product -> product.getBranchId().equals(branch.getId()))
+                .sorted(Comparator.comparing(Product::getStock).reversed().thenComparing(Product::getId))
+                .skip(rank)
+                .findFirst()
+                .map(Product::getId)
+                .orElseThrow();
+    }
+    
+    private void assertTopStock(Franchise franchise, int limit, List<Long> expected, List<Long> expectedOfSecond) {
+        List<Branch> branches = productRepository().findTopStockProductsPerBranch(List.of(franchise.getId()), limit)
+                .collectList()
+                .block();
+        
+        assertEquals(2, branches.size(), "Every branch of the franchise is listed");
+        assertTrue(branches.get(0).getId() < branches.get(1).getId(), "Branches are in ID order");
+        assertEquals(expected, productIds(branches.get(0)), "Top " + limit + " of the first branch");
+        assertEquals(expectedOfSecond, productIds(branches.get(1)), "Top " + limit + " of the second branch");
+    }
+    
+    private String topStockFingerprint(Franchise franchise) {
+        return franchiseRepository().findTopStockFingerprint(List.of(franchise.getId())).block();
+    }
+    
+    private static List<Long> productIds(Branch branch) {
+        return branch.getProducts().stream().map(Product::getId).toList();
+    }
+    
+    private Franchise franchise(String name) {
+        return franchiseRepository().save(Franchise.builder().name(name).build()).block();
+    }
+    
+    private Branch branch(Franchise franchise, String name) {
+        return branchRepository().save(Branch.builder().name(name).franchiseId(franchise.getId()).build()).block();
+    }
+    
+    private Product product(Branch branch, String name, int stock) {
+        return productRepository().save(newProduct(branch, name, stock)).block();
+    }
+    
+    private static Product newProduct(Branch branch, String name, int stock) {
+        return Product.builder().name(name).stock(stock).branchId(branch.getId()).build();
+    }
+    
+    private static String unique(String prefix) {
+        return prefix + " " + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
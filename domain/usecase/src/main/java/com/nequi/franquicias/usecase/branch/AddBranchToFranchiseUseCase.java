@@ -2,20 +2,22 @@ package com.nequi.franquicias.usecase.branch;
 
 import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
 import com.nequi.franquicias.model.gateways.BranchRepository;
-import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
 /**
  * Use case for adding a branch to an existing franchise
+ * A single INSERT: the franchise foreign key and the name unique key are checked by the database
  */
 @RequiredArgsConstructor
 public class AddBranchToFranchiseUseCase {
     
     private final BranchRepository branchRepository;
-    private final FranchiseRepository franchiseRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
      * Adds a branch to a franchise
@@ -24,12 +26,25 @@ public class AddBranchToFranchiseUseCase {
      * @return Mono of created branch with generated ID
      */
     public Mono<Branch> execute(Long franchiseId, Branch branch) {
+        return execute(franchiseId, branch, false);
+    }
+    
+    /**
+     * Adds a branch to a franchise, optionally as an upsert
+     * With upsert, an existing branch with the same name in the franchise is returned instead of failing,
+     * so the request can be retried safely
+     * @param franchiseId the franchise ID
+     * @param branch the branch to add
+     * @param upsert whether an existing branch with the same name is returned
+     * @return Mono of created or existing branch
+     */
+    public Mono<Branch> execute(Long franchiseId, Branch branch, boolean upsert) {
         return validateInput(franchiseId, branch)
-                .then(franchiseRepository.existsById(franchiseId))
-                .filter(exists -> exists)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("Franchise", franchiseId)))
                 .then(Mono.fromCallable(() -> prepareBranch(franchiseId, branch)))
-                .flatMap(branchRepository::save)
+                .flatMap(prepared -> upsert
+                        ? branchRepository.upsert(prepared)
+                        : branchRepository.save(prepared))
+                .doOnNext(catalogSnapshot::branchAdded)
                 .onErrorMap(this::mapError);
     }
     
@@ -62,7 +77,8 @@ public class AddBranchToFranchiseUseCase {
     }
     
     private Throwable mapError(Throwable error) {
-        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException
+                || error instanceof DuplicateEntityException) {
             return error;
         }
         return new BusinessValidationException("Error adding branch to franchise: " + error.getMessage(), error);
@@ -4,6 +4,7 @@ import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
 import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
@@ -15,19 +16,19 @@ import reactor.core.publisher.Mono;
 public class UpdateBranchNameUseCase {
     
     private final BranchRepository branchRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
-     * Updates branch name
+     * Updates branch name with a single statement, the branch is not read first
      * @param branchId the branch ID
      * @param newName the new name
      * @return Mono of updated branch
      */
     public Mono<Branch> execute(Long branchId, String newName) {
         return validateInput(branchId, newName)
-                .then(branchRepository.findById(branchId))
+                .then(Mono.defer(() -> branchRepository.updateName(branchId, newName.trim())))
+                .doOnNext(catalogSnapshot::branchRenamed)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Branch", branchId)))
-                .map(branch -> branch.updateName(newName))
-                .flatMap(branchRepository::update)
                 .onErrorMap(this::mapError);
     }
     
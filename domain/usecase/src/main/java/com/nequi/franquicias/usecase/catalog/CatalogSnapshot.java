@@ -0,0 +1,75 @@
+package com.nequi.franquicias.usecase.catalog;
+
+import com.nequi.franquicias.model.Franchise;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Immutable view of the whole franchise tree at one version
+ * Franchises, branches and products are ordered by ID, as the repository returns them. The domain
+ * objects are shared by every reader of the snapshot and must not be modified; their lists are unmodifiable.
+ */
+public final class CatalogSnapshot {
+    
+    private final long version;
+    private final long refreshedAtNanos; // start of the full load the snapshot derives from
+    private final long generation; // invalidation count when that load started
+    private final List<Franchise> franchises;
+    
+    CatalogSnapshot(long version, long refreshedAtNanos, long generation, List<Franchise> franchises) {
+        this.version = version;
+        this.refreshedAtNanos = refreshedAtNanos;
+        this.generation = generation;
+        this.franchises = franchises;
+    }
+    
+    /**
+     * @return version of the snapshot, increased by every patch and by every reload that changes the tree
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * @return all franchises with their branches and products, ordered by ID
+     */
+    public List<Franchise> getFranchises() {
+        return franchises;
+    }
+    
+    /**
+     * Keyset page of the franchises, located by binary search
+     * @param afterId only franchises with an ID greater than this one are returned
+     * @param limit maximum number of franchises in the page
+     * @return view of the franchises in the page
+     */
+    public List<Franchise> page(long afterId, int limit) {
+        int low = 0;
+        int high = franchises.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (franchises.get(middle).getId() <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return franchises.subList(low, Math.min(low + limit, franchises.size()));
+    }
+    
+    /**
+     * @return time since the full load this snapshot derives from started; local writes since are included
+     */
+    public Duration getAge() {
+        return Duration.ofNanos(System.nanoTime() - refreshedAtNanos);
+    }
+    
+    long getRefreshedAtNanos() {
+        return refreshedAtNanos;
+    }
+    
+    long getGeneration() {
+        return generation;
+    }
+}
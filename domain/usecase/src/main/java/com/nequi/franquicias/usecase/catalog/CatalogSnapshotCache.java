@@ -0,0 +1,450 @@
+package com.nequi.franquicias.usecase.catalog;
+
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory snapshot of the franchise tree, patched by the write use cases
+ * Reads get the published snapshot without touching the database. A write through this instance
+ * replaces only the path from the changed entity up to the root and publishes a new version, so
+ * untouched franchises and branches are shared between versions. Changes made by other instances,
+ * by stock ledger compaction or by bulk imports are picked up by a full reload: a snapshot is never
+ * served once its load is older than the maximum staleness, and is reloaded in the background once
+ * it is half that old. Patches made while a reload is running are replayed on the reloaded tree.
+ * Loads always read the writer: a lagging replica would miss writes patched in before the load started,
+ * which are no longer replayed, and drop them from the snapshot.
+ */
+@Slf4j
+public class CatalogSnapshotCache {
+    
+    private final FranchiseRepository franchiseRepository;
+    private final long maxStalenessNanos;
+    private final boolean enabled;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final Object lock = new Object();
+    // Versions restart at zero with the process and differ between instances, the epoch tells them apart
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    
+    private volatile CatalogSnapshot current;
+    // Guarded by lock
+    private Tree tree;
+    private List<Consumer<Tree>> replay; // patches made while a reload is running, null otherwise
+    private Mono<CatalogSnapshot> refreshing;
+    private long version;
+    
+    /**
+     * @param franchiseRepository repository the tree is loaded from
+     * @param maxStaleness maximum age of the full load a served snapshot derives from
+     */
+    public CatalogSnapshotCache(FranchiseRepository franchiseRepository, Duration maxStaleness) {
+        this(franchiseRepository, maxStaleness, true);
+    }
+    
+    private CatalogSnapshotCache(FranchiseRepository franchiseRepository, Duration maxStaleness, boolean enabled) {
+        this.franchiseRepository = franchiseRepository;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.enabled = enabled;
+    }
+    
+    /**
+     * @return a cache that is never read and ignores every patch
+     */
+    public static CatalogSnapshotCache disabled() {
+        return new CatalogSnapshotCache(null, Duration.ZERO, false);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Current snapshot, reloaded first if it is older than the maximum staleness or was invalidated
+     * Concurrent readers of an expired snapshot share a single reload
+     */
+    public Mono<CatalogSnapshot> snapshot() {
+        return Mono.defer(() -> {
+            CatalogSnapshot snapshot = current;
+            if (snapshot != null && snapshot.getGeneration() == invalidations.get()) {
+                long age = System.nanoTime() - snapshot.getRefreshedAtNanos();
+                if (age <= maxStalenessNanos) {
+                    if (age > maxStalenessNanos / 2) {
+                        refresh().subscribe(
+                                refreshed -> { },
+                                error -> log.warn("Catalog snapshot background reload failed: {}", error.getMessage()));
+                    }
+                    return Mono.just(snapshot);
+                }
+            }
+            return refresh();
+        });
+    }
+    
+    /**
+     * @return version of the published snapshot, 0 before the first load
+     */
+    public long getVersion() {
+        CatalogSnapshot snapshot = current;
+        return snapshot != null ? snapshot.getVersion() : 0;
+    }
+    
+    /**
+     * @return age of the published snapshot in seconds, 0 before the first load
+     */
+    public double getAgeSeconds() {
+        CatalogSnapshot snapshot = current;
+        return snapshot != null ? snapshot.getAge().toNanos() / 1e9 : 0;
+    }
+    
+    public long getReloadCount() {
+        return reloads.get();
+    }
+    
+    /**
+     * Fingerprint of a snapshot published by this cache, unique across instances and restarts
+     * @return value made of characters allowed in an ETag
+     */
+    public String fingerprint(CatalogSnapshot snapshot) {
+        return epoch + "." + Long.toString(snapshot.getVersion(), 36);
+    }
+    
+    /**
+     * Force a full reload on the next read, for writes that cannot be patched
+     */
+    public void invalidate() {
+        if (enabled) {
+            invalidations.incrementAndGet();
+        }
+    }
+    
+    public void franchiseCreated(Franchise franchise) {
+        patch(tree -> tree.addFranchise(franchise));
+    }
+    
+    public void franchiseRenamed(Franchise franchise) {
+        patch(tree -> tree.renameFranchise(franchise.getId(), franchise.getName()));
+    }
+    
+    /**
+     * Add the branch unless it is already there, as an upsert may return an existing one
+     */
+    public void branchAdded(Branch branch) {
+        patch(tree -> tree.addBranch(branch));
+    }
+    
+    public void branchRenamed(Branch branch) {
+        patch(tree -> tree.renameBranch(branch.getId(), branch.getName()));
+    }
+    
+    /**
+     * Insert or update a product; null fields of the product keep their current value
+     */
+    public void productChanged(Product product) {
+        productsChanged(List.of(product));
+    }
+    
+    /**
+     * Insert or update products, copying each affected branch once
+     */
+    public void productsChanged(List<Product> products) {
+        if (!products.isEmpty()) {
+            patch(tree -> tree.putProducts(products));
+        }
+    }
+    
+    public void productRemoved(Long productId) {
+        patch(tree -> tree.removeProduct(productId));
+    }
+    
+    private void patch(Consumer<Tree> change) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (replay != null) {
+                replay.add(change);
+            }
+            // Before the first load there is nothing to patch, the load reads the write from the database
+            if (tree != null) {
+                change.accept(tree);
+                current = new CatalogSnapshot(++version, current.getRefreshedAtNanos(), current.getGeneration(),
+                        tree.franchises);
+            }
+        }
+    }
+    
+    private Mono<CatalogSnapshot> refresh() {
+        synchronized (lock) {
+            if (refreshing == null) {
+                refreshing = load()
+                        .doFinally(signal -> {
+                            synchronized (lock) {
+                                refreshing = null;
+                                replay = null;
+                            }
+                        })
+                        .cache();
+            }
+            return refreshing;
+        }
+    }
+    
+    private Mono<CatalogSnapshot> load() {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            long generation = invalidations.get();
+            synchronized (lock) {
+                replay = new ArrayList<>();
+            }
+            return franchiseRepository.findAllWithBranchesAndProducts()
+                    .collectList()
+                    .map(franchises -> install(franchises, startedAt, generation))
+                    .contextWrite(ConnectionRoute::stickToWriter);
+        });
+    }
+    
+    private CatalogSnapshot install(List<Franchise> franchises, long startedAt, long generation) {
+        synchronized (lock) {
+            Tree loaded = new Tree(franchises);
+            for (Consumer<Tree> change : replay) {
+                change.accept(loaded);
+            }
+            replay = null;
+            tree = loaded;
+            // A reload that finds nothing new keeps the version, so fingerprints taken from it stay valid
+            boolean unchanged = current != null && current.getFranchises().equals(loaded.franchises);
+            current = new CatalogSnapshot(unchanged ? version : ++version, startedAt, generation, loaded.franchises);
+            reloads.incrementAndGet();
+            log.debug("Catalog snapshot reloaded: {} franchises, version {}", franchises.size(), version);
+            return current;
+        }
+    }
+    
+    /**
+     * Writer side of the snapshot: the published franchise list plus the indexes needed to find
+     * the path to a branch or product, which the domain objects returned by writes do not always carry
+     */
+    private static final class Tree {
+        
+        private List<Franchise> franchises;
+        private final Map<Long, Long> franchiseOfBranch = new HashMap<>();
+        private final Map<Long, Long> branchOfProduct = new HashMap<>();
+        
+        private Tree(List<Franchise> loaded) {
+            Franchise[] copies = new Franchise[loaded.size()];
+            for (int i = 0; i < copies.length; i++) {
+                Franchise franchise = loaded.get(i);
+                Branch[] branches = new Branch[franchise.getBranches().size()];
+                for (int j = 0; j < branches.length; j++) {
+                    Branch branch = franchise.getBranches().get(j);
+                    franchiseOfBranch.put(branch.getId(), franchise.getId());
+                    Product[] products = new Product[branch.getProducts().size()];
+                    for (int k = 0; k < products.length; k++) {
+                        Product product = branch.getProducts().get(k);
+                        branchOfProduct.put(product.getId(), branch.getId());
+                        products[k] = product(product.getId(), product.getName(), product.getStock(), branch.getId());
+                    }
+                    branches[j] = branch(branch.getId(), branch.getName(), franchise.getId(), freeze(products));
+                }
+                copies[i] = franchise(franchise.getId(), franchise.getName(), freeze(branches));
+            }
+            franchises = freeze(copies);
+        }
+        
+        private void addFranchise(Franchise franchise) {
+            if (franchise.getId() == null) {
+                return;
+            }
+            int index = indexOf(franchises, franchise.getId(), Franchise::getId);
+            if (index < 0) {
+                franchises = inserted(franchises, -index - 1, franchise(franchise.getId(), franchise.getName(), List.of()));
+            }
+        }
+        
+        private void renameFranchise(Long franchiseId, String name) {
+            int index = indexOf(franchises, franchiseId, Franchise::getId);
+            if (index >= 0) {
+                Franchise franchise = franchises.get(index);
+                franchises = replaced(franchises, index, franchise(franchiseId, name, franchise.getBranches()));
+            }
+        }
+        
+        private void addBranch(Branch branch) {
+            if (branch.getId() == null || branch.getFranchiseId() == null) {
+                return;
+            }
+            int franchiseIndex = indexOf(franchises, branch.getFranchiseId(), Franchise::getId);
+            if (franchiseIndex < 0) {
+                return;
+            }
+            Franchise franchise = franchises.get(franchiseIndex);
+            int index = indexOf(franchise.getBranches(), branch.getId(), Branch::getId);
+            if (index < 0) {
+                Branch added = branch(branch.getId(), branch.getName(), franchise.getId(), List.of());
+                franchises = replaced(franchises, franchiseIndex, franchise(franchise.getId(), franchise.getName(),
+                        inserted(franchise.getBranches(), -index - 1, added)));
+                franchiseOfBranch.put(branch.getId(), franchise.getId());
+            }
+        }
+        
+        private void renameBranch(Long branchId, String name) {
+            updateBranch(branchId, branch -> branch(branchId, name, branch.getFranchiseId(), branch.getProducts()));
+        }
+        
+        private void putProducts(List<Product> changes) {
+            Map<Long, List<Product>> byBranch = new LinkedHashMap<>();
+            for (Product change : changes) {
+                if (change == null || change.getId() == null) {
+                    continue;
+                }
+                Long branchId = change.getBranchId() != null ? change.getBranchId() : branchOfProduct.get(change.getId());
+                if (branchId != null) {
+                    byBranch.computeIfAbsent(branchId, id -> new ArrayList<>()).add(change);
+                }
+            }
+            byBranch.forEach((branchId, branchChanges) -> updateBranch(branchId, branch -> {
+                List<Product> products = new ArrayList<>(branch.getProducts());
+                for (Product change : branchChanges) {
+                    int index = indexOf(products, change.getId(), Product::getId);
+                    if (index >= 0) {
+                        Product existing = products.get(index);
+                        products.set(index, product(change.getId(),
+                                change.getName() != null ? change.getName() : existing.getName(),
+                                change.getStock() != null ? change.getStock() : existing.getStock(),
+                                branchId));
+                    } else if (change.getName() != null && change.getStock() != null) {
+                        products.add(-index - 1, product(change.getId(), change.getName(), change.getStock(), branchId));
+                        branchOfProduct.put(change.getId(), branchId);
+                    }
+                }
+                return branch(branchId, branch.getName(), branch.getFranchiseId(), Collections.unmodifiableList(products));
+            }));
+        }
+        
+        private void removeProduct(Long productId) {
+            Long branchId = branchOfProduct.remove(productId);
+            if (branchId == null) {
+                return;
+            }
+            updateBranch(branchId, branch -> {
+                int index = indexOf(branch.getProducts(), productId, Product::getId);
+                return index < 0 ? branch : branch(branchId, branch.getName(), branch.getFranchiseId(),
+                        removed(branch.getProducts(), index));
+            });
+        }
+        
+        /**
+         * Replace a branch and, above it, its franchise and the franchise list
+         */
+        private void updateBranch(Long branchId, UnaryOperator<Branch> change) {
+            Long franchiseId = franchiseOfBranch.get(branchId);
+            if (franchiseId == null) {
+                return;
+            }
+            int franchiseIndex = indexOf(franchises, franchiseId, Franchise::getId);
+            if (franchiseIndex < 0) {
+                return;
+            }
+            Franchise franchise = franchises.get(franchiseIndex);
+            int index = indexOf(franchise.getBranches(), branchId, Branch::getId);
+            if (index < 0) {
+                return;
+            }
+            Branch updated = change.apply(franchise.getBranches().get(index));
+            franchises = replaced(franchises, franchiseIndex, franchise(franchise.getId(), franchise.getName(),
+                    replaced(franchise.getBranches(), index, updated)));
+        }
+        
+        /**
+         * Binary search by ID
+         * @return index of the element, or (-(insertion point) - 1) if absent
+         */
+        private static <T> int indexOf(List<T> list, long id, ToLongFunction<T> idOf) {
+            int low = 0;
+            int high = list.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = idOf.applyAsLong(list.get(middle));
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+        
+        private static <T> List<T> replaced(List<T> list, int index, T element) {
+            @SuppressWarnings("unchecked")
+            T[] copy = (T[]) list.toArray();
+            copy[index] = element;
+            return freeze(copy);
+        }
+        
+        private static <T> List<T> inserted(List<T> list, int index, T element) {
+            List<T> copy = new ArrayList<>(list.size() + 1);
+            copy.addAll(list.subList(0, index));
+            copy.add(element);
+            copy.addAll(list.subList(index, list.size()));
+            return Collections.unmodifiableList(copy);
+        }
+        
+        private static <T> List<T> removed(List<T> list, int index) {
+            List<T> copy = new ArrayList<>(list.size() - 1);
+            copy.addAll(list.subList(0, index));
+            copy.addAll(list.subList(index + 1, list.size()));
+            return Collections.unmodifiableList(copy);
+        }
+        
+        private static <T> List<T> freeze(T[] elements) {
+            return Collections.unmodifiableList(Arrays.asList(elements));
+        }
+        
+        private static Franchise franchise(Long id, String name, List<Branch> branches) {
+            return Franchise.builder()
+                    .id(id)
+                    .name(name)
+                    .branches(branches)
+                    .build();
+        }
+        
+        private static Branch branch(Long id, String name, Long franchiseId, List<Product> products) {
+            return Branch.builder()
+                    .id(id)
+                    .name(name)
+                    .franchiseId(franchiseId)
+                    .products(products)
+                    .build();
+        }
+        
+        private static Product product(Long id, String name, Integer stock, Long branchId) {
+            return Product.builder()
+                    .id(id)
+                    .name(name)
+                    .stock(stock)
+                    .branchId(branchId)
+                    .build();
+        }
+    }
+}
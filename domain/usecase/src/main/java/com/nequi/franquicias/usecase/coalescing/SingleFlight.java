@@ -0,0 +1,120 @@
+package com.nequi.franquicias.usecase.coalescing;
+
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical concurrent reads into a single execution
+ * Calls are keyed by operation name, arguments and the connection route of the caller, so a caller
+ * pinned to the writer for read-your-writes never joins a read served by the replica. The first caller
+ * starts the execution, callers arriving while it is in flight get the same result or error instead of
+ * running it again. Nothing is kept once it completes, so a call arriving after that runs again and sees
+ * fresh data.
+ * The shared execution is detached from its subscribers: a subscriber that cancels only stops
+ * listening, the execution runs to completion for the others. It inherits the Reactor context of the
+ * caller that started it.
+ */
+public class SingleFlight {
+    
+    private final boolean enabled;
+    private final ConcurrentHashMap<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    
+    public SingleFlight() {
+        this(true);
+    }
+    
+    private SingleFlight(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * @return a single flight that runs every call on its own
+     */
+    public static SingleFlight disabled() {
+        return new SingleFlight(false);
+    }
+    
+    /**
+     * Run the call, or join the identical one already in flight
+     * @param operation name of the operation, distinguishes calls with the same arguments
+     * @param call the read to run, only invoked by the caller that starts the execution
+     * @param arguments arguments of the read, compared with equals
+     */
+    public <T> Mono<T> mono(String operation, Supplier<Mono<T>> call, Object... arguments) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        List<Object> argumentList = Arrays.asList(arguments);
+        return Mono.deferContextual(context -> {
+            Key key = new Key(operation, ConnectionRoute.resolve(context), argumentList);
+            CompletableFuture<T> started = new CompletableFuture<>();
+            @SuppressWarnings("unchecked")
+            CompletableFuture<T> flight = (CompletableFuture<T>) inFlight.putIfAbsent(key, started);
+            if (flight != null) {
+                joined.incrementAndGet();
+            } else {
+                flight = started;
+                executions.incrementAndGet();
+                Mono.defer(call)
+                        .contextWrite(context)
+                        .doFinally(signal -> inFlight.remove(key, started))
+                        .subscribe(started::complete, started::completeExceptionally, () -> started.complete(null));
+            }
+            // Cancelling a subscriber must not cancel the future the other callers wait on
+            return Mono.fromFuture(flight, true);
+        });
+    }
+    
+    /**
+     * Run the call, or join the identical one already in flight
+     * The elements are collected and replayed to every caller, so this suits bounded results only.
+     * @param operation name of the operation, distinguishes calls with the same arguments
+     * @param call the read to run, only invoked by the caller that starts the execution
+     * @param arguments arguments of the read, compared with equals
+     */
+    public <T> Flux<T> flux(String operation, Supplier<Flux<T>> call, Object... arguments) {
+        if (!enabled) {
+            return Flux.defer(call);
+        }
+        return mono(operation, () -> Flux.defer(call).collectList(), arguments)
+                .flatMapIterable(elements -> elements);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * @return executions currently in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    /**
+     * @return calls that started an execution
+     */
+    public long getExecutionCount() {
+        return executions.get();
+    }
+    
+    /**
+     * @return calls that joined an execution already in flight
+     */
+    public long getJoinedCount() {
+        return joined.get();
+    }
+    
+    private record Key(String operation, ConnectionRoute route, List<Object> arguments) {
+    }
+}
@@ -3,6 +3,7 @@ package com.nequi.franquicias.usecase.franchise;
 import com.nequi.franquicias.model.Franchise;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
@@ -14,6 +15,7 @@ import reactor.core.publisher.Mono;
 public class CreateFranchiseUseCase {
     
     private final FranchiseRepository franchiseRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
      * Creates a new franchise
@@ -23,6 +25,7 @@ public class CreateFranchiseUseCase {
     public Mono<Franchise> execute(Franchise franchise) {
         return validateFranchise(franchise)
                 .flatMap(validFranchise -> franchiseRepository.save(validFranchise))
+                .doOnNext(catalogSnapshot::franchiseCreated)
                 .onErrorMap(this::mapError);
     }
     
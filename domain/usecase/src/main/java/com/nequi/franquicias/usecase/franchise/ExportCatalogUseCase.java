@@ -0,0 +1,36 @@
+package com.nequi.franquicias.usecase.franchise;
+
+import com.nequi.franquicias.model.CatalogRow;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+
+/**
+ * Use case for exporting the whole catalog as a flat stream of rows
+ * Rows are pulled from the database on demand, so memory does not grow with the catalog size
+ * Read-only, so it is served by the read replica when one is configured
+ */
+@RequiredArgsConstructor
+public class ExportCatalogUseCase {
+    
+    private final FranchiseRepository franchiseRepository;
+    
+    /**
+     * Streams every franchise, branch and product of the catalog
+     * @return Flux of catalog rows ordered by franchise, branch and product ID
+     */
+    public Flux<CatalogRow> execute() {
+        return franchiseRepository.streamCatalog()
+                .onErrorMap(this::mapError)
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException) {
+            return error;
+        }
+        return new BusinessValidationException("Error exporting catalog: " + error.getMessage(), error);
+    }
+}
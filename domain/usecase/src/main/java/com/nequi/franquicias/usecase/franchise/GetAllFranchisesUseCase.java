@@ -1,88 +1,91 @@
 package com.nequi.franquicias.usecase.franchise;
 
-import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.Franchise;
-import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
-import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshot;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-
 /**
  * Use case for retrieving all franchises with their branches
  * Following Clean Architecture principles
+ * Read-only, so it is served by the read replica when one is configured
+ * With the catalog snapshot enabled, both reads are served from memory without database queries
  */
 @RequiredArgsConstructor
 @Slf4j
 public class GetAllFranchisesUseCase {
     
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    
     private final FranchiseRepository franchiseRepository;
-    private final BranchRepository branchRepository;
-    private final ProductRepository productRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
-     * Retrieves all franchises from the repository with their associated branches
-     * 
+     * Retrieves all franchises from the repository with their associated branches and products
+     * The whole tree is loaded in a single query regardless of catalog size
+     *
      * @return Flux of all franchises with branches loaded
      */
     public Flux<Franchise> execute() {
-        return franchiseRepository.findAll()
-                .flatMap(this::loadBranches);
+        if (catalogSnapshot.isEnabled()) {
+            return catalogSnapshot.snapshot().flatMapIterable(CatalogSnapshot::getFranchises);
+        }
+        return franchiseRepository.findAllWithBranchesAndProducts()
+                .doOnNext(franchise -> log.debug("Loaded franchise {} with {} branches",
+                    franchise.getId(), franchise.getBranches().size()))
+                .contextWrite(ConnectionRoute::useReader);
     }
     
     /**
-     * Load branches for a franchise
-     * @param franchise the franchise without branches
-     * @return franchise with loaded branches
+     * Retrieves one page of franchises using keyset pagination on the franchise ID
+     *
+     * @param afterId cursor: ID of the last franchise of the previous page, null for the first page
+     * @param limit maximum number of franchises in the page
+     * @return Flux of franchises with branches loaded, ordered by ID
      */
-    private Mono<Franchise> loadBranches(Franchise franchise) {
-        log.info("Loading branches for franchise ID: {}", franchise.getId());
-        return branchRepository.findByFranchiseId(franchise.getId())
-                .flatMap(this::loadProducts) // Load products for each branch
-                .doOnNext(branch -> log.info("Found branch: {} with {} products for franchise: {}", 
-                    branch.getName(), branch.getProducts().size(), franchise.getId()))
-                .collectList()
-                .doOnNext(branches -> log.info("Total branches found for franchise {}: {}", franchise.getId(), branches.size()))
-                .map(branches -> {
-                    return Franchise.builder()
-                            .id(franchise.getId())
-                            .name(franchise.getName())
-                            .branches(branches)
-                            .build();
-                })
-                .onErrorReturn(Franchise.builder()
-                        .id(franchise.getId())
-                        .name(franchise.getName())
-                        .branches(new ArrayList<>())
-                        .build());
+    public Flux<Franchise> execute(Long afterId, Integer limit) {
+        return validateInput(afterId, limit)
+                .thenMany(Flux.defer(() -> catalogSnapshot.isEnabled()
+                        ? catalogSnapshot.snapshot().flatMapIterable(snapshot -> snapshot.page(
+                                afterId != null ? afterId : 0L, limit))
+                        : franchiseRepository.findPageWithBranchesAndProducts(afterId != null ? afterId : 0L, limit)))
+                .doOnNext(franchise -> log.debug("Loaded franchise {} with {} branches",
+                    franchise.getId(), franchise.getBranches().size()))
+                .contextWrite(ConnectionRoute::useReader);
     }
     
     /**
-     * Load products for a branch
-     * @param branch the branch without products
-     * @return branch with loaded products
+     * Fingerprint of the catalog both reads are served from, obtained without loading it
+     * Taken before a read, the read never returns older data than the fingerprint stands for
+     *
+     * @return Mono of an opaque value that changes whenever the served catalog changes
      */
-    private Mono<Branch> loadProducts(Branch branch) {
-        log.debug("Loading products for branch ID: {}", branch.getId());
-        return productRepository.findByBranchId(branch.getId())
-                .collectList()
-                .map(products -> {
-                    return Branch.builder()
-                            .id(branch.getId())
-                            .name(branch.getName())
-                            .franchiseId(branch.getFranchiseId())
-                            .products(products)
-                            .build();
-                })
-                .onErrorReturn(Branch.builder()
-                        .id(branch.getId())
-                        .name(branch.getName())
-                        .franchiseId(branch.getFranchiseId())
-                        .products(new ArrayList<>())
-                        .build());
+    public Mono<String> fingerprint() {
+        if (catalogSnapshot.isEnabled()) {
+            return catalogSnapshot.snapshot().map(catalogSnapshot::fingerprint);
+        }
+        return franchiseRepository.findCatalogFingerprint()
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    private Mono<Void> validateInput(Long afterId, Integer limit) {
+        return Mono.fromRunnable(() -> {
+            if (afterId != null && afterId < 0) {
+                throw new BusinessValidationException("Cursor cannot be negative");
+            }
+            if (limit == null) {
+                throw new BusinessValidationException("Page size cannot be null");
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new BusinessValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+        });
     }
 }
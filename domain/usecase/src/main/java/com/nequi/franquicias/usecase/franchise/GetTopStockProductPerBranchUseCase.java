@@ -4,9 +4,10 @@ import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.Product;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
-import com.nequi.franquicias.model.gateways.BranchRepository;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import com.nequi.franquicias.usecase.coalescing.SingleFlight;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,16 +16,25 @@ import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Use case for getting the product with highest stock per branch for a specific franchise
  * This is a key requirement (#7)
+ * Read-only, so it is served by the read replica when one is configured
+ * Identical concurrent requests, e.g. a dashboard refreshed by many clients at once, share one execution
  */
 @RequiredArgsConstructor
 public class GetTopStockProductPerBranchUseCase {
     
+    public static final int DEFAULT_LIMIT = 1;
+    public static final int MAX_LIMIT = 50;
+    public static final int MAX_FRANCHISES = 500;
+    
     private final FranchiseRepository franchiseRepository;
-    private final BranchRepository branchRepository;
     private final ProductRepository productRepository;
+    private final SingleFlight singleFlight;
     
     /**
      * Gets the product with highest stock per branch for a specific franchise
@@ -32,35 +42,170 @@ public class GetTopStockProductPerBranchUseCase {
      * @return Flux of BranchTopProduct containing branch and its top product
      */
     public Flux<BranchTopProduct> execute(Long franchiseId) {
-        return validateInput(franchiseId)
+        return execute(franchiseId, DEFAULT_LIMIT);
+    }
+    
+    /**
+     * Gets the top N products by stock per branch for a specific franchise
+     * All branches and their top products are resolved in a single query; with a limit of 1 it is an indexed
+     * lookup of the per-branch top stock read model maintained on every product write
+     * @param franchiseId the franchise ID
+     * @param limit maximum number of products per branch
+     * @return Flux of BranchTopProduct, one per ranked product or a single empty entry per branch without products
+     */
+    public Flux<BranchTopProduct> execute(Long franchiseId, Integer limit) {
+        return execute(franchiseId, limit, null);
+    }
+    
+    /**
+     * Gets the top N products by stock per branch for a specific franchise, for a response tagged with a fingerprint
+     * The fingerprint is part of the single-flight key: only callers that read the same fingerprint share an
+     * execution, so a joined report is never older than the fingerprint its response is tagged with
+     * @param franchiseId the franchise ID
+     * @param limit maximum number of products per branch
+     * @param fingerprint fingerprint read by the caller before the report, or null when the response is not tagged
+     * @return Flux of BranchTopProduct, one per ranked product or a single empty entry per branch without products
+     */
+    public Flux<BranchTopProduct> execute(Long franchiseId, Integer limit, String fingerprint) {
+        // Routed outside the single flight, so its key tells replica reads from ones pinned to the writer
+        return singleFlight.flux("top-stock-products", () -> findTopStockProducts(franchiseId, limit),
+                        franchiseId, limit, fingerprint)
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    /**
+     * Gets the top N products by stock per branch for several franchises at once
+     * Unknown franchise IDs are ignored instead of failing the whole request
+     * @param franchiseIds the franchise IDs
+     * @param limit maximum number of products per branch
+     * @return Flux of BranchTopProduct ordered by franchise and branch ID
+     */
+    public Flux<BranchTopProduct> execute(List<Long> franchiseIds, Integer limit) {
+        return execute(franchiseIds, limit, null);
+    }
+    
+    /**
+     * Gets the top N products by stock per branch for several franchises, for a response tagged with a fingerprint
+     * Only callers that read the same fingerprint share an execution, as for a single franchise
+     * @param franchiseIds the franchise IDs
+     * @param limit maximum number of products per branch
+     * @param fingerprint fingerprint read by the caller before the report, or null when the response is not tagged
+     * @return Flux of BranchTopProduct ordered by franchise and branch ID
+     */
+    public Flux<BranchTopProduct> execute(List<Long> franchiseIds, Integer limit, String fingerprint) {
+        return singleFlight.flux("top-stock-products-for-franchises",
+                        () -> findTopStockProducts(franchiseIds, limit), franchiseIds, limit, fingerprint)
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    /**
+     * Fingerprint of the data the report of a franchise is built from, obtained without running it
+     * Taken before the report and passed to it, the report never returns older data than the fingerprint stands for
+     * @param franchiseId the franchise ID
+     * @param limit maximum number of products per branch the report is run with
+     * @return Mono of an opaque value that changes whenever the data of the report changes
+     */
+    public Mono<String> fingerprint(Long franchiseId, Integer limit) {
+        return validateInput(franchiseId, limit)
+                .then(Mono.defer(() -> findFingerprint(List.of(franchiseId), limit)))
+                .onErrorMap(this::mapError)
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    /**
+     * Fingerprint of the data the report of several franchises is built from, obtained without running it
+     * @param franchiseIds the franchise IDs
+     * @param limit maximum number of products per branch the report is run with
+     * @return Mono of an opaque value that changes whenever the data of the report changes
+     */
+    public Mono<String> fingerprint(List<Long> franchiseIds, Integer limit) {
+        return validateInput(franchiseIds, limit)
+                .then(Mono.defer(() -> findFingerprint(franchiseIds.stream().distinct().toList(), limit)))
+                .onErrorMap(this::mapError)
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    /**
+     * With a limit of 1 the report only reads the top-stock read model, and so does its fingerprint;
+     * deeper rankings depend on every product of the franchises
+     */
+    private Mono<String> findFingerprint(List<Long> franchiseIds, int limit) {
+        return limit == DEFAULT_LIMIT
+                ? franchiseRepository.findTopStockFingerprint(franchiseIds)
+                : franchiseRepository.findCatalogFingerprint(franchiseIds);
+    }
+    
+    private Flux<BranchTopProduct> findTopStockProducts(Long franchiseId, Integer limit) {
+        return validateInput(franchiseId, limit)
                 .then(franchiseRepository.existsById(franchiseId))
                 .filter(exists -> exists)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Franchise", franchiseId)))
-                .thenMany(branchRepository.findByFranchiseId(franchiseId))
-                .flatMap(this::getTopProductForBranch)
+                .thenMany(Flux.defer(() -> productRepository.findTopStockProductsPerBranch(List.of(franchiseId), limit)))
+                .flatMapIterable(this::toBranchTopProducts)
                 .onErrorMap(this::mapError);
     }
     
-    private Mono<BranchTopProduct> getTopProductForBranch(Branch branch) {
-        return productRepository.findTopByBranchIdOrderByStockDesc(branch.getId())
-                .map(product -> BranchTopProduct.builder()
-                        .branch(branch)
-                        .product(product)
-                        .build())
-                .switchIfEmpty(Mono.just(BranchTopProduct.builder()
-                        .branch(branch)
-                        .product(null) // No products in this branch
-                        .build()));
+    private Flux<BranchTopProduct> findTopStockProducts(List<Long> franchiseIds, Integer limit) {
+        return validateInput(franchiseIds, limit)
+                .thenMany(Flux.defer(() -> productRepository.findTopStockProductsPerBranch(
+                        franchiseIds.stream().distinct().toList(), limit)))
+                .flatMapIterable(this::toBranchTopProducts)
+                .onErrorMap(this::mapError);
     }
     
-    private Mono<Void> validateInput(Long franchiseId) {
+    private List<BranchTopProduct> toBranchTopProducts(Branch branch) {
+        if (!branch.hasProducts()) {
+            return List.of(BranchTopProduct.builder()
+                    .branch(branch)
+                    .product(null) // No products in this branch
+                    .build());
+        }
+        
+        List<BranchTopProduct> topProducts = new ArrayList<>(branch.getProducts().size());
+        int rank = 1;
+        for (Product product : branch.getProducts()) {
+            topProducts.add(BranchTopProduct.builder()
+                    .branch(branch)
+                    .product(product)
+                    .rank(rank++)
+                    .build());
+        }
+        return topProducts;
+    }
+    
+    private Mono<Void> validateInput(Long franchiseId, Integer limit) {
         return Mono.fromRunnable(() -> {
             if (franchiseId == null) {
                 throw new BusinessValidationException("Franchise ID cannot be null");
             }
+            validateLimit(limit);
         });
     }
     
+    private Mono<Void> validateInput(List<Long> franchiseIds, Integer limit) {
+        return Mono.fromRunnable(() -> {
+            if (franchiseIds == null || franchiseIds.isEmpty()) {
+                throw new BusinessValidationException("At least one franchise ID is required");
+            }
+            if (franchiseIds.stream().anyMatch(id -> id == null)) {
+                throw new BusinessValidationException("Franchise ID cannot be null");
+            }
+            if (franchiseIds.size() > MAX_FRANCHISES) {
+                throw new BusinessValidationException("Cannot request more than " + MAX_FRANCHISES + " franchises at once");
+            }
+            validateLimit(limit);
+        });
+    }
+    
+    private void validateLimit(Integer limit) {
+        if (limit == null) {
+            throw new BusinessValidationException("Limit cannot be null");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BusinessValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+    
     private Throwable mapError(Throwable error) {
         if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
             return error;
@@ -78,11 +223,16 @@ public class GetTopStockProductPerBranchUseCase {
     public static class BranchTopProduct {
         private Branch branch;
         private Product product; // null if branch has no products
+        private Integer rank; // 1-based position by stock, null if branch has no products
         
         public boolean hasProduct() {
             return product != null;
         }
         
+        public Long getFranchiseId() {
+            return branch != null ? branch.getFranchiseId() : null;
+        }
+        
         public String getBranchName() {
             return branch != null ? branch.getName() : null;
         }
@@ -4,6 +4,7 @@ import com.nequi.franquicias.model.Franchise;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
@@ -15,19 +16,19 @@ import reactor.core.publisher.Mono;
 public class UpdateFranchiseNameUseCase {
     
     private final FranchiseRepository franchiseRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
-     * Updates franchise name
+     * Updates franchise name with a single statement, the franchise is not read first
      * @param franchiseId the franchise ID
      * @param newName the new name
      * @return Mono of updated franchise
      */
     public Mono<Franchise> execute(Long franchiseId, String newName) {
         return validateInput(franchiseId, newName)
-                .then(franchiseRepository.findById(franchiseId))
+                .then(Mono.defer(() -> franchiseRepository.updateName(franchiseId, newName.trim())))
+                .doOnNext(catalogSnapshot::franchiseRenamed)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Franchise", franchiseId)))
-                .map(franchise -> franchise.updateName(newName))
-                .flatMap(franchiseRepository::update)
                 .onErrorMap(this::mapError);
     }
     
@@ -2,20 +2,28 @@ package com.nequi.franquicias.usecase.product;
 
 import com.nequi.franquicias.model.Product;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
-import com.nequi.franquicias.model.gateways.BranchRepository;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
 /**
  * Use case for adding a product to a specific branch
+ * A single INSERT: the branch foreign key and the name unique key are checked by the database
+ * An upsert that sets the stock of an existing product writes its set still waiting in the write-behind buffer first
  */
 @RequiredArgsConstructor
 public class AddProductToBranchUseCase {
     
     private final ProductRepository productRepository;
-    private final BranchRepository branchRepository;
+    private final StockWriteBehindBuffer writeBehindBuffer; // null when stock sets are written directly
+    private final CatalogSnapshotCache catalogSnapshot;
+    
+    public AddProductToBranchUseCase(ProductRepository productRepository, CatalogSnapshotCache catalogSnapshot) {
+        this(productRepository, null, catalogSnapshot);
+    }
     
     /**
      * Adds a product to a branch
@@ -24,15 +32,39 @@ public class AddProductToBranchUseCase {
      * @return Mono of created product with generated ID
      */
     public Mono<Product> execute(Long branchId, Product product) {
+        return execute(branchId, product, false);
+    }
+    
+    /**
+     * Adds a product to a branch, optionally as an upsert
+     * With upsert, a product with the same name in the branch gets the new stock instead of failing,
+     * so the request can be retried safely
+     * @param branchId the branch ID
+     * @param product the product to add
+     * @param upsert whether an existing product with the same name is updated
+     * @return Mono of created or updated product
+     */
+    public Mono<Product> execute(Long branchId, Product product, boolean upsert) {
         return validateInput(branchId, product)
-                .then(branchRepository.existsById(branchId))
-                .filter(exists -> exists)
-                .switchIfEmpty(Mono.error(new EntityNotFoundException("Branch", branchId)))
                 .then(Mono.fromCallable(() -> prepareProduct(branchId, product)))
-                .flatMap(productRepository::save)
+                .flatMap(prepared -> upsert
+                        ? settleExisting(prepared).then(productRepository.upsert(prepared))
+                        : productRepository.save(prepared))
+                .doOnNext(catalogSnapshot::productChanged)
                 .onErrorMap(this::mapError);
     }
     
+    /**
+     * Settle the product the upsert would update, so a buffered set never lands on top of the upserted stock
+     */
+    private Mono<Void> settleExisting(Product product) {
+        if (writeBehindBuffer == null) {
+            return Mono.empty();
+        }
+        return productRepository.findByBranchIdAndName(product.getBranchId(), product.getName())
+                .flatMap(existing -> writeBehindBuffer.settle(existing.getId()));
+    }
+    
     private Mono<Void> validateInput(Long branchId, Product product) {
         return Mono.fromRunnable(() -> {
             if (branchId == null) {
@@ -70,7 +102,8 @@ public class AddProductToBranchUseCase {
     }
     
     private Throwable mapError(Throwable error) {
-        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException
+                || error instanceof DuplicateEntityException) {
             return error;
         }
         return new BusinessValidationException("Error adding product to branch: " + error.getMessage(), error);
@@ -0,0 +1,75 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Use case for adjusting product stock by a relative amount
+ * The change is applied atomically in the repository, so concurrent adjustments never overwrite each other
+ * A set still waiting in the write-behind buffer is written first, so the delta applies on top of it
+ */
+@RequiredArgsConstructor
+public class AdjustProductStockUseCase {
+    
+    private final ProductRepository productRepository;
+    private final StockWriteBehindBuffer writeBehindBuffer; // null when stock sets are written directly
+    private final CatalogSnapshotCache catalogSnapshot;
+    
+    public AdjustProductStockUseCase(ProductRepository productRepository, CatalogSnapshotCache catalogSnapshot) {
+        this(productRepository, null, catalogSnapshot);
+    }
+    
+    /**
+     * Adds a delta to the product stock
+     * @param productId the product ID
+     * @param delta the amount to add (negative to subtract)
+     * @return Mono of updated product, or an InsufficientStockException if the stock would go below zero
+     */
+    public Mono<Product> execute(Long productId, Integer delta) {
+        return execute(productId, delta, null);
+    }
+    
+    /**
+     * Adds a delta to the product stock only if the product is still at the expected version
+     * @param productId the product ID
+     * @param delta the amount to add (negative to subtract)
+     * @param expectedVersion version the product must still have, or null to adjust unconditionally
+     * @return Mono of updated product, or a VersionConflictException if the version changed
+     */
+    public Mono<Product> execute(Long productId, Integer delta, Long expectedVersion) {
+        return validateInput(productId, delta)
+                .then(Mono.defer(() -> writeBehindBuffer != null ? writeBehindBuffer.settle(productId) : Mono.<Void>empty()))
+                .then(Mono.defer(() -> productRepository.adjustStock(productId, delta, expectedVersion)))
+                .doOnNext(catalogSnapshot::productChanged)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)))
+                .onErrorMap(this::mapError);
+    }
+    
+    private Mono<Void> validateInput(Long productId, Integer delta) {
+        return Mono.fromRunnable(() -> {
+            if (productId == null) {
+                throw new BusinessValidationException("Product ID cannot be null");
+            }
+            if (delta == null) {
+                throw new BusinessValidationException("Stock delta cannot be null");
+            }
+        });
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException
+                || error instanceof EntityNotFoundException
+                || error instanceof InsufficientStockException
+                || error instanceof VersionConflictException) {
+            return error;
+        }
+        return new BusinessValidationException("Error adjusting product stock: " + error.getMessage(), error);
+    }
+}
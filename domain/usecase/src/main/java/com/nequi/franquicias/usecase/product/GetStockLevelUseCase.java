@@ -0,0 +1,46 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Use case for reading the current stock of a product from the ledger
+ * Served by the primary, so a movement is visible as soon as its append has been answered
+ */
+@RequiredArgsConstructor
+public class GetStockLevelUseCase {
+    
+    private final StockMovementRepository stockMovementRepository;
+    
+    /**
+     * Derives the product stock from its snapshot plus the movements not yet compacted
+     * @param productId the product ID
+     * @return Mono of the stock level
+     */
+    public Mono<StockLevel> execute(Long productId) {
+        return validateInput(productId)
+                .then(Mono.defer(() -> stockMovementRepository.findCurrentStock(productId)))
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)))
+                .onErrorMap(this::mapError);
+    }
+    
+    private Mono<Void> validateInput(Long productId) {
+        return Mono.fromRunnable(() -> {
+            if (productId == null) {
+                throw new BusinessValidationException("Product ID cannot be null");
+            }
+        });
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException
+                || error instanceof EntityNotFoundException) {
+            return error;
+        }
+        return new BusinessValidationException("Error reading product stock: " + error.getMessage(), error);
+    }
+}
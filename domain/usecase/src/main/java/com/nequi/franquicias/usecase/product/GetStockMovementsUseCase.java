@@ -0,0 +1,53 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.StockMovement;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Use case for reading the stock history of a product
+ * Read-only, so it is served by the read replica when one is configured
+ */
+@RequiredArgsConstructor
+public class GetStockMovementsUseCase {
+    
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    private final StockMovementRepository stockMovementRepository;
+    
+    /**
+     * Retrieves one page of movements using keyset pagination on the movement ID
+     * @param productId the product ID
+     * @param afterId cursor: ID of the last movement of the previous page, null for the first page
+     * @param limit maximum number of movements in the page
+     * @return Flux of movements, oldest first
+     */
+    public Flux<StockMovement> execute(Long productId, Long afterId, Integer limit) {
+        return validateInput(productId, afterId, limit)
+                .thenMany(Flux.defer(() -> stockMovementRepository.findByProductId(
+                        productId, afterId != null ? afterId : 0L, limit)))
+                .contextWrite(ConnectionRoute::useReader);
+    }
+    
+    private Mono<Void> validateInput(Long productId, Long afterId, Integer limit) {
+        return Mono.fromRunnable(() -> {
+            if (productId == null) {
+                throw new BusinessValidationException("Product ID cannot be null");
+            }
+            if (afterId != null && afterId < 0) {
+                throw new BusinessValidationException("Cursor cannot be negative");
+            }
+            if (limit == null) {
+                throw new BusinessValidationException("Page size cannot be null");
+            }
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new BusinessValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Use case for importing a large stream of products into a branch
+ * Rows are validated one by one and written in multi-row batches, so memory stays bounded by the batch size
+ */
+@RequiredArgsConstructor
+public class ImportProductsUseCase {
+    
+    public static final int BATCH_SIZE = 500;
+    
+    private final ProductRepository productRepository;
+    private final BranchRepository branchRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
+    
+    /**
+     * Imports products into a branch
+     * Invalid rows are reported and skipped; products whose name already exists in the branch are counted as skipped
+     * @param branchId the branch ID
+     * @param rows parsed rows in file order
+     * @return Flux of ImportEvent: one ERROR per rejected row, one PROGRESS per written batch and a final SUMMARY
+     */
+    public Flux<ImportEvent> execute(Long branchId, Flux<ImportRow> rows) {
+        return validateInput(branchId, rows)
+                .then(Mono.defer(() -> branchRepository.existsById(branchId)))
+                .filter(exists -> exists)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Branch", branchId)))
+                .thenMany(Flux.defer(() -> {
+                    ImportCounters counters = new ImportCounters();
+                    return rows
+                            .buffer(BATCH_SIZE)
+                            .concatMap(batch -> importBatch(branchId, batch, counters), 1)
+                            .concatWith(Mono.fromSupplier(() -> counters.toEvent(ImportEvent.Type.SUMMARY)))
+                            // Inserted rows are not returned with their IDs, so the snapshot is reloaded instead of patched
+                            .doFinally(signal -> {
+                                if (counters.inserted > 0) {
+                                    catalogSnapshot.invalidate();
+                                }
+                            });
+                }))
+                .onErrorMap(this::mapError);
+    }
+    
+    private Flux<ImportEvent> importBatch(Long branchId, List<ImportRow> batch, ImportCounters counters) {
+        List<ImportEvent> errors = new ArrayList<>();
+        List<Product> products = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            String error = row.getError() != null ? row.getError() : validateProduct(row.getProduct());
+            if (error != null) {
+                errors.add(ImportEvent.builder()
+                        .type(ImportEvent.Type.ERROR)
+                        .line(row.getLine())
+                        .message(error)
+                        .build());
+            } else {
+                products.add(Product.builder()
+                        .name(row.getProduct().getName().trim())
+                        .stock(row.getProduct().getStock())
+                        .branchId(branchId)
+                        .build());
+            }
+        }
+        
+        return Flux.fromIterable(errors)
+                .concatWith(productRepository.insertAll(products)
+                        .map(inserted -> {
+                            counters.processed += batch.size();
+                            counters.rejected += errors.size();
+                            counters.inserted += inserted;
+                            counters.skipped += products.size() - inserted;
+                            return counters.toEvent(ImportEvent.Type.PROGRESS);
+                        }));
+    }
+    
+    /**
+     * Same rules as the Product model constraints, reported as a message instead of an exception
+     */
+    private String validateProduct(Product product) {
+        if (product == null) {
+            return "Product cannot be null";
+        }
+        if (product.getName() == null || product.getName().trim().isEmpty()) {
+            return "Product name cannot be empty";
+        }
+        if (product.getName().trim().length() > 100) {
+            return "Product name cannot exceed 100 characters";
+        }
+        if (product.getStock() == null) {
+            return "Product stock cannot be null";
+        }
+        if (product.getStock() < 0) {
+            return "Product stock cannot be negative";
+        }
+        return null;
+    }
+    
+    private Mono<Void> validateInput(Long branchId, Flux<ImportRow> rows) {
+        return Mono.fromRunnable(() -> {
+            if (branchId == null) {
+                throw new BusinessValidationException("Branch ID cannot be null");
+            }
+            if (rows == null) {
+                throw new BusinessValidationException("Import rows cannot be null");
+            }
+        });
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+            return error;
+        }
+        return new BusinessValidationException("Error importing products: " + error.getMessage(), error);
+    }
+    
+    /**
+     * Running totals of one import, only touched from the sequential batch pipeline
+     */
+    private static class ImportCounters {
+        private long processed;
+        private long inserted;
+        private long skipped;
+        private long rejected;
+        
+        private ImportEvent toEvent(ImportEvent.Type type) {
+            return ImportEvent.builder()
+                    .type(type)
+                    .processed(processed)
+                    .inserted(inserted)
+                    .skipped(skipped)
+                    .rejected(rejected)
+                    .build();
+        }
+    }
+    
+    /**
+     * A parsed input row: either a product or the reason it could not be parsed
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ImportRow {
+        private long line; // 1-based line number in the source
+        private Product product;
+        private String error; // null if the row was parsed
+    }
+    
+    /**
+     * Progress or error report item of an import
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ImportEvent {
+        
+        public enum Type { PROGRESS, ERROR, SUMMARY }
+        
+        private Type type;
+        private Long line; // only for ERROR events
+        private String message; // only for ERROR events
+        private Long processed;
+        private Long inserted;
+        private Long skipped; // names that already existed in the branch
+        private Long rejected;
+    }
+}
@@ -0,0 +1,158 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.StockMovement;
+import com.nequi.franquicias.model.StockMovementType;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Use case for recording stock changes in the append-only ledger
+ * Appends never lock the product row, so the stock check on negative changes is best-effort:
+ * concurrent sales can both pass it, and compaction then clamps the stock at zero.
+ * Use the adjust stock use case when a change must never oversell.
+ */
+@RequiredArgsConstructor
+public class RecordStockMovementUseCase {
+    
+    private final StockMovementRepository stockMovementRepository;
+    private final StockWriteBehindBuffer writeBehindBuffer; // null when stock sets are written directly
+    
+    public RecordStockMovementUseCase(StockMovementRepository stockMovementRepository) {
+        this(stockMovementRepository, null);
+    }
+    
+    /**
+     * Appends a set or delta movement for a product
+     * @param productId the product ID
+     * @param type SET or DELTA
+     * @param quantity the new stock for SET, the amount to add for DELTA (negative to subtract)
+     * @return Mono of the stock level including this movement, or an InsufficientStockException
+     *         if a negative delta exceeds the current stock
+     */
+    public Mono<StockLevel> record(Long productId, StockMovementType type, Integer quantity) {
+        return validateInput(productId, type, quantity)
+                .then(Mono.defer(() -> settlePending(List.of(productId))))
+                .then(Mono.defer(() -> currentStock(productId)))
+                .flatMap(level -> {
+                    if (type == StockMovementType.DELTA && level.getStock() + quantity < 0) {
+                        return Mono.error(new InsufficientStockException(productId, quantity));
+                    }
+                    StockMovement movement = StockMovement.builder()
+                            .productId(productId)
+                            .type(type)
+                            .quantity(quantity)
+                            .build();
+                    return stockMovementRepository.append(movement)
+                            .thenReturn(after(level, movement));
+                })
+                .onErrorMap(this::mapError);
+    }
+    
+    /**
+     * Moves stock between two products by appending both legs in a single statement
+     * @param fromProductId the product giving the stock
+     * @param toProductId the product receiving the stock
+     * @param quantity the amount moved, positive
+     * @return Flux of the stock levels of the source and then the destination including the transfer
+     */
+    public Flux<StockLevel> transfer(Long fromProductId, Long toProductId, Integer quantity) {
+        return validateTransfer(fromProductId, toProductId, quantity)
+                .then(Mono.defer(() -> settlePending(List.of(fromProductId, toProductId))))
+                .then(Mono.defer(() -> Mono.zip(currentStock(fromProductId), currentStock(toProductId))))
+                .flatMapMany(levels -> {
+                    if (levels.getT1().getStock() < quantity) {
+                        return Flux.error(new InsufficientStockException(fromProductId, -quantity));
+                    }
+                    StockMovement out = StockMovement.builder()
+                            .productId(fromProductId)
+                            .type(StockMovementType.TRANSFER)
+                            .quantity(-quantity)
+                            .counterpartProductId(toProductId)
+                            .build();
+                    StockMovement in = StockMovement.builder()
+                            .productId(toProductId)
+                            .type(StockMovementType.TRANSFER)
+                            .quantity(quantity)
+                            .counterpartProductId(fromProductId)
+                            .build();
+                    return stockMovementRepository.appendAll(List.of(out, in))
+                            .thenMany(Flux.just(after(levels.getT1(), out), after(levels.getT2(), in)));
+                })
+                .onErrorMap(this::mapError);
+    }
+    
+    /**
+     * Write buffered sets of the products first, so they are not folded on top of the movement
+     */
+    private Mono<Void> settlePending(List<Long> productIds) {
+        return writeBehindBuffer != null ? writeBehindBuffer.settle(productIds) : Mono.empty();
+    }
+    
+    private Mono<StockLevel> currentStock(Long productId) {
+        return stockMovementRepository.findCurrentStock(productId)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)));
+    }
+    
+    /**
+     * Stock level as seen by this append; movements appended concurrently by others are not included
+     */
+    private static StockLevel after(StockLevel level, StockMovement movement) {
+        return StockLevel.builder()
+                .productId(level.getProductId())
+                .stock(Math.max(movement.applyTo(level.getStock()), 0))
+                .snapshotStock(level.getSnapshotStock())
+                .pendingMovements(level.getPendingMovements() + 1)
+                .build();
+    }
+    
+    private Mono<Void> validateInput(Long productId, StockMovementType type, Integer quantity) {
+        return Mono.fromRunnable(() -> {
+            if (productId == null) {
+                throw new BusinessValidationException("Product ID cannot be null");
+            }
+            if (type == null) {
+                throw new BusinessValidationException("Movement type cannot be null");
+            }
+            if (type == StockMovementType.TRANSFER) {
+                throw new BusinessValidationException("Transfers must name both products");
+            }
+            if (quantity == null) {
+                throw new BusinessValidationException("Movement quantity cannot be null");
+            }
+            if (type == StockMovementType.SET && quantity < 0) {
+                throw new BusinessValidationException("Stock cannot be negative");
+            }
+        });
+    }
+    
+    private Mono<Void> validateTransfer(Long fromProductId, Long toProductId, Integer quantity) {
+        return Mono.fromRunnable(() -> {
+            if (fromProductId == null || toProductId == null) {
+                throw new BusinessValidationException("Source and destination product IDs cannot be null");
+            }
+            if (fromProductId.equals(toProductId)) {
+                throw new BusinessValidationException("Source and destination products must be different");
+            }
+            if (quantity == null || quantity < 1) {
+                throw new BusinessValidationException("Transfer quantity must be positive");
+            }
+        });
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException
+                || error instanceof EntityNotFoundException
+                || error instanceof InsufficientStockException) {
+            return error;
+        }
+        return new BusinessValidationException("Error recording stock movement: " + error.getMessage(), error);
+    }
+}
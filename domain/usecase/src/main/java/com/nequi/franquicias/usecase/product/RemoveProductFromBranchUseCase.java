@@ -3,6 +3,7 @@ package com.nequi.franquicias.usecase.product;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
@@ -13,6 +14,7 @@ import reactor.core.publisher.Mono;
 public class RemoveProductFromBranchUseCase {
     
     private final ProductRepository productRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
      * Removes a product from a branch
@@ -25,6 +27,7 @@ public class RemoveProductFromBranchUseCase {
                 .filter(exists -> exists)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)))
                 .then(productRepository.deleteById(productId))
+                .then(Mono.fromRunnable(() -> catalogSnapshot.productRemoved(productId)))
                 .onErrorMap(this::mapError);
     }
     
@@ -41,6 +44,7 @@ public class RemoveProductFromBranchUseCase {
                 .switchIfEmpty(Mono.error(new EntityNotFoundException(
                     String.format("Product with ID %d not found in branch %d", productId, branchId))))
                 .then(productRepository.deleteById(productId))
+                .then(Mono.fromRunnable(() -> catalogSnapshot.productRemoved(productId)))
                 .onErrorMap(this::mapError);
     }
     
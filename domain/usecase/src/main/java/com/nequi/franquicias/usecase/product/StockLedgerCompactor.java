@@ -0,0 +1,107 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background folding of the stock ledger into the product snapshots
+ * Every interval it compacts batches of settled movements until a batch comes back short,
+ * so a backlog is worked off in one tick instead of one batch per tick.
+ * Only one instance folds at a time; the others wait on the cursor lock and then find nothing to do.
+ */
+@Slf4j
+public class StockLedgerCompactor {
+    
+    private final StockMovementRepository stockMovementRepository;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration settleDelay;
+    private final LongAdder folded = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastRunNanos = new AtomicLong();
+    private volatile Disposable ticker;
+    
+    /**
+     * @param stockMovementRepository repository holding the ledger
+     * @param interval time between compaction runs
+     * @param batchSize maximum number of movements folded per transaction
+     * @param settleDelay minimum age of a movement before it is folded
+     */
+    public StockLedgerCompactor(StockMovementRepository stockMovementRepository, Duration interval,
+                                int batchSize, Duration settleDelay) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.settleDelay = settleDelay;
+    }
+    
+    /**
+     * Start the periodic compaction
+     */
+    public synchronized void start() {
+        if (ticker == null || ticker.isDisposed()) {
+            ticker = Flux.interval(interval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> compact(), 1)
+                    .subscribe();
+            log.info("Stock ledger compaction started: every {}, {} movements per batch", interval, batchSize);
+        }
+    }
+    
+    /**
+     * Stop the periodic compaction; movements left pending are folded by the next instance to run
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        log.info("Stock ledger compaction stopped: {} movements folded", folded.sum());
+    }
+    
+    /**
+     * Fold settled movements in batches until none are left
+     * Failures are logged and counted, the next tick retries from the same cursor
+     * @return Mono with the number of movements folded by this run
+     */
+    public Mono<Long> compact() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return stockMovementRepository.compact(batchSize, settleDelay)
+                    .expand(count -> count == batchSize
+                            ? stockMovementRepository.compact(batchSize, settleDelay)
+                            : Mono.empty())
+                    .reduce(0L, (total, count) -> total + count)
+                    .doOnNext(count -> {
+                        folded.add(count);
+                        lastRunNanos.set(System.nanoTime() - start);
+                        if (count > 0) {
+                            log.debug("Stock ledger compaction folded {} movements", count);
+                        }
+                    })
+                    .onErrorResume(error -> {
+                        failures.increment();
+                        log.error("Stock ledger compaction failed", error);
+                        return Mono.just(0L);
+                    });
+        });
+    }
+    
+    public long getFoldedCount() {
+        return folded.sum();
+    }
+    
+    public long getFailureCount() {
+        return failures.sum();
+    }
+    
+    public double getLastRunSeconds() {
+        return lastRunNanos.get() / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,276 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer coalescing absolute stock sets per product
+ * The last value submitted for a product wins; pending values are written as one batched UPDATE
+ * every flush interval or as soon as max entries products are pending.
+ * Callers are answered once the value that superseded theirs has been written, so an answered set is durable.
+ * All callers coalesced into one write share a single read of the product afterwards.
+ * Writes of a product reach the database in submission order: a product has at most one pending value, and
+ * its next write waits for the previous one. Direct writes to a product (conditional sets, deltas, batches,
+ * ledger movements) must {@link #settle} it first, so an older buffered value never lands on top of them.
+ */
+@Slf4j
+public class StockWriteBehindBuffer {
+    
+    private final ProductRepository productRepository;
+    private final Duration flushInterval;
+    private final int maxEntries;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    // Write of each product on its way to the database; only replaced while holding the product's pending bin
+    private final Map<Long, CompletableFuture<Void>> writing = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private volatile Disposable ticker;
+    
+    /**
+     * @param productRepository repository used for the batched writes
+     * @param flushInterval maximum time a value waits before being written
+     * @param maxEntries number of pending products that triggers an early flush
+     */
+    public StockWriteBehindBuffer(ProductRepository productRepository, Duration flushInterval, int maxEntries) {
+        this.productRepository = productRepository;
+        this.flushInterval = flushInterval;
+        this.maxEntries = maxEntries;
+    }
+    
+    /**
+     * Queue an absolute stock value for a product
+     * A value with another branch check than the one pending for the product is not merged with it:
+     * the pending value is written first, since at most one of the checks can hold.
+     * @param productId the product ID
+     * @param branchId the branch the product must belong to, or null for no branch check
+     * @param stock the new stock value
+     * @return Mono of the product read back after the write, or empty if the product was not found
+     */
+    public Mono<Product> submit(Long productId, Long branchId, Integer stock) {
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> outcome = Sinks.one();
+            Pending entry = pending.compute(productId, (id, current) -> {
+                if (current != null && !Objects.equals(current.branchId, branchId)) {
+                    return current;
+                }
+                Pending next = current != null ? current : new Pending(branchId,
+                        Mono.defer(() -> productRepository.findById(id)).cache());
+                next.stock = stock;
+                next.waiters.add(outcome);
+                return next;
+            });
+            if (!Objects.equals(entry.branchId, branchId)) {
+                return settle(productId).then(submit(productId, branchId, stock));
+            }
+            submitted.increment();
+            if (pending.size() >= maxEntries) {
+                flush().subscribe();
+            }
+            return outcome.asMono()
+                    .filter(updated -> updated)
+                    .flatMap(updated -> entry.readBack);
+        });
+    }
+    
+    /**
+     * Write the pending value of a product now and wait until no write of it is on its way
+     * @param productId the product ID
+     * @return Mono completing once earlier sets of the product are in the database
+     */
+    public Mono<Void> settle(Long productId) {
+        return settle(List.of(productId));
+    }
+    
+    /**
+     * Write the pending values of the products now and wait until no write of them is on its way
+     * The write runs detached, so a caller that cancels does not leave other callers of the value unanswered.
+     * @param productIds the product IDs
+     * @return Mono completing once earlier sets of the products are in the database
+     */
+    public Mono<Void> settle(Collection<Long> productIds) {
+        return Mono.defer(() -> {
+            Batch batch = take(productIds);
+            List<Mono<Void>> writes = new ArrayList<>();
+            for (Long productId : productIds) {
+                CompletableFuture<Void> write = writing.get(productId);
+                if (write != null) {
+                    writes.add(Mono.fromFuture(write, true));
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch).subscribe();
+            }
+            return Mono.when(writes);
+        });
+    }
+    
+    /**
+     * Start the periodic flush
+     */
+    public synchronized void start() {
+        if (ticker == null || ticker.isDisposed()) {
+            ticker = Flux.interval(flushInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> flush(), 1)
+                    .subscribe();
+            log.info("Stock write-behind started: flush every {} or {} products", flushInterval, maxEntries);
+        }
+    }
+    
+    /**
+     * Stop the periodic flush and write everything still pending
+     * @param timeout maximum time to wait for the pending values to be written
+     */
+    public synchronized void stop(Duration timeout) {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        Mono.defer(() -> flush().then(Mono.fromSupplier(() -> pending.isEmpty() && writing.isEmpty())))
+                .filter(drained -> drained)
+                .repeatWhenEmpty(Integer.MAX_VALUE, repeat -> repeat.delayElements(Duration.ofMillis(10)))
+                .timeout(timeout)
+                .doOnError(error -> log.error("Stock write-behind stopped with {} products not written", pending.size()))
+                .onErrorResume(error -> Mono.empty())
+                .block();
+        log.info("Stock write-behind stopped: {} sets coalesced into {} writes", submitted.sum(), written.sum());
+    }
+    
+    /**
+     * Write all pending values now; does nothing if a flush is already running
+     * @return Mono completing when this flush is done
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            if (!flushing.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            // Unscoped sets first, so each kind of UPDATE is bound as one contiguous batch
+            List<Long> productIds = new ArrayList<>(pending.keySet());
+            productIds.sort(Comparator.comparing(productId -> {
+                Pending entry = pending.get(productId);
+                return entry != null && entry.branchId != null;
+            }));
+            Batch batch = take(productIds);
+            if (batch.isEmpty()) {
+                flushing.set(false);
+                return Mono.empty();
+            }
+            return write(batch).doFinally(signal -> flushing.set(false));
+        });
+    }
+    
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+    
+    public long getWrittenCount() {
+        return written.sum();
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Remove the pending values of the products, registering the batch as their latest write
+     */
+    private Batch take(Collection<Long> productIds) {
+        Batch batch = new Batch();
+        for (Long productId : productIds) {
+            pending.computeIfPresent(productId, (id, entry) -> {
+                batch.add(id, entry, writing.put(id, batch.done));
+                return null;
+            });
+        }
+        return batch;
+    }
+    
+    private Mono<Void> write(Batch batch) {
+        List<Product> products = new ArrayList<>(batch.productIds.size());
+        for (int i = 0; i < batch.productIds.size(); i++) {
+            products.add(Product.builder()
+                    .id(batch.productIds.get(i))
+                    .branchId(batch.entries.get(i).branchId)
+                    .stock(batch.entries.get(i).stock)
+                    .build());
+        }
+        List<Mono<Void>> previous = batch.previous.stream()
+                .map(write -> Mono.fromFuture(write, true))
+                .toList();
+        return Mono.when(previous)
+                .then(Mono.defer(() -> productRepository.updateStockBatch(products).collectList()))
+                .doOnNext(results -> {
+                    written.add(products.size());
+                    for (int i = 0; i < batch.entries.size(); i++) {
+                        boolean updated = i < results.size() && results.get(i);
+                        batch.entries.get(i).waiters.forEach(waiter -> waiter.tryEmitValue(updated));
+                    }
+                })
+                .doOnError(error -> {
+                    log.error("Stock write-behind flush of {} products failed", products.size(), error);
+                    batch.entries.forEach(entry -> entry.waiters.forEach(waiter -> waiter.tryEmitError(error)));
+                })
+                .onErrorResume(error -> Mono.empty())
+                .then()
+                .doFinally(signal -> {
+                    batch.productIds.forEach(productId -> writing.remove(productId, batch.done));
+                    batch.done.complete(null);
+                });
+    }
+    
+    /**
+     * Latest value for one product and everyone waiting for it; only mutated inside ConcurrentHashMap.compute
+     */
+    private static final class Pending {
+        private final Long branchId;
+        private volatile Integer stock;
+        private final List<Sinks.One<Boolean>> waiters = new ArrayList<>(1);
+        // Product read after the write, subscribed by the first waiter answered and replayed to the others
+        private final Mono<Product> readBack;
+        
+        private Pending(Long branchId, Mono<Product> readBack) {
+            this.branchId = branchId;
+            this.readBack = readBack;
+        }
+    }
+    
+    /**
+     * Values taken for one write, and the earlier writes of the same products it has to wait for
+     */
+    private static final class Batch {
+        private final List<Long> productIds = new ArrayList<>();
+        private final List<Pending> entries = new ArrayList<>();
+        private final List<CompletableFuture<Void>> previous = new ArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        
+        private void add(Long productId, Pending entry, CompletableFuture<Void> previousWrite) {
+            productIds.add(productId);
+            entries.add(entry);
+            if (previousWrite != null) {
+                previous.add(previousWrite);
+            }
+        }
+        
+        private boolean isEmpty() {
+            return productIds.isEmpty();
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.nequi.franquicias.usecase.product;
 import com.nequi.franquicias.model.Product;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
@@ -15,19 +17,30 @@ import reactor.core.publisher.Mono;
 public class UpdateProductNameUseCase {
     
     private final ProductRepository productRepository;
+    private final CatalogSnapshotCache catalogSnapshot;
     
     /**
-     * Updates product name
+     * Updates product name with a single statement, the product is not read first
      * @param productId the product ID
      * @param newName the new name
      * @return Mono of updated product
      */
     public Mono<Product> execute(Long productId, String newName) {
+        return execute(productId, newName, null);
+    }
+    
+    /**
+     * Updates product name only if the product is still at the expected version
+     * @param productId the product ID
+     * @param newName the new name
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of updated product, or a VersionConflictException if the version changed
+     */
+    public Mono<Product> execute(Long productId, String newName, Long expectedVersion) {
         return validateInput(productId, newName)
-                .then(productRepository.findById(productId))
+                .then(Mono.defer(() -> productRepository.updateName(productId, newName.trim(), expectedVersion)))
+                .doOnNext(catalogSnapshot::productChanged)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)))
-                .map(product -> product.updateName(newName))
-                .flatMap(productRepository::update)
                 .onErrorMap(this::mapError);
     }
     
@@ -48,7 +61,9 @@ public class UpdateProductNameUseCase {
     }
     
     private Throwable mapError(Throwable error) {
-        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+        if (error instanceof BusinessValidationException
+                || error instanceof EntityNotFoundException
+                || error instanceof VersionConflictException) {
             return error;
         }
         return new BusinessValidationException("Error updating product name: " + error.getMessage(), error);
@@ -0,0 +1,147 @@
+package com.nequi.franquicias.usecase.product;
+
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Use case for updating the stock of many products of a branch in one request
+ * All updates run in a single transaction using batched statements
+ * Sets of these products still waiting in the write-behind buffer are written first
+ */
+@RequiredArgsConstructor
+public class UpdateProductStockBatchUseCase {
+    
+    public static final int MAX_BATCH_SIZE = 10_000;
+    
+    private final ProductRepository productRepository;
+    private final BranchRepository branchRepository;
+    private final StockWriteBehindBuffer writeBehindBuffer; // null when stock sets are written directly
+    private final CatalogSnapshotCache catalogSnapshot;
+    
+    public UpdateProductStockBatchUseCase(ProductRepository productRepository,
+                                          BranchRepository branchRepository,
+                                          CatalogSnapshotCache catalogSnapshot) {
+        this(productRepository, branchRepository, null, catalogSnapshot);
+    }
+    
+    /**
+     * Updates the stock of the given products of a branch
+     * Products that do not exist or belong to another branch are reported as not updated
+     * @param branchId the branch ID
+     * @param items products holding ID and new stock
+     * @return Flux of StockUpdateResult, one per item in input order
+     */
+    public Flux<StockUpdateResult> execute(Long branchId, List<Product> items) {
+        return validateInput(branchId, items)
+                .then(Mono.defer(() -> branchRepository.existsById(branchId)))
+                .filter(exists -> exists)
+                .switchIfEmpty(Mono.error(new EntityNotFoundException("Branch", branchId)))
+                .then(Mono.defer(() -> writeBehindBuffer != null
+                        ? writeBehindBuffer.settle(items.stream().map(Product::getId).toList())
+                        : Mono.<Void>empty()))
+                .thenMany(Flux.defer(() -> productRepository.updateStockBatch(items.stream()
+                        .map(item -> Product.builder()
+                                .id(item.getId())
+                                .stock(item.getStock())
+                                .branchId(branchId)
+                                .build())
+                        .toList())))
+                .index()
+                .map(indexed -> {
+                    Product item = items.get(indexed.getT1().intValue());
+                    return StockUpdateResult.builder()
+                            .productId(item.getId())
+                            .stock(item.getStock())
+                            .updated(indexed.getT2())
+                            .build();
+                })
+                .transform(results -> patchSnapshot(branchId, results))
+                .onErrorMap(this::mapError);
+    }
+    
+    /**
+     * Patch the catalog snapshot once the whole batch is written, copying the branch only once
+     */
+    private Flux<StockUpdateResult> patchSnapshot(Long branchId, Flux<StockUpdateResult> results) {
+        return Flux.defer(() -> {
+            List<Product> updated = new ArrayList<>();
+            return results
+                    .doOnNext(result -> {
+                        if (result.isUpdated()) {
+                            updated.add(Product.builder()
+                                    .id(result.getProductId())
+                                    .stock(result.getStock())
+                                    .branchId(branchId)
+                                    .build());
+                        }
+                    })
+                    .doOnComplete(() -> catalogSnapshot.productsChanged(updated));
+        });
+    }
+    
+    private Mono<Void> validateInput(Long branchId, List<Product> items) {
+        return Mono.fromRunnable(() -> {
+            if (branchId == null) {
+                throw new BusinessValidationException("Branch ID cannot be null");
+            }
+            if (items == null || items.isEmpty()) {
+                throw new BusinessValidationException("At least one stock update is required");
+            }
+            if (items.size() > MAX_BATCH_SIZE) {
+                throw new BusinessValidationException("Cannot update more than " + MAX_BATCH_SIZE + " products at once");
+            }
+            
+            Set<Long> seen = new HashSet<>(items.size() * 2);
+            for (Product item : items) {
+                if (item == null || item.getId() == null) {
+                    throw new BusinessValidationException("Product ID cannot be null");
+                }
+                if (item.getStock() == null) {
+                    throw new BusinessValidationException("New stock value cannot be null");
+                }
+                if (item.getStock() < 0) {
+                    throw new BusinessValidationException("Stock cannot be negative");
+                }
+                if (!seen.add(item.getId())) {
+                    throw new BusinessValidationException("Product ID " + item.getId() + " appears more than once");
+                }
+            }
+        });
+    }
+    
+    private Throwable mapError(Throwable error) {
+        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+            return error;
+        }
+        return new BusinessValidationException("Error updating product stock batch: " + error.getMessage(), error);
+    }
+    
+    /**
+     * Outcome of a single item of the batch
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StockUpdateResult {
+        private Long productId;
+        private Integer stock;
+        private boolean updated; // false if the product does not exist in the branch
+    }
+}
@@ -3,52 +3,93 @@ package com.nequi.franquicias.usecase.product;
 import com.nequi.franquicias.model.Product;
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import com.nequi.franquicias.usecase.catalog.CatalogSnapshotCache;
 import lombok.RequiredArgsConstructor;
 import reactor.core.publisher.Mono;
 
 /**
  * Use case for updating product stock
+ * With a write-behind buffer, sets are coalesced per product and written in batches
  */
 @RequiredArgsConstructor
 public class UpdateProductStockUseCase {
     
     private final ProductRepository productRepository;
+    private final StockWriteBehindBuffer writeBehindBuffer; // null when writes go straight to the repository
+    private final CatalogSnapshotCache catalogSnapshot;
+    
+    public UpdateProductStockUseCase(ProductRepository productRepository) {
+        this(productRepository, null, CatalogSnapshotCache.disabled());
+    }
     
     /**
-     * Updates product stock
+     * Updates product stock with a single statement, the product is not read first
      * @param productId the product ID
      * @param newStock the new stock value
      * @return Mono of updated product
      */
     public Mono<Product> execute(Long productId, Integer newStock) {
+        return execute(productId, newStock, null);
+    }
+    
+    /**
+     * Updates product stock only if the product is still at the expected version
+     * Conditional sets bypass the write-behind buffer, since coalescing would hide the conflict; the
+     * product's buffered set is written first, so it cannot land on top of the conditional one
+     * @param productId the product ID
+     * @param newStock the new stock value
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of updated product, or a VersionConflictException if the version changed
+     */
+    public Mono<Product> execute(Long productId, Integer newStock, Long expectedVersion) {
         return validateInput(productId, newStock)
-                .then(productRepository.findById(productId))
+                .then(Mono.defer(() -> writeBehindBuffer != null && expectedVersion == null
+                        ? writeBehindBuffer.submit(productId, null, newStock)
+                        : settlePending(productId)
+                                .then(productRepository.updateStock(productId, newStock, expectedVersion))))
+                .doOnNext(catalogSnapshot::productChanged)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException("Product", productId)))
-                .map(product -> product.updateStock(newStock))
-                .flatMap(productRepository::update)
                 .onErrorMap(this::mapError);
     }
     
     /**
      * Updates product stock with branch validation
+     * The branch check is part of the UPDATE, so a product of another branch is reported as not found
      * @param productId the product ID
      * @param branchId the branch ID for validation
      * @param newStock the new stock value
      * @return Mono of updated product
      */
     public Mono<Product> execute(Long productId, Long branchId, Integer newStock) {
+        return execute(productId, branchId, newStock, null);
+    }
+    
+    /**
+     * Updates product stock with branch validation, only if the product is still at the expected version
+     * @param productId the product ID
+     * @param branchId the branch ID for validation
+     * @param newStock the new stock value
+     * @param expectedVersion version the product must still have, or null to update unconditionally
+     * @return Mono of updated product, or a VersionConflictException if the version changed
+     */
+    public Mono<Product> execute(Long productId, Long branchId, Integer newStock, Long expectedVersion) {
         return validateInput(productId, branchId, newStock)
-                .then(productRepository.existsByIdAndBranchId(productId, branchId))
-                .filter(exists -> exists)
+                .then(Mono.defer(() -> writeBehindBuffer != null && expectedVersion == null
+                        ? writeBehindBuffer.submit(productId, branchId, newStock)
+                        : settlePending(productId)
+                                .then(productRepository.updateStockInBranch(productId, branchId, newStock, expectedVersion))))
+                .doOnNext(catalogSnapshot::productChanged)
                 .switchIfEmpty(Mono.error(new EntityNotFoundException(
                     String.format("Product with ID %d not found in branch %d", productId, branchId))))
-                .then(productRepository.findById(productId))
-                .map(product -> product.updateStock(newStock))
-                .flatMap(productRepository::update)
                 .onErrorMap(this::mapError);
     }
     
+    private Mono<Void> settlePending(Long productId) {
+        return writeBehindBuffer != null ? writeBehindBuffer.settle(productId) : Mono.empty();
+    }
+    
     private Mono<Void> validateInput(Long productId, Integer newStock) {
         return Mono.fromRunnable(() -> {
             if (productId == null) {
@@ -81,7 +122,9 @@ public class UpdateProductStockUseCase {
     }
     
     private Throwable mapError(Throwable error) {
-        if (error instanceof BusinessValidationException || error instanceof EntityNotFoundException) {
+        if (error instanceof BusinessValidationException
+                || error instanceof EntityNotFoundException
+                || error instanceof VersionConflictException) {
             return error;
         }
         return new BusinessValidationException("Error updating product stock: " + error.getMessage(), error);
@@ -0,0 +1,130 @@
+package com.nequi.franquicias.memory.adapters;
+
+import com.nequi.franquicias.memory.mappers.CatalogRecordMapper;
+import com.nequi.franquicias.memory.store.BranchRecord;
+import com.nequi.franquicias.memory.store.InMemoryCatalog;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory implementation of BranchRepository
+ * Enforces the same unique name per franchise and franchise existence as the database constraints
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryBranchRepository implements BranchRepository {
+    
+    private final InMemoryCatalog catalog;
+    
+    @Override
+    public Mono<Branch> save(Branch branch) {
+        if (branch.getId() != null) {
+            return update(branch);
+        }
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            requireFranchise(branch.getFranchiseId());
+            if (catalog.branchIdByName(branch.getFranchiseId(), branch.getName()) != InMemoryCatalog.NO_ID) {
+                throw duplicate(branch.getName(), branch.getFranchiseId());
+            }
+            return CatalogRecordMapper.toDomain(catalog.insertBranch(branch.getName(), branch.getFranchiseId()));
+        }));
+    }
+    
+    @Override
+    public Mono<Branch> upsert(Branch branch) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            requireFranchise(branch.getFranchiseId());
+            long existingId = catalog.branchIdByName(branch.getFranchiseId(), branch.getName());
+            BranchRecord upserted = existingId != InMemoryCatalog.NO_ID
+                    ? catalog.branch(existingId)
+                    : catalog.insertBranch(branch.getName(), branch.getFranchiseId());
+            return CatalogRecordMapper.toDomain(upserted);
+        }));
+    }
+    
+    @Override
+    public Mono<Branch> findById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> CatalogRecordMapper.toDomain(catalog.branch(id))));
+    }
+    
+    @Override
+    public Flux<Branch> findByFranchiseId(Long franchiseId) {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(() -> {
+            List<BranchRecord> branches = new ArrayList<>();
+            for (LongIterator branchIds = catalog.branchIdsOf(franchiseId).iterator(); branchIds.hasNext(); ) {
+                branches.add(catalog.branch(branchIds.nextLong()));
+            }
+            return branches;
+        }))).map(CatalogRecordMapper::toDomain);
+    }
+    
+    @Override
+    public Flux<Branch> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(catalog::allBranches)))
+                .map(CatalogRecordMapper::toDomain);
+    }
+    
+    @Override
+    public Mono<Branch> update(Branch branch) {
+        return updateName(branch.getId(), branch.getName())
+                .map(updated -> branch);
+    }
+    
+    @Override
+    public Mono<Branch> updateName(Long branchId, String name) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            BranchRecord current = catalog.branch(branchId);
+            if (current == null) {
+                return null;
+            }
+            long owner = catalog.branchIdByName(current.franchiseId(), name);
+            if (owner != InMemoryCatalog.NO_ID && owner != branchId) {
+                throw duplicate(name, current.franchiseId());
+            }
+            return CatalogRecordMapper.toDomain(catalog.renameBranch(branchId, name));
+        }));
+    }
+    
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> catalog.write(() -> {
+            catalog.removeBranch(id);
+            return null;
+        }));
+    }
+    
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> catalog.branch(id) != null));
+    }
+    
+    @Override
+    public Mono<Boolean> existsByIdAndFranchiseId(Long branchId, Long franchiseId) {
+        return Mono.fromSupplier(() -> catalog.read(() -> {
+            BranchRecord branch = catalog.branch(branchId);
+            return branch != null && franchiseId != null && branch.franchiseId() == franchiseId;
+        }));
+    }
+    
+    private void requireFranchise(Long franchiseId) {
+        if (franchiseId == null || catalog.franchise(franchiseId) == null) {
+            throw new EntityNotFoundException("Franchise", franchiseId);
+        }
+    }
+    
+    private static DuplicateEntityException duplicate(String name, Long franchiseId) {
+        return new DuplicateEntityException("Branch", name, "franchise", franchiseId);
+    }
+}
@@ -0,0 +1,187 @@
+package com.nequi.franquicias.memory.adapters;
+
+import com.nequi.franquicias.memory.mappers.CatalogRecordMapper;
+import com.nequi.franquicias.memory.store.BranchRecord;
+import com.nequi.franquicias.memory.store.FranchiseRecord;
+import com.nequi.franquicias.memory.store.InMemoryCatalog;
+import com.nequi.franquicias.memory.store.ProductRecord;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.CatalogRow;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory implementation of FranchiseRepository
+ * Deleting a franchise cascades to its branches and products, like the database foreign keys
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryFranchiseRepository implements FranchiseRepository {
+    
+    private final InMemoryCatalog catalog;
+    
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        if (franchise.getId() != null) {
+            return update(franchise);
+        }
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            requireFreeName(franchise.getName(), InMemoryCatalog.NO_ID);
+            return CatalogRecordMapper.toDomain(catalog.insertFranchise(franchise.getName()));
+        }));
+    }
+    
+    @Override
+    public Mono<Franchise> findById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> CatalogRecordMapper.toDomain(catalog.franchise(id))));
+    }
+    
+    @Override
+    public Flux<Franchise> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(catalog::allFranchises)))
+                .map(CatalogRecordMapper::toDomain);
+    }
+    
+    @Override
+    public Flux<Franchise> findAllWithBranchesAndProducts() {
+        return findPageWithBranchesAndProducts(0L, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public Flux<Franchise> findPageWithBranchesAndProducts(Long afterId, int limit) {
+        // Each franchise is assembled under its own short read lock, so large catalogs do not block writers
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(() -> catalog.franchisesAfter(afterId, limit))))
+                .mapNotNull(franchise -> catalog.read(() -> tree(franchise.id())));
+    }
+    
+    @Override
+    public Flux<CatalogRow> streamCatalog() {
+        // Rows are built one franchise at a time, on demand
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(catalog::allFranchises)))
+                .concatMapIterable(franchise -> catalog.read(() -> catalogRows(franchise.id())));
+    }
+    
+    @Override
+    public Mono<String> findCatalogFingerprint() {
+        return Mono.fromSupplier(() -> catalog.read(catalog::fingerprint));
+    }
+    
+    /**
+     * The write counter is global, so any catalog change also changes the fingerprint of these franchises
+     */
+    @Override
+    public Mono<String> findCatalogFingerprint(List<Long> franchiseIds) {
+        return findCatalogFingerprint();
+    }
+    
+    @Override
+    public Mono<String> findTopStockFingerprint(List<Long> franchiseIds) {
+        return findCatalogFingerprint();
+    }
+    
+    @Override
+    public Mono<Franchise> update(Franchise franchise) {
+        return updateName(franchise.getId(), franchise.getName())
+                .map(updated -> franchise);
+    }
+    
+    @Override
+    public Mono<Franchise> updateName(Long franchiseId, String name) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            if (catalog.franchise(franchiseId) == null) {
+                return null;
+            }
+            requireFreeName(name, franchiseId);
+            return CatalogRecordMapper.toDomain(catalog.renameFranchise(franchiseId, name));
+        }));
+    }
+    
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> catalog.write(() -> {
+            catalog.removeFranchise(id);
+            return null;
+        }));
+    }
+    
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> catalog.franchise(id) != null));
+    }
+    
+    private void requireFreeName(String name, long franchiseId) {
+        long owner = catalog.franchiseIdByName(name);
+        if (owner != InMemoryCatalog.NO_ID && owner != franchiseId) {
+            throw new DuplicateEntityException(String.format("Franchise with name '%s' already exists", name));
+        }
+    }
+    
+    /**
+     * Franchise with its branches and products in ID order, null if it was deleted meanwhile
+     */
+    private Franchise tree(long franchiseId) {
+        Franchise franchise = CatalogRecordMapper.toDomain(catalog.franchise(franchiseId));
+        if (franchise == null) {
+            return null;
+        }
+        for (LongIterator branchIds = catalog.branchIdsOf(franchiseId).iterator(); branchIds.hasNext(); ) {
+            Branch branch = CatalogRecordMapper.toDomain(catalog.branch(branchIds.nextLong()));
+            for (LongIterator productIds = catalog.productIdsOf(branch.getId()).iterator(); productIds.hasNext(); ) {
+                branch.getProducts().add(CatalogRecordMapper.toDomain(catalog.product(productIds.nextLong())));
+            }
+            franchise.getBranches().add(branch);
+        }
+        return franchise;
+    }
+    
+    /**
+     * Catalog rows of one franchise; a franchise without branches or a branch without products
+     * yields a single row with the missing columns empty, like the LEFT JOINs of the SQL export
+     */
+    private List<CatalogRow> catalogRows(long franchiseId) {
+        FranchiseRecord franchise = catalog.franchise(franchiseId);
+        if (franchise == null) {
+            return List.of(); // Deleted since the franchise list was taken
+        }
+        List<CatalogRow> rows = new ArrayList<>();
+        LongSortedSet branchIds = catalog.branchIdsOf(franchiseId);
+        if (branchIds.isEmpty()) {
+            rows.add(row(franchise, null, null));
+        }
+        for (LongIterator branchIt = branchIds.iterator(); branchIt.hasNext(); ) {
+            BranchRecord branch = catalog.branch(branchIt.nextLong());
+            LongSortedSet productIds = catalog.productIdsOf(branch.id());
+            if (productIds.isEmpty()) {
+                rows.add(row(franchise, branch, null));
+            }
+            for (LongIterator productIt = productIds.iterator(); productIt.hasNext(); ) {
+                rows.add(row(franchise, branch, catalog.product(productIt.nextLong())));
+            }
+        }
+        return rows;
+    }
+    
+    private static CatalogRow row(FranchiseRecord franchise, BranchRecord branch, ProductRecord product) {
+        return CatalogRow.builder()
+                .franchiseId(franchise.id())
+                .franchiseName(franchise.name())
+                .branchId(branch != null ? branch.id() : null)
+                .branchName(branch != null ? branch.name() : null)
+                .productId(product != null ? product.id() : null)
+                .productName(product != null ? product.name() : null)
+                .stock(product != null ? product.stock() : null)
+                .build();
+    }
+}
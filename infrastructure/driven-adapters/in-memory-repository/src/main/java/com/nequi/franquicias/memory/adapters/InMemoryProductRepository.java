@@ -0,0 +1,283 @@
+package com.nequi.franquicias.memory.adapters;
+
+import com.nequi.franquicias.memory.mappers.CatalogRecordMapper;
+import com.nequi.franquicias.memory.store.BranchRecord;
+import com.nequi.franquicias.memory.store.InMemoryCatalog;
+import com.nequi.franquicias.memory.store.ProductRecord;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory implementation of ProductRepository
+ * Follows the contract of the R2DBC adapter: unique names per branch, versions bumped by every write,
+ * conditional writes on an expected version and stock that never goes negative.
+ * Every write runs under the catalog's write lock, so each one, batches included, is atomic.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryProductRepository implements ProductRepository {
+    
+    // Highest stock first, ties broken by lowest ID, as idx_products_branch_stock orders them
+    private static final Comparator<ProductRecord> TOP_STOCK_ORDER =
+            Comparator.comparingInt(ProductRecord::stock).reversed().thenComparingLong(ProductRecord::id);
+    
+    private final InMemoryCatalog catalog;
+    
+    @Override
+    public Mono<Product> save(Product product) {
+        if (product.getId() != null) {
+            return update(product);
+        }
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            requireBranch(product.getBranchId());
+            if (catalog.productIdByName(product.getBranchId(), product.getName()) != InMemoryCatalog.NO_ID) {
+                throw duplicate(product.getName(), product.getBranchId());
+            }
+            return CatalogRecordMapper.toDomain(
+                    catalog.insertProduct(product.getName(), product.getStock(), product.getBranchId()));
+        }));
+    }
+    
+    @Override
+    public Mono<Product> upsert(Product product) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            requireBranch(product.getBranchId());
+            long existingId = catalog.productIdByName(product.getBranchId(), product.getName());
+            ProductRecord upserted = existingId != InMemoryCatalog.NO_ID
+                    ? catalog.replaceProduct(catalog.product(existingId).withStock(product.getStock()))
+                    : catalog.insertProduct(product.getName(), product.getStock(), product.getBranchId());
+            return CatalogRecordMapper.toDomain(upserted);
+        }));
+    }
+    
+    @Override
+    public Mono<Long> insertAll(List<Product> products) {
+        // Like the R2DBC adapter: an unknown branch fails the whole batch, rows with a taken name are skipped
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            for (Product product : products) {
+                if (catalog.branch(product.getBranchId()) == null) {
+                    throw new EntityNotFoundException("Branch", product.getBranchId());
+                }
+            }
+            long inserted = 0;
+            for (Product product : products) {
+                if (catalog.productIdByName(product.getBranchId(), product.getName()) == InMemoryCatalog.NO_ID) {
+                    catalog.insertProduct(product.getName(), product.getStock(), product.getBranchId());
+                    inserted++;
+                }
+            }
+            return inserted;
+        }));
+    }
+    
+    @Override
+    public Mono<Product> findById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> CatalogRecordMapper.toDomain(catalog.product(id))));
+    }
+    
+    @Override
+    public Flux<Product> findByBranchId(Long branchId) {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(() -> productsOf(branchId))))
+                .map(CatalogRecordMapper::toDomain);
+    }
+    
+    @Override
+    public Mono<Product> findByBranchIdAndName(Long branchId, String name) {
+        return Mono.fromSupplier(() -> catalog.read(() -> {
+            long id = catalog.productIdByName(branchId, name);
+            return id != InMemoryCatalog.NO_ID ? CatalogRecordMapper.toDomain(catalog.product(id)) : null;
+        }));
+    }
+    
+    @Override
+    public Flux<Product> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(catalog::allProducts)))
+                .map(CatalogRecordMapper::toDomain);
+    }
+    
+    @Override
+    public Mono<Product> update(Product product) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            ProductRecord current = current(product.getId(), product.getVersion());
+            if (current == null) {
+                return null;
+            }
+            requireFreeName(current, product.getName());
+            ProductRecord updated = catalog.replaceProduct(current.withNameAndStock(product.getName(), product.getStock()));
+            return CatalogRecordMapper.toDomain(updated);
+        }));
+    }
+    
+    @Override
+    public Mono<Product> updateName(Long productId, String name, Long expectedVersion) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            ProductRecord current = current(productId, expectedVersion);
+            if (current == null) {
+                return null;
+            }
+            requireFreeName(current, name);
+            return CatalogRecordMapper.toDomain(catalog.replaceProduct(current.withName(name)));
+        }));
+    }
+    
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> catalog.write(() -> {
+            catalog.removeProduct(id);
+            return null;
+        }));
+    }
+    
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> catalog.read(() -> catalog.product(id) != null));
+    }
+    
+    @Override
+    public Mono<Boolean> existsByIdAndBranchId(Long productId, Long branchId) {
+        return Mono.fromSupplier(() -> catalog.read(() -> {
+            ProductRecord product = catalog.product(productId);
+            return product != null && branchId != null && product.branchId() == branchId;
+        }));
+    }
+    
+    @Override
+    public Mono<Product> findTopByBranchIdOrderByStockDesc(Long branchId) {
+        return Mono.fromSupplier(() -> catalog.read(() -> productsOf(branchId).stream()
+                .min(TOP_STOCK_ORDER)
+                .map(CatalogRecordMapper::toDomain)
+                .orElse(null)));
+    }
+    
+    @Override
+    public Flux<Branch> findTopStockProductsPerBranch(List<Long> franchiseIds, int limit) {
+        // Same shape as the SQL: branches ordered by franchise and ID, empty branches included
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(() -> {
+            LongSortedSet distinctFranchiseIds = new LongAVLTreeSet(franchiseIds);
+            List<Branch> branches = new ArrayList<>();
+            for (LongIterator franchiseIt = distinctFranchiseIds.iterator(); franchiseIt.hasNext(); ) {
+                for (LongIterator branchIt = catalog.branchIdsOf(franchiseIt.nextLong()).iterator(); branchIt.hasNext(); ) {
+                    BranchRecord record = catalog.branch(branchIt.nextLong());
+                    Branch branch = CatalogRecordMapper.toDomain(record);
+                    productsOf(record.id()).stream()
+                            .sorted(TOP_STOCK_ORDER)
+                            .limit(limit)
+                            .map(CatalogRecordMapper::toDomain)
+                            .forEach(branch.getProducts()::add);
+                    branches.add(branch);
+                }
+            }
+            return branches;
+        })));
+    }
+    
+    @Override
+    public Mono<Product> updateStock(Long productId, Integer newStock, Long expectedVersion) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            ProductRecord current = current(productId, expectedVersion);
+            if (current == null) {
+                return null;
+            }
+            return CatalogRecordMapper.toDomain(catalog.replaceProduct(current.withStock(newStock)));
+        }));
+    }
+    
+    @Override
+    public Mono<Product> updateStockInBranch(Long productId, Long branchId, Integer newStock, Long expectedVersion) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            ProductRecord found = catalog.product(productId);
+            if (found == null || found.branchId() != branchId) {
+                return null;
+            }
+            ProductRecord current = current(productId, expectedVersion);
+            return CatalogRecordMapper.toDomain(catalog.replaceProduct(current.withStock(newStock)));
+        }));
+    }
+    
+    @Override
+    public Flux<Boolean> updateStockBatch(List<Product> products) {
+        return Flux.defer(() -> Flux.fromIterable(catalog.write(() -> {
+            List<Boolean> results = new ArrayList<>(products.size());
+            for (Product product : products) {
+                ProductRecord current = catalog.product(product.getId());
+                boolean matches = current != null
+                        && (product.getBranchId() == null || current.branchId() == product.getBranchId());
+                if (matches) {
+                    catalog.replaceProduct(current.withStock(product.getStock()));
+                }
+                results.add(matches);
+            }
+            return results;
+        })));
+    }
+    
+    @Override
+    public Mono<Product> adjustStock(Long productId, Integer delta, Long expectedVersion) {
+        return Mono.fromSupplier(() -> catalog.write(() -> {
+            ProductRecord current = current(productId, expectedVersion);
+            if (current == null) {
+                return null;
+            }
+            if (current.stock() + delta < 0) {
+                throw new InsufficientStockException(productId, delta);
+            }
+            return CatalogRecordMapper.toDomain(catalog.replaceProduct(current.withStock(current.stock() + delta)));
+        }));
+    }
+    
+    /**
+     * The product a write applies to
+     * @return the product, or null if it does not exist
+     * @throws VersionConflictException if an expected version is given and the product holds another one
+     */
+    private ProductRecord current(Long productId, Long expectedVersion) {
+        ProductRecord product = catalog.product(productId);
+        if (product != null && expectedVersion != null && product.version() != expectedVersion) {
+            throw new VersionConflictException("Product", productId, expectedVersion);
+        }
+        return product;
+    }
+    
+    private List<ProductRecord> productsOf(long branchId) {
+        List<ProductRecord> products = new ArrayList<>();
+        for (LongIterator productIds = catalog.productIdsOf(branchId).iterator(); productIds.hasNext(); ) {
+            products.add(catalog.product(productIds.nextLong()));
+        }
+        return products;
+    }
+    
+    private void requireBranch(Long branchId) {
+        if (branchId == null || catalog.branch(branchId) == null) {
+            throw new EntityNotFoundException("Branch", branchId);
+        }
+    }
+    
+    private void requireFreeName(ProductRecord product, String name) {
+        long owner = catalog.productIdByName(product.branchId(), name);
+        if (owner != InMemoryCatalog.NO_ID && owner != product.id()) {
+            throw duplicate(name, product.branchId());
+        }
+    }
+    
+    private static DuplicateEntityException duplicate(String name, Long branchId) {
+        return new DuplicateEntityException("Product", name, "branch", branchId);
+    }
+}
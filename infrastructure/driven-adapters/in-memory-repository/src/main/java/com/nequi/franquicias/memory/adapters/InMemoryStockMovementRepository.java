@@ -0,0 +1,110 @@
+package com.nequi.franquicias.memory.adapters;
+
+import com.nequi.franquicias.memory.store.InMemoryCatalog;
+import com.nequi.franquicias.memory.store.ProductRecord;
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.StockMovement;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory implementation of StockMovementRepository
+ * There is no row lock to spread out here, so each movement is folded into its product as it is appended
+ * and nothing is ever left for compaction; the history is kept per product, also for deleted products.
+ * Movements are guarded by the catalog's lock, so an append and its effect on the product are atomic.
+ */
+@Repository
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class InMemoryStockMovementRepository implements StockMovementRepository {
+    
+    private final InMemoryCatalog catalog;
+    private final Long2ObjectMap<List<StockMovement>> movementsByProduct = new Long2ObjectOpenHashMap<>();
+    private long movementSequence;
+    
+    @Override
+    public Mono<StockMovement> append(StockMovement movement) {
+        return Mono.fromSupplier(() -> catalog.write(() -> store(movement)));
+    }
+    
+    @Override
+    public Mono<Void> appendAll(List<StockMovement> movements) {
+        return Mono.fromRunnable(() -> catalog.write(() -> {
+            movements.forEach(this::store);
+            return null;
+        }));
+    }
+    
+    @Override
+    public Flux<StockMovement> findByProductId(Long productId, Long afterId, int limit) {
+        return Flux.defer(() -> Flux.fromIterable(catalog.read(() -> {
+            List<StockMovement> page = new ArrayList<>(limit);
+            for (StockMovement movement : movementsByProduct.getOrDefault(productId.longValue(), List.of())) {
+                if (page.size() == limit) {
+                    break;
+                }
+                if (movement.getId() > afterId) {
+                    page.add(movement);
+                }
+            }
+            return page;
+        })));
+    }
+    
+    @Override
+    public Mono<StockLevel> findCurrentStock(Long productId) {
+        return Mono.fromSupplier(() -> catalog.read(() -> {
+            ProductRecord product = catalog.product(productId);
+            if (product == null) {
+                return null;
+            }
+            return StockLevel.builder()
+                    .productId(product.id())
+                    .stock(product.stock())
+                    .snapshotStock(product.stock())
+                    .pendingMovements(0)
+                    .build();
+        }));
+    }
+    
+    @Override
+    public Mono<Integer> compact(int maxMovements, Duration settleDelay) {
+        return Mono.just(0);
+    }
+    
+    /**
+     * Record the movement and apply it to its product, clamping at zero as compaction does
+     */
+    private StockMovement store(StockMovement movement) {
+        StockMovement stored = StockMovement.builder()
+                .id(++movementSequence)
+                .productId(movement.getProductId())
+                .type(movement.getType())
+                .quantity(movement.getQuantity())
+                .counterpartProductId(movement.getCounterpartProductId())
+                .createdAt(LocalDateTime.now())
+                .build();
+        List<StockMovement> history = movementsByProduct.get(stored.getProductId().longValue());
+        if (history == null) {
+            history = new ArrayList<>();
+            movementsByProduct.put(stored.getProductId().longValue(), history);
+        }
+        history.add(stored);
+        ProductRecord product = catalog.product(stored.getProductId());
+        if (product != null) {
+            catalog.replaceProduct(product.withStock(Math.max(stored.applyTo(product.stock()), 0)));
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nequi.franquicias.memory.mappers;
+
+import com.nequi.franquicias.memory.store.BranchRecord;
+import com.nequi.franquicias.memory.store.FranchiseRecord;
+import com.nequi.franquicias.memory.store.ProductRecord;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.Product;
+
+import java.util.ArrayList;
+
+/**
+ * Mapper from in-memory catalog records to domain models
+ * Domain models are mutable, so a fresh instance is built for every caller
+ */
+public class CatalogRecordMapper {
+    
+    public static Franchise toDomain(FranchiseRecord franchise) {
+        if (franchise == null) {
+            return null;
+        }
+        
+        return Franchise.builder()
+                .id(franchise.id())
+                .name(franchise.name())
+                .branches(new ArrayList<>())
+                .build();
+    }
+    
+    public static Branch toDomain(BranchRecord branch) {
+        if (branch == null) {
+            return null;
+        }
+        
+        return Branch.builder()
+                .id(branch.id())
+                .name(branch.name())
+                .franchiseId(branch.franchiseId())
+                .products(new ArrayList<>())
+                .build();
+    }
+    
+    public static Product toDomain(ProductRecord product) {
+        if (product == null) {
+            return null;
+        }
+        
+        return Product.builder()
+                .id(product.id())
+                .name(product.name())
+                .stock(product.stock())
+                .branchId(product.branchId())
+                .version(product.version())
+                .build();
+    }
+}
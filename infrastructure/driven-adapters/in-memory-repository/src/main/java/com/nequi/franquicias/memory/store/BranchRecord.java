@@ -0,0 +1,7 @@
+package com.nequi.franquicias.memory.store;
+
+/**
+ * Immutable branch row of the in-memory catalog
+ */
+public record BranchRecord(long id, String name, long franchiseId) {
+}
@@ -0,0 +1,7 @@
+package com.nequi.franquicias.memory.store;
+
+/**
+ * Immutable franchise row of the in-memory catalog
+ */
+public record FranchiseRecord(long id, String name) {
+}
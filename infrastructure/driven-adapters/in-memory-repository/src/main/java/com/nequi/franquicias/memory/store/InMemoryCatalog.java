@@ -0,0 +1,316 @@
+package com.nequi.franquicias.memory.store;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectSortedMap;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSets;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Process-local catalog of franchises, branches and products held in primitive-keyed maps
+ * Secondary indexes link franchise → branches and branch → products in ID order and enforce unique
+ * names within a parent. One read/write lock guards everything: each operation is a handful of map
+ * lookups, far cheaper than a database round trip, and cascades touch all three tables at once.
+ * Lookup and mutation methods must be called inside {@link #read} or {@link #write}.
+ */
+@Component
+@Profile("in-memory")
+public class InMemoryCatalog {
+    
+    /**
+     * Returned by the name lookups when no row has that name
+     */
+    public static final long NO_ID = 0L;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Long2ObjectSortedMap<FranchiseRecord> franchises = new Long2ObjectAVLTreeMap<>();
+    private final Long2ObjectMap<BranchRecord> branches = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<ProductRecord> products = new Long2ObjectOpenHashMap<>();
+    private final Object2LongMap<String> franchiseIdsByName = new Object2LongOpenHashMap<>();
+    private final Long2ObjectMap<Children> branchesByFranchise = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<Children> productsByBranch = new Long2ObjectOpenHashMap<>();
+    private long franchiseSequence;
+    private long branchSequence;
+    private long productSequence;
+    // Values of a previous process are never reused: the catalog restarts empty, its counter at zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long writes;
+    
+    public InMemoryCatalog() {
+        franchiseIdsByName.defaultReturnValue(NO_ID);
+    }
+    
+    /**
+     * Run a lookup under the shared lock
+     * @return whatever the action returns; it must copy anything it hands out of the lock
+     */
+    public <T> T read(Supplier<T> action) {
+        return locked(lock.readLock(), action);
+    }
+    
+    /**
+     * Run a lookup and mutation sequence atomically under the exclusive lock
+     */
+    public <T> T write(Supplier<T> action) {
+        return locked(lock.writeLock(), () -> {
+            writes++;
+            return action.get();
+        });
+    }
+    
+    /**
+     * Changes whenever the catalog may have changed: the number of write sections run so far
+     */
+    public String fingerprint() {
+        return epoch + "." + Long.toString(writes, 36);
+    }
+    
+    private static <T> T locked(Lock held, Supplier<T> action) {
+        held.lock();
+        try {
+            return action.get();
+        } finally {
+            held.unlock();
+        }
+    }
+    
+    public FranchiseRecord franchise(long id) {
+        return franchises.get(id);
+    }
+    
+    /**
+     * @param afterId exclusive lower bound
+     * @param limit maximum number of franchises
+     * @return franchises in ID order
+     */
+    public List<FranchiseRecord> franchisesAfter(long afterId, int limit) {
+        List<FranchiseRecord> page = new ArrayList<>(Math.min(limit, franchises.size()));
+        for (FranchiseRecord franchise : franchises.tailMap(afterId + 1).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(franchise);
+        }
+        return page;
+    }
+    
+    public List<FranchiseRecord> allFranchises() {
+        return new ArrayList<>(franchises.values());
+    }
+    
+    public long franchiseIdByName(String name) {
+        return franchiseIdsByName.getLong(nameKey(name));
+    }
+    
+    public FranchiseRecord insertFranchise(String name) {
+        FranchiseRecord franchise = new FranchiseRecord(++franchiseSequence, name);
+        franchises.put(franchise.id(), franchise);
+        franchiseIdsByName.put(nameKey(name), franchise.id());
+        return franchise;
+    }
+    
+    public FranchiseRecord renameFranchise(long id, String name) {
+        FranchiseRecord current = franchises.get(id);
+        FranchiseRecord renamed = new FranchiseRecord(id, name);
+        franchiseIdsByName.removeLong(nameKey(current.name()));
+        franchiseIdsByName.put(nameKey(name), id);
+        franchises.put(id, renamed);
+        return renamed;
+    }
+    
+    /**
+     * Remove a franchise with its branches and their products, like the ON DELETE CASCADE foreign keys
+     */
+    public void removeFranchise(long id) {
+        FranchiseRecord removed = franchises.remove(id);
+        if (removed == null) {
+            return;
+        }
+        franchiseIdsByName.removeLong(nameKey(removed.name()));
+        Children children = branchesByFranchise.remove(id);
+        if (children != null) {
+            for (LongIterator branchIds = children.ids.iterator(); branchIds.hasNext(); ) {
+                removeBranchRows(branchIds.nextLong());
+            }
+        }
+    }
+    
+    public BranchRecord branch(long id) {
+        return branches.get(id);
+    }
+    
+    /**
+     * @return branch IDs of the franchise in ascending order, a read-only view
+     */
+    public LongSortedSet branchIdsOf(long franchiseId) {
+        return idsOf(branchesByFranchise, franchiseId);
+    }
+    
+    public long branchIdByName(long franchiseId, String name) {
+        Children children = branchesByFranchise.get(franchiseId);
+        return children != null ? children.idsByName.getLong(nameKey(name)) : NO_ID;
+    }
+    
+    public List<BranchRecord> allBranches() {
+        return sortedById(branches.values(), BranchRecord::id);
+    }
+    
+    public BranchRecord insertBranch(String name, long franchiseId) {
+        BranchRecord branch = new BranchRecord(++branchSequence, name, franchiseId);
+        branches.put(branch.id(), branch);
+        branchesByFranchise.computeIfAbsent(franchiseId, key -> new Children()).add(branch.id(), name);
+        return branch;
+    }
+    
+    public BranchRecord renameBranch(long id, String name) {
+        BranchRecord current = branches.get(id);
+        BranchRecord renamed = new BranchRecord(id, name, current.franchiseId());
+        branchesByFranchise.get(current.franchiseId()).rename(id, current.name(), name);
+        branches.put(id, renamed);
+        return renamed;
+    }
+    
+    /**
+     * Remove a branch with its products
+     */
+    public void removeBranch(long id) {
+        BranchRecord branch = branches.get(id);
+        if (branch == null) {
+            return;
+        }
+        Children siblings = branchesByFranchise.get(branch.franchiseId());
+        siblings.remove(id, branch.name());
+        if (siblings.isEmpty()) {
+            branchesByFranchise.remove(branch.franchiseId());
+        }
+        removeBranchRows(id);
+    }
+    
+    private void removeBranchRows(long id) {
+        branches.remove(id);
+        Children children = productsByBranch.remove(id);
+        if (children != null) {
+            for (LongIterator productIds = children.ids.iterator(); productIds.hasNext(); ) {
+                products.remove(productIds.nextLong());
+            }
+        }
+    }
+    
+    public ProductRecord product(long id) {
+        return products.get(id);
+    }
+    
+    /**
+     * @return product IDs of the branch in ascending order, a read-only view
+     */
+    public LongSortedSet productIdsOf(long branchId) {
+        return idsOf(productsByBranch, branchId);
+    }
+    
+    public long productIdByName(long branchId, String name) {
+        Children children = productsByBranch.get(branchId);
+        return children != null ? children.idsByName.getLong(nameKey(name)) : NO_ID;
+    }
+    
+    public List<ProductRecord> allProducts() {
+        return sortedById(products.values(), ProductRecord::id);
+    }
+    
+    public ProductRecord insertProduct(String name, int stock, long branchId) {
+        ProductRecord product = new ProductRecord(++productSequence, name, stock, branchId, 0L);
+        products.put(product.id(), product);
+        productsByBranch.computeIfAbsent(branchId, key -> new Children()).add(product.id(), name);
+        return product;
+    }
+    
+    /**
+     * Store a changed version of an existing product, keeping the name index in step
+     */
+    public ProductRecord replaceProduct(ProductRecord updated) {
+        ProductRecord current = products.put(updated.id(), updated);
+        if (!current.name().equals(updated.name())) {
+            productsByBranch.get(updated.branchId()).rename(updated.id(), current.name(), updated.name());
+        }
+        return updated;
+    }
+    
+    public void removeProduct(long id) {
+        ProductRecord removed = products.remove(id);
+        if (removed == null) {
+            return;
+        }
+        Children siblings = productsByBranch.get(removed.branchId());
+        siblings.remove(id, removed.name());
+        if (siblings.isEmpty()) {
+            productsByBranch.remove(removed.branchId());
+        }
+    }
+    
+    /**
+     * Unique keys use a case-insensitive collation (utf8mb4_unicode_ci), so names are compared the same way
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    private static LongSortedSet idsOf(Long2ObjectMap<Children> index, long parentId) {
+        Children children = index.get(parentId);
+        return children != null ? LongSortedSets.unmodifiable(children.ids) : LongSortedSets.EMPTY_SET;
+    }
+    
+    private static <R> List<R> sortedById(Collection<R> rows, ToLongFunction<R> id) {
+        List<R> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(id));
+        return sorted;
+    }
+    
+    /**
+     * Children of one parent: IDs in ascending order and IDs by normalized name
+     */
+    private static final class Children {
+        
+        private final LongSortedSet ids = new LongAVLTreeSet();
+        private final Object2LongMap<String> idsByName = new Object2LongOpenHashMap<>();
+        
+        private Children() {
+            idsByName.defaultReturnValue(NO_ID);
+        }
+        
+        private void add(long id, String name) {
+            ids.add(id);
+            idsByName.put(nameKey(name), id);
+        }
+        
+        private void rename(long id, String oldName, String newName) {
+            idsByName.removeLong(nameKey(oldName));
+            idsByName.put(nameKey(newName), id);
+        }
+        
+        private void remove(long id, String name) {
+            ids.remove(id);
+            idsByName.removeLong(nameKey(name));
+        }
+        
+        private boolean isEmpty() {
+            return ids.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.nequi.franquicias.memory.store;
+
+/**
+ * Immutable product row of the in-memory catalog
+ * Every change produces a new record with the next version, as the database UPDATE statements do
+ */
+public record ProductRecord(long id, String name, int stock, long branchId, long version) {
+    
+    public ProductRecord withName(String newName) {
+        return new ProductRecord(id, newName, stock, branchId, version + 1);
+    }
+    
+    public ProductRecord withStock(int newStock) {
+        return new ProductRecord(id, name, newStock, branchId, version + 1);
+    }
+    
+    public ProductRecord withNameAndStock(String newName, int newStock) {
+        return new ProductRecord(id, newName, newStock, branchId, version + 1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.nequi.franquicias.memory.adapters;
+
+import com.nequi.franquicias.memory.store.InMemoryCatalog;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.model.gateways.CatalogGatewayContract;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+
+/**
+ * Gateway contract run against the in-memory adapters
+ * JUnit creates an instance per test, so every test starts from an empty catalog.
+ */
+class InMemoryGatewayContractTest extends CatalogGatewayContract {
+    
+    private final InMemoryCatalog catalog = new InMemoryCatalog();
+    private final FranchiseRepository franchiseRepository = new InMemoryFranchiseRepository(catalog);
+    private final BranchRepository branchRepository = new InMemoryBranchRepository(catalog);
+    private final ProductRepository productRepository = new InMemoryProductRepository(catalog);
+    
+    @Override
+    protected FranchiseRepository franchiseRepository() {
+        return franchiseRepository;
+    }
+    
+    @Override
+    protected BranchRepository branchRepository() {
+        return branchRepository;
+    }
+    
+    @Override
+    protected ProductRepository productRepository() {
+        return productRepository;
+    }
+}
@@ -0,0 +1,114 @@
+package com.nequi.franquicias.jpa.mappers;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Driver row served from an array, so benchmarks measure mapping without a database
+ * Columns are looked up by position or by name, like the MySQL driver does.
+ */
+final class InMemoryRow implements Row {
+    
+    private final Metadata metadata;
+    private final Object[] values;
+    
+    private InMemoryRow(Metadata metadata, Object[] values) {
+        this.metadata = metadata;
+        this.values = values;
+    }
+    
+    /**
+     * @param names column names, in select order
+     * @param types column Java types, in select order
+     * @return metadata creating rows with these columns
+     */
+    static Metadata columns(List<String> names, List<Class<?>> types) {
+        return new Metadata(names, types);
+    }
+    
+    @Override
+    public <T> T get(int index, Class<T> type) {
+        return type.cast(values[index]);
+    }
+    
+    @Override
+    public <T> T get(String name, Class<T> type) {
+        return get(metadata.indexOf(name), type);
+    }
+    
+    @Override
+    public RowMetadata getMetadata() {
+        return metadata;
+    }
+    
+    static final class Metadata implements RowMetadata {
+        
+        private final List<Column> columns = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        
+        private Metadata(List<String> names, List<Class<?>> types) {
+            for (int i = 0; i < names.size(); i++) {
+                columns.add(new Column(names.get(i), types.get(i)));
+                indexes.put(names.get(i), i);
+            }
+        }
+        
+        InMemoryRow row(Object... values) {
+            return new InMemoryRow(this, values);
+        }
+        
+        private int indexOf(String name) {
+            Integer index = indexes.get(name);
+            if (index == null) {
+                throw new NoSuchElementException("No column " + name);
+            }
+            return index;
+        }
+        
+        @Override
+        public ColumnMetadata getColumnMetadata(int index) {
+            return columns.get(index);
+        }
+        
+        @Override
+        public ColumnMetadata getColumnMetadata(String name) {
+            return columns.get(indexOf(name));
+        }
+        
+        @Override
+        public List<? extends ColumnMetadata> getColumnMetadatas() {
+            return columns;
+        }
+        
+        @Override
+        public boolean contains(String name) {
+            return indexes.containsKey(name);
+        }
+    }
+    
+    private record Column(String name, Class<?> javaType) implements ColumnMetadata, Type {
+        
+        @Override
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public Type getType() {
+            return this;
+        }
+        
+        @Override
+        public Class<?> getJavaType() {
+            return javaType;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.nequi.franquicias.jpa.mappers;
+
+import com.nequi.franquicias.jpa.entities.FranchiseTreeRow;
+import com.nequi.franquicias.jpa.entities.ProductEntity;
+import com.nequi.franquicias.model.Franchise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-row cost of the hand-written row mappers against Spring Data entity conversion
+ * Rows are served from memory, so the scores leave out the driver and the network. Every benchmark maps
+ * ROWS rows per invocation and reports the average time per row.
+ * The entity benchmarks reproduce the read path the mappers replaced: MappingR2dbcConverter into the entity
+ * or projection, configured for MySQL as R2dbcConfig does, then the copy into the domain model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+    
+    private static final int ROWS = 1_000;
+    private static final int BRANCHES_PER_FRANCHISE = 5;
+    private static final int PRODUCTS_PER_BRANCH = 20;
+    
+    private MappingR2dbcConverter converter;
+    private List<InMemoryRow> productRows;
+    private List<InMemoryRow> productEntityRows;
+    private List<InMemoryRow> franchiseTreeRows;
+    
+    @Setup
+    public void setUp() {
+        R2dbcCustomConversions conversions = R2dbcCustomConversions.of(MySqlDialect.INSTANCE, List.of());
+        R2dbcMappingContext mappingContext = new R2dbcMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingR2dbcConverter(mappingContext, conversions);
+        
+        // RowMappers.PRODUCT_COLUMNS, and every column of ProductEntity as the Spring Data finders selected them
+        InMemoryRow.Metadata product = InMemoryRow.columns(
+                List.of("id", "name", "stock", "branch_id", "version"),
+                List.of(Long.class, String.class, Integer.class, Long.class, Long.class));
+        InMemoryRow.Metadata productEntity = InMemoryRow.columns(
+                List.of("id", "name", "stock", "branch_id", "version", "created_at", "updated_at"),
+                List.of(Long.class, String.class, Integer.class, Long.class, Long.class,
+                        LocalDateTime.class, LocalDateTime.class));
+        // Same positions for both mappers, named after the aliases FranchiseTreeRow is bound to
+        InMemoryRow.Metadata franchiseTree = InMemoryRow.columns(
+                List.of("franchise_id", "franchise_name", "branch_id", "branch_name",
+                        "product_id", "product_name", "product_stock"),
+                List.of(Long.class, String.class, Long.class, String.class, Long.class, String.class, Integer.class));
+        
+        LocalDateTime now = LocalDateTime.now();
+        productRows = new ArrayList<>(ROWS);
+        productEntityRows = new ArrayList<>(ROWS);
+        franchiseTreeRows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            long id = i + 1L;
+            long branchId = i / PRODUCTS_PER_BRANCH + 1L;
+            long franchiseId = i / (PRODUCTS_PER_BRANCH * BRANCHES_PER_FRANCHISE) + 1L;
+            productRows.add(product.row(id, "Product " + id, i % 500, branchId, 3L));
+            productEntityRows.add(productEntity.row(id, "Product " + id, i % 500, branchId, 3L, now, now));
+            franchiseTreeRows.add(franchiseTree.row(franchiseId, "Franchise " + franchiseId,
+                    branchId, "Branch " + branchId, id, "Product " + id, i % 500));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void productRowMapper(Blackhole blackhole) {
+        for (InMemoryRow row : productRows) {
+            blackhole.consume(RowMappers.PRODUCT.apply(row, row.getMetadata()));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void productEntityConversion(Blackhole blackhole) {
+        for (InMemoryRow row : productEntityRows) {
+            blackhole.consume(ProductMapper.toDomain(converter.read(ProductEntity.class, row, row.getMetadata())));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Franchise> franchiseTreeRowMapper() {
+        return assemble(row -> RowMappers.FRANCHISE_TREE_ROW.apply(row, row.getMetadata()));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Franchise> franchiseTreeEntityConversion() {
+        return assemble(row -> converter.read(FranchiseTreeRow.class, row, row.getMetadata()));
+    }
+    
+    /**
+     * Group the rows by franchise and build the aggregates, as bufferUntilChanged does in the adapter
+     */
+    private List<Franchise> assemble(Function<InMemoryRow, FranchiseTreeRow> mapper) {
+        List<Franchise> franchises = new ArrayList<>();
+        List<FranchiseTreeRow> rows = new ArrayList<>();
+        for (InMemoryRow row : franchiseTreeRows) {
+            FranchiseTreeRow mapped = mapper.apply(row);
+            if (!rows.isEmpty() && !rows.get(0).getFranchiseId().equals(mapped.getFranchiseId())) {
+                franchises.add(FranchiseTreeMapper.toDomain(rows));
+                rows = new ArrayList<>();
+            }
+            rows.add(mapped);
+        }
+        if (!rows.isEmpty()) {
+            franchises.add(FranchiseTreeMapper.toDomain(rows));
+        }
+        return franchises;
+    }
+}
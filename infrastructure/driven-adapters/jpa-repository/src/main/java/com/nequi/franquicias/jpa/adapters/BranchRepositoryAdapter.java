@@ -1,55 +1,123 @@
 package com.nequi.franquicias.jpa.adapters;
 
 import com.nequi.franquicias.jpa.mappers.BranchMapper;
+import com.nequi.franquicias.jpa.mappers.RowMappers;
 import com.nequi.franquicias.jpa.repositories.BranchDataRepository;
 import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
 import com.nequi.franquicias.model.gateways.BranchRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.function.Function;
+
 /**
  * R2DBC implementation of BranchRepository
  * Adapter pattern implementation for Clean Architecture
  */
 @Repository
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class BranchRepositoryAdapter implements BranchRepository {
     
+    // LAST_INSERT_ID(id) makes the generated key the existing row's ID when the name is already taken
+    private static final String UPSERT_SQL =
+            "INSERT INTO branches (name, franchise_id) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id)";
+    // Every branch has a branch_top_stock row to lock, without a product until its first one is added
+    private static final String INSERT_TOP_STOCK_SQL = "INSERT IGNORE INTO branch_top_stock (branch_id) VALUES (?)";
+    private static final String SELECT_BRANCHES = "SELECT " + RowMappers.BRANCH_COLUMNS + " FROM branches ";
+    private static final String FIND_BY_ID_SQL = SELECT_BRANCHES + "WHERE id = ?";
+    private static final String FIND_BY_FRANCHISE_SQL = SELECT_BRANCHES + "WHERE franchise_id = ?";
+    
     private final BranchDataRepository branchDataRepository;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
     
     @Override
     public Mono<Branch> save(Branch branch) {
         return Mono.fromCallable(() -> BranchMapper.toEntity(branch))
                 .flatMap(branchDataRepository::save)
-                .map(BranchMapper::toDomain);
+                .flatMap(saved -> insertTopStock(saved.getId()).thenReturn(saved))
+                .map(BranchMapper::toDomain)
+                .onErrorMap(constraintViolation(branch))
+                .as(transactionalOperator::transactional);
+    }
+    
+    @Override
+    public Mono<Branch> upsert(Branch branch) {
+        return databaseClient.sql(UPSERT_SQL)
+                .bind(0, branch.getName())
+                .bind(1, branch.getFranchiseId())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .flatMap(id -> insertTopStock(id).thenReturn(id))
+                .map(id -> Branch.builder()
+                        .id(id)
+                        .name(branch.getName())
+                        .franchiseId(branch.getFranchiseId())
+                        .build())
+                .onErrorMap(constraintViolation(branch))
+                .as(transactionalOperator::transactional);
+    }
+    
+    private Mono<Void> insertTopStock(Long branchId) {
+        return databaseClient.sql(INSERT_TOP_STOCK_SQL)
+                .bind(0, branchId)
+                .then();
+    }
+    
+    private static Function<Throwable, Throwable> constraintViolation(Branch branch) {
+        return ConstraintViolations.translate(
+                () -> new DuplicateEntityException("Branch", branch.getName(), "franchise", branch.getFranchiseId()),
+                () -> new EntityNotFoundException("Franchise", branch.getFranchiseId()));
     }
     
     @Override
     public Mono<Branch> findById(Long id) {
-        return branchDataRepository.findById(id)
-                .map(BranchMapper::toDomain);
+        return databaseClient.sql(FIND_BY_ID_SQL)
+                .bind(0, id)
+                .map(RowMappers.BRANCH)
+                .one();
     }
     
     @Override
     public Flux<Branch> findByFranchiseId(Long franchiseId) {
-        return branchDataRepository.findByFranchiseId(franchiseId)
-                .map(BranchMapper::toDomain);
+        return databaseClient.sql(FIND_BY_FRANCHISE_SQL)
+                .bind(0, franchiseId)
+                .map(RowMappers.BRANCH)
+                .all();
     }
     
     @Override
     public Flux<Branch> findAll() {
-        return branchDataRepository.findAll()
-                .map(BranchMapper::toDomain);
+        return databaseClient.sql(SELECT_BRANCHES)
+                .map(RowMappers.BRANCH)
+                .all();
     }
     
     @Override
     public Mono<Branch> update(Branch branch) {
-        return branchDataRepository.findById(branch.getId())
-                .map(existingEntity -> BranchMapper.updateEntity(existingEntity, branch))
-                .flatMap(branchDataRepository::save)
-                .map(BranchMapper::toDomain);
+        // Name is the only mutable column, the franchise of a branch never changes
+        return branchDataRepository.updateNameById(branch.getId(), branch.getName())
+                .filter(affectedRows -> affectedRows > 0)
+                .map(affectedRows -> branch);
+    }
+    
+    @Override
+    public Mono<Branch> updateName(Long branchId, String name) {
+        // Read back in the same transaction, so the response carries the whole row
+        return branchDataRepository.updateNameById(branchId, name)
+                .filter(affectedRows -> affectedRows > 0)
+                .flatMap(affectedRows -> findById(branchId))
+                .as(transactionalOperator::transactional);
     }
     
     @Override
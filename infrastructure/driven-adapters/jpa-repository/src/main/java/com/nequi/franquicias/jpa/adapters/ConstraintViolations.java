@@ -0,0 +1,65 @@
+package com.nequi.franquicias.jpa.adapters;
+
+import com.nequi.franquicias.model.exceptions.DomainException;
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Translates MySQL constraint violations into domain errors
+ * Lets inserts rely on the unique and foreign keys instead of checking first with extra round trips
+ */
+final class ConstraintViolations {
+    
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final int ER_NO_REFERENCED_ROW = 1216;
+    private static final int ER_NO_REFERENCED_ROW_2 = 1452;
+    
+    private ConstraintViolations() {
+    }
+    
+    /**
+     * @param duplicate error for a unique key violation
+     * @return function for onErrorMap, other errors are passed through
+     */
+    static Function<Throwable, Throwable> translate(Supplier<DomainException> duplicate) {
+        return translate(duplicate, null);
+    }
+    
+    /**
+     * @param duplicate error for a unique key violation
+     * @param missingParent error for a foreign key violation
+     * @return function for onErrorMap, other errors are passed through
+     */
+    static Function<Throwable, Throwable> translate(Supplier<DomainException> duplicate,
+                                                    Supplier<DomainException> missingParent) {
+        return error -> {
+            if (!(error instanceof DataIntegrityViolationException) && !(error instanceof R2dbcException)) {
+                return error;
+            }
+            int errorCode = errorCode(error);
+            if (error instanceof DuplicateKeyException || errorCode == ER_DUP_ENTRY) {
+                return duplicate.get();
+            }
+            if (missingParent != null && (errorCode == ER_NO_REFERENCED_ROW || errorCode == ER_NO_REFERENCED_ROW_2)) {
+                return missingParent.get();
+            }
+            return error;
+        };
+    }
+    
+    /**
+     * Vendor error code of the driver exception, found directly or as the cause of Spring's translation
+     */
+    private static int errorCode(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof R2dbcException r2dbcException) {
+                return r2dbcException.getErrorCode();
+            }
+        }
+        return 0;
+    }
+}
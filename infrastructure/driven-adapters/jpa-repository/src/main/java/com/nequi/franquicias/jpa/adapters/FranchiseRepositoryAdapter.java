@@ -1,49 +1,185 @@
 package com.nequi.franquicias.jpa.adapters;
 
+import com.nequi.franquicias.jpa.entities.FranchiseTreeRow;
 import com.nequi.franquicias.jpa.mappers.FranchiseMapper;
+import com.nequi.franquicias.jpa.mappers.FranchiseTreeMapper;
+import com.nequi.franquicias.jpa.mappers.RowMappers;
 import com.nequi.franquicias.jpa.repositories.FranchiseDataRepository;
+import com.nequi.franquicias.model.CatalogRow;
 import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
 import com.nequi.franquicias.model.gateways.FranchiseRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * R2DBC implementation of FranchiseRepository
  * Adapter pattern implementation for Clean Architecture
  */
 @Repository
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class FranchiseRepositoryAdapter implements FranchiseRepository {
     
+    private static final int CATALOG_FETCH_SIZE = 1000;
+    private static final String SELECT_FRANCHISES = "SELECT " + RowMappers.FRANCHISE_COLUMNS + " FROM franchises ";
+    private static final String FIND_BY_ID_SQL = SELECT_FRANCHISES + "WHERE id = ?";
+    // Rows are ordered by franchise, branch and product ID so the tree can be assembled incrementally
+    private static final String FRANCHISE_TREE_SQL =
+            "SELECT " + RowMappers.FRANCHISE_TREE_COLUMNS + " " +
+            "FROM franchises f " +
+            "LEFT JOIN branches b ON b.franchise_id = f.id " +
+            "LEFT JOIN products p ON p.branch_id = b.id " +
+            "ORDER BY f.id, b.id, p.id";
+    // The page is selected on franchises first so branches and products never split a franchise
+    private static final String FRANCHISE_TREE_PAGE_SQL =
+            "SELECT " + RowMappers.FRANCHISE_TREE_COLUMNS + " " +
+            "FROM (SELECT id, name FROM franchises WHERE id > ? ORDER BY id LIMIT ?) f " +
+            "LEFT JOIN branches b ON b.franchise_id = f.id " +
+            "LEFT JOIN products p ON p.branch_id = b.id " +
+            "ORDER BY f.id, b.id, p.id";
+    private static final String CATALOG_SQL =
+            "SELECT f.id AS franchise_id, f.name AS franchise_name, " +
+            "b.id AS branch_id, b.name AS branch_name, " +
+            "p.id AS product_id, p.name AS product_name, p.stock AS product_stock " +
+            "FROM franchises f " +
+            "LEFT JOIN branches b ON b.franchise_id = f.id " +
+            "LEFT JOIN products p ON p.branch_id = b.id " +
+            "ORDER BY f.id, b.id, p.id";
+    // Inserts raise the ID sum, deletes lower the count and every update bumps a version, so any change
+    // moves one of the aggregates. Each is an index scan, far cheaper than the tree query.
+    private static final String CATALOG_FINGERPRINT_SQL =
+            "SELECT " + RowMappers.FINGERPRINT_COLUMNS + " " +
+            "FROM (SELECT " + aggregates("") + " FROM franchises) f " +
+            "CROSS JOIN (SELECT " + aggregates("") + " FROM branches) b " +
+            "CROSS JOIN (SELECT " + aggregates("") + " FROM products) p";
+    private static final String FRANCHISES_FINGERPRINT_SQL =
+            "SELECT " + RowMappers.FINGERPRINT_COLUMNS + " " +
+            "FROM (SELECT " + aggregates("") + " FROM franchises WHERE id IN (:franchiseIds)) f " +
+            "CROSS JOIN (SELECT " + aggregates("") + " FROM branches WHERE franchise_id IN (:franchiseIds)) b " +
+            "CROSS JOIN (SELECT " + aggregates("rp.") + " FROM products rp " +
+            "JOIN branches pb ON pb.id = rp.branch_id WHERE pb.franchise_id IN (:franchiseIds)) p";
+    // Only the top product of each branch, one primary key lookup per branch like the top-stock report.
+    // A new top changes the ID sum, a rename or a stock change of the top bumps its version.
+    private static final String TOP_STOCK_FINGERPRINT_SQL =
+            "SELECT " + RowMappers.FINGERPRINT_COLUMNS + " " +
+            "FROM (SELECT " + aggregates("") + " FROM franchises WHERE id IN (:franchiseIds)) f " +
+            "CROSS JOIN (SELECT " + aggregates("") + " FROM branches WHERE franchise_id IN (:franchiseIds)) b " +
+            "CROSS JOIN (SELECT " + aggregates("tp.") + " FROM branches tb " +
+            "JOIN branch_top_stock t ON t.branch_id = tb.id " +
+            "JOIN products tp ON tp.id = t.product_id WHERE tb.franchise_id IN (:franchiseIds)) p";
+    
     private final FranchiseDataRepository franchiseDataRepository;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
     
     @Override
     public Mono<Franchise> save(Franchise franchise) {
         return Mono.fromCallable(() -> FranchiseMapper.toEntity(franchise))
                 .flatMap(franchiseDataRepository::save)
-                .map(FranchiseMapper::toDomain);
+                .map(FranchiseMapper::toDomain)
+                .onErrorMap(ConstraintViolations.translate(() -> new DuplicateEntityException(
+                        String.format("Franchise with name '%s' already exists", franchise.getName()))));
     }
     
     @Override
     public Mono<Franchise> findById(Long id) {
-        return franchiseDataRepository.findById(id)
-                .map(FranchiseMapper::toDomain);
+        return databaseClient.sql(FIND_BY_ID_SQL)
+                .bind(0, id)
+                .map(RowMappers.FRANCHISE)
+                .one();
     }
     
     @Override
     public Flux<Franchise> findAll() {
-        return franchiseDataRepository.findAll()
-                .map(FranchiseMapper::toDomain);
+        return databaseClient.sql(SELECT_FRANCHISES)
+                .map(RowMappers.FRANCHISE)
+                .all();
+    }
+    
+    @Override
+    public Flux<Franchise> findAllWithBranchesAndProducts() {
+        // Rows arrive grouped by franchise, so only one franchise is buffered at a time
+        return databaseClient.sql(FRANCHISE_TREE_SQL)
+                .map(RowMappers.FRANCHISE_TREE_ROW)
+                .all()
+                .bufferUntilChanged(FranchiseTreeRow::getFranchiseId)
+                .map(FranchiseTreeMapper::toDomain);
+    }
+    
+    @Override
+    public Flux<Franchise> findPageWithBranchesAndProducts(Long afterId, int limit) {
+        return databaseClient.sql(FRANCHISE_TREE_PAGE_SQL)
+                .bind(0, afterId)
+                .bind(1, limit)
+                .map(RowMappers.FRANCHISE_TREE_ROW)
+                .all()
+                .bufferUntilChanged(FranchiseTreeRow::getFranchiseId)
+                .map(FranchiseTreeMapper::toDomain);
+    }
+    
+    @Override
+    public Flux<CatalogRow> streamCatalog() {
+        // Bounded fetch size lets the driver pull rows in chunks driven by downstream demand
+        return databaseClient.sql(CATALOG_SQL)
+                .filter(statement -> statement.fetchSize(CATALOG_FETCH_SIZE))
+                .map(row -> CatalogRow.builder()
+                        .franchiseId(row.get("franchise_id", Long.class))
+                        .franchiseName(row.get("franchise_name", String.class))
+                        .branchId(row.get("branch_id", Long.class))
+                        .branchName(row.get("branch_name", String.class))
+                        .productId(row.get("product_id", Long.class))
+                        .productName(row.get("product_name", String.class))
+                        .stock(row.get("product_stock", Integer.class))
+                        .build())
+                .all();
+    }
+    
+    @Override
+    public Mono<String> findCatalogFingerprint() {
+        return databaseClient.sql(CATALOG_FINGERPRINT_SQL)
+                .map(RowMappers.FINGERPRINT)
+                .one();
+    }
+    
+    @Override
+    public Mono<String> findCatalogFingerprint(List<Long> franchiseIds) {
+        return databaseClient.sql(FRANCHISES_FINGERPRINT_SQL)
+                .bind("franchiseIds", franchiseIds)
+                .map(RowMappers.FINGERPRINT)
+                .one();
+    }
+    
+    @Override
+    public Mono<String> findTopStockFingerprint(List<Long> franchiseIds) {
+        return databaseClient.sql(TOP_STOCK_FINGERPRINT_SQL)
+                .bind("franchiseIds", franchiseIds)
+                .map(RowMappers.FINGERPRINT)
+                .one();
     }
     
     @Override
     public Mono<Franchise> update(Franchise franchise) {
-        return franchiseDataRepository.findById(franchise.getId())
-                .map(existingEntity -> FranchiseMapper.updateEntity(existingEntity, franchise))
-                .flatMap(franchiseDataRepository::save)
-                .map(FranchiseMapper::toDomain);
+        // Name is the only mutable column
+        return franchiseDataRepository.updateNameById(franchise.getId(), franchise.getName())
+                .filter(affectedRows -> affectedRows > 0)
+                .map(affectedRows -> franchise);
+    }
+    
+    @Override
+    public Mono<Franchise> updateName(Long franchiseId, String name) {
+        // Read back in the same transaction, so the response carries the whole row
+        return franchiseDataRepository.updateNameById(franchiseId, name)
+                .filter(affectedRows -> affectedRows > 0)
+                .flatMap(affectedRows -> findById(franchiseId))
+                .as(transactionalOperator::transactional);
     }
     
     @Override
@@ -55,4 +191,10 @@ public class FranchiseRepositoryAdapter implements FranchiseRepository {
     public Mono<Boolean> existsById(Long id) {
         return franchiseDataRepository.existsById(id);
     }
+    
+    private static String aggregates(String alias) {
+        return "COUNT(*) AS row_count, "
+                + "CAST(COALESCE(SUM(" + alias + "id), 0) AS SIGNED) AS id_sum, "
+                + "CAST(COALESCE(SUM(" + alias + "version), 0) AS SIGNED) AS version_sum";
+    }
 }
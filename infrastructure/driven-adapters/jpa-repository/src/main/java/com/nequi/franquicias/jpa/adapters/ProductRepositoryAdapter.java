@@ -1,60 +1,330 @@
 package com.nequi.franquicias.jpa.adapters;
 
+import com.nequi.franquicias.jpa.entities.BranchTopProductRow;
+import com.nequi.franquicias.jpa.mappers.BranchTopProductMapper;
 import com.nequi.franquicias.jpa.mappers.ProductMapper;
+import com.nequi.franquicias.jpa.mappers.RowMappers;
 import com.nequi.franquicias.jpa.repositories.ProductDataRepository;
+import com.nequi.franquicias.model.Branch;
 import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.StockMovementType;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
+import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
 import com.nequi.franquicias.model.gateways.ProductRepository;
+import io.r2dbc.spi.Statement;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * R2DBC implementation of ProductRepository
  * Adapter pattern implementation for Clean Architecture
+ * Every write that can change a branch's top stock product also refreshes branch_top_stock in the same transaction
+ * Every write also increments the product version used for optimistic locking
+ * Writes that set the stock supersede the product's pending ledger movements, and adjustments fold them first
  */
 @Repository
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class ProductRepositoryAdapter implements ProductRepository {
     
+    private static final int STOCK_BATCH_CHUNK_SIZE = 500;
+    // Hot reads go through DatabaseClient and RowMappers instead of Spring Data entity conversion
+    private static final String SELECT_PRODUCTS = "SELECT " + RowMappers.PRODUCT_COLUMNS + " FROM products ";
+    private static final String FIND_BY_ID_SQL = SELECT_PRODUCTS + "WHERE id = ?";
+    private static final String FIND_BY_BRANCH_SQL = SELECT_PRODUCTS + "WHERE branch_id = ?";
+    private static final String FIND_BY_BRANCH_AND_NAME_SQL = SELECT_PRODUCTS + "WHERE name = ? AND branch_id = ?";
+    // Ties are broken by ID, matching idx_products_branch_stock so no filesort is needed
+    private static final String FIND_TOP_BY_BRANCH_SQL =
+            SELECT_PRODUCTS + "WHERE branch_id = ? ORDER BY stock DESC, id LIMIT 1";
+    // Top N per branch of the given franchises; branches without products are kept through the LEFT JOIN
+    private static final String TOP_STOCK_PRODUCTS_PER_BRANCH_SQL =
+            "SELECT " + RowMappers.BRANCH_TOP_PRODUCT_COLUMNS + " FROM branches b "
+                    + "LEFT JOIN ("
+                    + "SELECT rp.id, rp.name, rp.stock, rp.branch_id, "
+                    + "ROW_NUMBER() OVER (PARTITION BY rp.branch_id ORDER BY rp.stock DESC, rp.id) AS stock_rank "
+                    + "FROM products rp JOIN branches pb ON pb.id = rp.branch_id "
+                    + "WHERE pb.franchise_id IN (:franchiseIds)"
+                    + ") p ON p.branch_id = b.id AND p.stock_rank <= :limit "
+                    + "WHERE b.franchise_id IN (:franchiseIds) "
+                    + "ORDER BY b.franchise_id, b.id, p.stock_rank";
+    // Single top product from the branch_top_stock read model, primary key lookups per branch
+    private static final String TOP_STOCK_PRODUCT_PER_BRANCH_SQL =
+            "SELECT " + RowMappers.BRANCH_TOP_PRODUCT_COLUMNS + " FROM branches b "
+                    + "LEFT JOIN branch_top_stock t ON t.branch_id = b.id "
+                    + "LEFT JOIN products p ON p.id = t.product_id "
+                    + "WHERE b.franchise_id IN (:franchiseIds) "
+                    + "ORDER BY b.franchise_id, b.id";
+    // Setting the stock supersedes the ledger: movements appended before the write count as folded, so the
+    // compactor skips them instead of applying them on top of the new stock. The subquery is a locking read of
+    // the product's ledger tail, so it waits for movements of the product that are still being appended.
+    private static final String SUPERSEDE_LEDGER =
+            "ledger_movement_id = (SELECT COALESCE(MAX(m.id), products.ledger_movement_id) "
+                    + "FROM stock_movements m WHERE m.product_id = products.id)";
+    private static final String UPDATE_STOCK_SQL =
+            "UPDATE products SET stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), version = version + 1 "
+                    + "WHERE id = ?";
+    private static final String UPDATE_STOCK_IN_BRANCH_SQL =
+            "UPDATE products SET stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), version = version + 1 "
+                    + "WHERE id = ? AND branch_id = ?";
+    // Bumping through LAST_INSERT_ID(expr) makes the driver report the new version as the generated key,
+    // so single-row updates learn it without reading the product back
+    private static final String NEXT_VERSION = "version = LAST_INSERT_ID(version + 1)";
+    private static final String UPDATE_VERSIONED_SQL =
+            "UPDATE products SET name = ?, stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), " + NEXT_VERSION
+                    + " WHERE id = ?";
+    private static final String UPDATE_VERSIONED_NAME_SQL =
+            "UPDATE products SET name = ?, updated_at = NOW(), " + NEXT_VERSION + " WHERE id = ?";
+    private static final String UPDATE_VERSIONED_STOCK_SQL =
+            "UPDATE products SET stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), " + NEXT_VERSION
+                    + " WHERE id = ?";
+    private static final String UPDATE_VERSIONED_STOCK_IN_BRANCH_SQL =
+            "UPDATE products SET stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), " + NEXT_VERSION
+                    + " WHERE id = ? AND branch_id = ?";
+    // The guard runs inside the UPDATE, so concurrent adjustments never lose writes. It only covers the
+    // snapshot, so products with ledger movements still to fold take the locked path of adjustThroughLedger.
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE products SET stock = stock + ?, updated_at = NOW(), " + NEXT_VERSION
+                    + " WHERE id = ? AND stock + ? >= 0 AND NOT EXISTS (SELECT 1 FROM stock_movements m "
+                    + "WHERE m.product_id = products.id AND m.id > products.ledger_movement_id)";
+    private static final String LOCK_LEDGER_SNAPSHOT_SQL =
+            "SELECT stock, ledger_movement_id, version FROM products WHERE id = ? FOR UPDATE";
+    // Locking read, so movements of the product still being appended are waited for instead of missed
+    private static final String PENDING_MOVEMENTS_SQL =
+            "SELECT id, movement_type, quantity FROM stock_movements WHERE product_id = ? AND id > ? "
+                    + "ORDER BY id FOR SHARE";
+    private static final String FOLD_AND_ADJUST_SQL =
+            "UPDATE products SET stock = ?, ledger_movement_id = ?, updated_at = NOW(), version = version + 1 "
+                    + "WHERE id = ?";
+    private static final String EXPECTED_VERSION_CONDITION = " AND version = ?";
+    private static final String LOCK_PRODUCT_BRANCH_SQL = "SELECT branch_id FROM products WHERE id = ? FOR UPDATE";
+    // Held until commit, so a branch cannot be deleted while its products are inserted
+    private static final String LOCK_BRANCHES_SQL = "SELECT id FROM branches WHERE id IN (:branchIds) FOR SHARE";
+    private static final String INSERT_IGNORE_SQL_PREFIX =
+            "INSERT IGNORE INTO products (name, stock, branch_id) VALUES ";
+    // LAST_INSERT_ID(id) makes the generated key the existing row's ID when the name is already taken
+    private static final String UPSERT_SQL =
+            "INSERT INTO products (name, stock, branch_id) VALUES (?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE stock = ?, " + SUPERSEDE_LEDGER + ", updated_at = NOW(), "
+                    + "version = version + 1, id = LAST_INSERT_ID(id)";
+    // LAST_INSERT_ID already carries the ID, so the version is read back. A locking read of the row the upsert
+    // holds anyway, so the top stock recompute stays the first consistent read of the transaction
+    private static final String UPSERTED_VERSION_SQL = "SELECT version FROM products WHERE id = ? FOR UPDATE";
+    
     private final ProductDataRepository productDataRepository;
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final TopStockRefresher topStockRefresher;
     
     @Override
     public Mono<Product> save(Product product) {
         return Mono.fromCallable(() -> ProductMapper.toEntity(product))
                 .flatMap(productDataRepository::save)
-                .map(ProductMapper::toDomain);
+                .flatMap(saved -> topStockRefresher.ofProducts(List.of(saved.getId())).thenReturn(saved))
+                .map(ProductMapper::toDomain)
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        error -> new VersionConflictException("Product", product.getId(), product.getVersion()))
+                .onErrorMap(constraintViolation(product))
+                .as(transactionalOperator::transactional);
+    }
+    
+    @Override
+    public Mono<Product> upsert(Product product) {
+        return databaseClient.sql(UPSERT_SQL)
+                .bind(0, product.getName())
+                .bind(1, product.getStock())
+                .bind(2, product.getBranchId())
+                .bind(3, product.getStock())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .flatMap(id -> databaseClient.sql(UPSERTED_VERSION_SQL)
+                        .bind(0, id)
+                        .map(row -> row.get("version", Long.class))
+                        .one()
+                        .map(version -> Product.builder()
+                                .id(id)
+                                .name(product.getName())
+                                .stock(product.getStock())
+                                .branchId(product.getBranchId())
+                                .version(version)
+                                .build()))
+                .flatMap(upserted -> topStockRefresher.ofProducts(List.of(upserted.getId())).thenReturn(upserted))
+                .onErrorMap(constraintViolation(product))
+                .as(transactionalOperator::transactional);
+    }
+    
+    private static Function<Throwable, Throwable> constraintViolation(Product product) {
+        return ConstraintViolations.translate(
+                () -> new DuplicateEntityException("Product", product.getName(), "branch", product.getBranchId()),
+                () -> new EntityNotFoundException("Branch", product.getBranchId()));
+    }
+    
+    /**
+     * IGNORE also downgrades foreign key and data errors to warnings, which would be counted as skipped
+     * duplicates. The branches are locked first and the values checked up front, so the only rows the
+     * statement can skip are unique name clashes.
+     */
+    @Override
+    public Mono<Long> insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return Mono.just(0L);
+        }
+        
+        List<Long> branchIds = products.stream().map(Product::getBranchId).distinct().toList();
+        return Mono.fromRunnable(() -> products.forEach(ProductRepositoryAdapter::requireInsertable))
+                .then(Mono.defer(() -> lockBranches(branchIds)))
+                .then(Mono.defer(() -> insertIgnore(products)))
+                .flatMap(inserted -> inserted > 0
+                        ? topStockRefresher.ofBranches(branchIds).thenReturn(inserted)
+                        : Mono.just(inserted))
+                .as(transactionalOperator::transactional);
+    }
+    
+    private Mono<Long> insertIgnore(List<Product> products) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(insertSql(products.size()));
+        int index = 0;
+        for (Product product : products) {
+            spec = spec.bind(index++, product.getName())
+                    .bind(index++, product.getStock())
+                    .bind(index++, product.getBranchId());
+        }
+        return spec.fetch().rowsUpdated();
+    }
+    
+    /**
+     * Share-lock the branches until commit, failing if any of them is gone
+     * The use case checks the branch up front, but possibly through a cache or before a concurrent delete
+     */
+    private Mono<Void> lockBranches(List<Long> branchIds) {
+        return databaseClient.sql(LOCK_BRANCHES_SQL)
+                .bind("branchIds", branchIds)
+                .map(row -> row.get(0, Long.class))
+                .all()
+                .collect(Collectors.toSet())
+                .flatMap(found -> missingBranch(branchIds, found));
+    }
+    
+    private static Mono<Void> missingBranch(List<Long> branchIds, Set<Long> found) {
+        for (Long branchId : branchIds) {
+            if (!found.contains(branchId)) {
+                return Mono.error(new EntityNotFoundException("Branch", branchId));
+            }
+        }
+        return Mono.empty();
+    }
+    
+    /**
+     * Same rules as the Product model and the products columns, so INSERT IGNORE never truncates or drops a value
+     */
+    private static void requireInsertable(Product product) {
+        if (product.getBranchId() == null) {
+            throw new BusinessValidationException("Product branch ID cannot be null");
+        }
+        if (product.getName() == null || product.getName().isEmpty() || product.getName().length() > 100) {
+            throw new BusinessValidationException("Product name must have between 1 and 100 characters");
+        }
+        if (product.getStock() == null || product.getStock() < 0) {
+            throw new BusinessValidationException("Product stock cannot be null or negative");
+        }
+    }
+    
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_IGNORE_SQL_PREFIX.length() + rows * 11)
+                .append(INSERT_IGNORE_SQL_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
     }
     
     @Override
     public Mono<Product> findById(Long id) {
-        return productDataRepository.findById(id)
-                .map(ProductMapper::toDomain);
+        return databaseClient.sql(FIND_BY_ID_SQL)
+                .bind(0, id)
+                .map(RowMappers.PRODUCT)
+                .one();
     }
     
     @Override
     public Flux<Product> findByBranchId(Long branchId) {
-        return productDataRepository.findByBranchId(branchId)
-                .map(ProductMapper::toDomain);
+        return databaseClient.sql(FIND_BY_BRANCH_SQL)
+                .bind(0, branchId)
+                .map(RowMappers.PRODUCT)
+                .all();
+    }
+    
+    @Override
+    public Mono<Product> findByBranchIdAndName(Long branchId, String name) {
+        return databaseClient.sql(FIND_BY_BRANCH_AND_NAME_SQL)
+                .bind(0, name)
+                .bind(1, branchId)
+                .map(RowMappers.PRODUCT)
+                .one();
     }
     
     @Override
     public Flux<Product> findAll() {
-        return productDataRepository.findAll()
-                .map(ProductMapper::toDomain);
+        return databaseClient.sql(SELECT_PRODUCTS)
+                .map(RowMappers.PRODUCT)
+                .all();
     }
     
     @Override
     public Mono<Product> update(Product product) {
-        return productDataRepository.findById(product.getId())
-                .map(existingEntity -> ProductMapper.updateEntity(existingEntity, product))
-                .flatMap(productDataRepository::save)
-                .map(ProductMapper::toDomain);
+        // The branch of a product never changes, so only name and stock are written
+        Long productId = product.getId();
+        return updateVersioned(UPDATE_VERSIONED_SQL, product.getVersion(), product.getName(), product.getStock(), productId)
+                .switchIfEmpty(Mono.defer(() -> versionConflictIfExists(
+                        productDataRepository.existsById(productId), productId, product.getVersion())))
+                .flatMap(version -> topStockRefresher.ofProducts(List.of(productId))
+                        .thenReturn(Product.builder()
+                                .id(productId)
+                                .name(product.getName())
+                                .stock(product.getStock())
+                                .branchId(product.getBranchId())
+                                .version(version)
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+    
+    @Override
+    public Mono<Product> updateName(Long productId, String name, Long expectedVersion) {
+        return updateVersioned(UPDATE_VERSIONED_NAME_SQL, expectedVersion, name, productId)
+                .switchIfEmpty(Mono.defer(() -> versionConflictIfExists(
+                        productDataRepository.existsById(productId), productId, expectedVersion)))
+                .map(version -> Product.builder()
+                        .id(productId)
+                        .name(name)
+                        .version(version)
+                        .build())
+                .as(transactionalOperator::transactional);
     }
     
     @Override
     public Mono<Void> deleteById(Long id) {
-        return productDataRepository.deleteById(id);
+        // The branch is read first: once the product is gone it can no longer be resolved from its ID.
+        // A locking read, so the top stock recompute stays the first consistent read of the transaction
+        return databaseClient.sql(LOCK_PRODUCT_BRANCH_SQL)
+                .bind(0, id)
+                .map(row -> row.get("branch_id", Long.class))
+                .one()
+                .flatMap(branchId -> productDataRepository.deleteById(id)
+                        .then(topStockRefresher.afterDelete(branchId, id)))
+                .as(transactionalOperator::transactional);
     }
     
     @Override
@@ -69,14 +339,202 @@ public class ProductRepositoryAdapter implements ProductRepository {
     
     @Override
     public Mono<Product> findTopByBranchIdOrderByStockDesc(Long branchId) {
-        return productDataRepository.findTopByBranchIdOrderByStockDesc(branchId)
-                .map(ProductMapper::toDomain);
+        return databaseClient.sql(FIND_TOP_BY_BRANCH_SQL)
+                .bind(0, branchId)
+                .map(RowMappers.PRODUCT)
+                .one();
     }
     
     @Override
-    public Mono<Product> updateStock(Long productId, Integer newStock) {
-        return productDataRepository.updateStockById(productId, newStock)
-                .then(productDataRepository.findById(productId))
-                .map(ProductMapper::toDomain);
+    public Flux<Branch> findTopStockProductsPerBranch(List<Long> franchiseIds, int limit) {
+        // The single top product is read from the branch_top_stock read model, deeper rankings are computed
+        Flux<BranchTopProductRow> rows = limit == 1
+                ? databaseClient.sql(TOP_STOCK_PRODUCT_PER_BRANCH_SQL)
+                        .bind("franchiseIds", franchiseIds)
+                        .map(RowMappers.BRANCH_TOP_PRODUCT_ROW)
+                        .all()
+                : databaseClient.sql(TOP_STOCK_PRODUCTS_PER_BRANCH_SQL)
+                        .bind("franchiseIds", franchiseIds)
+                        .bind("limit", limit)
+                        .map(RowMappers.BRANCH_TOP_PRODUCT_ROW)
+                        .all();
+        // Rows arrive grouped by branch, so only one branch is buffered at a time
+        return rows
+                .bufferUntilChanged(BranchTopProductRow::getBranchId)
+                .map(BranchTopProductMapper::toDomain);
+    }
+    
+    @Override
+    public Mono<Product> updateStock(Long productId, Integer newStock, Long expectedVersion) {
+        return updateVersioned(UPDATE_VERSIONED_STOCK_SQL, expectedVersion, newStock, productId)
+                .switchIfEmpty(Mono.defer(() -> versionConflictIfExists(
+                        productDataRepository.existsById(productId), productId, expectedVersion)))
+                .flatMap(version -> topStockRefresher.ofProducts(List.of(productId))
+                        .thenReturn(Product.builder()
+                                .id(productId)
+                                .stock(newStock)
+                                .version(version)
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+    
+    @Override
+    public Mono<Product> updateStockInBranch(Long productId, Long branchId, Integer newStock, Long expectedVersion) {
+        return updateVersioned(UPDATE_VERSIONED_STOCK_IN_BRANCH_SQL, expectedVersion, newStock, productId, branchId)
+                .switchIfEmpty(Mono.defer(() -> versionConflictIfExists(
+                        productDataRepository.existsByIdAndBranchId(productId, branchId), productId, expectedVersion)))
+                .flatMap(version -> topStockRefresher.ofProducts(List.of(productId))
+                        .thenReturn(Product.builder()
+                                .id(productId)
+                                .stock(newStock)
+                                .branchId(branchId)
+                                .version(version)
+                                .build()))
+                .as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * Execute one of the single-row versioned UPDATE statements
+     * @param expectedVersion if not null, the row must still hold this version
+     * @param values bindings in statement order, the expected version is bound after them
+     * @return Mono of the new version, empty if no row matched
+     */
+    private Mono<Long> updateVersioned(String sql, Long expectedVersion, Object... values) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                expectedVersion != null ? sql + EXPECTED_VERSION_CONDITION : sql);
+        for (int i = 0; i < values.length; i++) {
+            spec = spec.bind(i, values[i]);
+        }
+        if (expectedVersion != null) {
+            spec = spec.bind(values.length, expectedVersion);
+        }
+        return spec.filter(statement -> statement.returnGeneratedValues("version"))
+                .map(row -> row.get("version", Long.class))
+                .one()
+                // When no row matched, LAST_INSERT_ID(expr) was never evaluated and the reported key is 0
+                .filter(version -> version > 0);
+    }
+    
+    /**
+     * A conditional update matched no row: a VersionConflictException if the product is still there,
+     * empty if it is missing or the update was unconditional
+     */
+    private <T> Mono<T> versionConflictIfExists(Mono<Boolean> exists, Long productId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return exists.flatMap(found -> found
+                ? Mono.error(new VersionConflictException("Product", productId, expectedVersion))
+                : Mono.empty());
+    }
+    
+    @Override
+    public Flux<Boolean> updateStockBatch(List<Product> products) {
+        // Consecutive products sharing the same SQL are bound to one statement, chunked to bound packet size
+        return Flux.fromIterable(products)
+                .bufferUntilChanged(product -> product.getBranchId() != null)
+                .concatMap(run -> Flux.fromIterable(run).buffer(STOCK_BATCH_CHUNK_SIZE))
+                .concatMap(this::executeStockBatch)
+                .concatWith(Mono.defer(() -> refreshTopStockAfterBatch(products)).then(Mono.empty()))
+                .as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * The branches are resolved from the product IDs; items that were not updated leave their branch as it is
+     */
+    private Mono<Void> refreshTopStockAfterBatch(List<Product> products) {
+        return topStockRefresher.ofProducts(products.stream().map(Product::getId).distinct().toList());
+    }
+    
+    /**
+     * Execute one chunk as a single statement with one binding per product
+     * The driver returns one result per binding, in binding order
+     */
+    private Flux<Boolean> executeStockBatch(List<Product> chunk) {
+        boolean branchScoped = chunk.get(0).getBranchId() != null;
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(
+                    branchScoped ? UPDATE_STOCK_IN_BRANCH_SQL : UPDATE_STOCK_SQL);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                Product product = chunk.get(i);
+                statement.bind(0, product.getStock()).bind(1, product.getId());
+                if (branchScoped) {
+                    statement.bind(2, product.getBranchId());
+                }
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(result -> Mono.from(result.getRowsUpdated()))
+                    .map(affectedRows -> affectedRows > 0);
+        });
+    }
+    
+    @Override
+    public Mono<Product> adjustStock(Long productId, Integer delta, Long expectedVersion) {
+        return updateVersioned(ADJUST_STOCK_SQL, expectedVersion, delta, productId, delta)
+                .flatMap(version -> topStockRefresher.ofProducts(List.of(productId))
+                        .then(findById(productId)))
+                .switchIfEmpty(Mono.defer(() -> adjustThroughLedger(productId, delta, expectedVersion)))
+                .as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * The guarded UPDATE matched no row: the product is missing (empty), is no longer at the expected version,
+     * has ledger movements still to fold, or applying the delta would leave it with negative stock
+     * The row is locked and the pending movements are folded into it together with the delta, so the guard
+     * covers the stock the ledger reports and the compactor has nothing left to apply for them.
+     * Only locking reads run before the top stock refresh, which needs its snapshot taken after its own lock.
+     */
+    private Mono<Product> adjustThroughLedger(Long productId, Integer delta, Long expectedVersion) {
+        return databaseClient.sql(LOCK_LEDGER_SNAPSHOT_SQL)
+                .bind(0, productId)
+                .map(row -> new LedgerSnapshot(
+                        row.get("stock", Integer.class),
+                        row.get("ledger_movement_id", Long.class),
+                        row.get("version", Long.class)))
+                .one()
+                .flatMap(snapshot -> expectedVersion != null && !expectedVersion.equals(snapshot.version())
+                        ? Mono.error(new VersionConflictException("Product", productId, expectedVersion))
+                        : databaseClient.sql(PENDING_MOVEMENTS_SQL)
+                                .bind(0, productId)
+                                .bind(1, snapshot.ledgerMovementId())
+                                .map(row -> new PendingMovement(
+                                        row.get("id", Long.class),
+                                        StockMovementType.valueOf(row.get("movement_type", String.class)),
+                                        row.get("quantity", Integer.class)))
+                                .all()
+                                .collectList()
+                                .flatMap(pending -> foldAndAdjust(productId, snapshot, pending, delta)))
+                .flatMap(adjusted -> topStockRefresher.ofProducts(List.of(productId))
+                        .then(findById(productId)));
+    }
+    
+    private Mono<Long> foldAndAdjust(Long productId, LedgerSnapshot snapshot, List<PendingMovement> pending,
+                                     Integer delta) {
+        int stock = snapshot.stock();
+        long folded = snapshot.ledgerMovementId();
+        for (PendingMovement movement : pending) {
+            stock = movement.type().applyTo(stock, movement.quantity());
+            folded = movement.id();
+        }
+        // Clamped like compaction does, so the delta applies to the stock the ledger reports
+        int adjusted = Math.max(stock, 0) + delta;
+        if (adjusted < 0) {
+            return Mono.error(new InsufficientStockException(productId, delta));
+        }
+        return databaseClient.sql(FOLD_AND_ADJUST_SQL)
+                .bind(0, adjusted)
+                .bind(1, folded)
+                .bind(2, productId)
+                .fetch()
+                .rowsUpdated();
+    }
+    
+    private record LedgerSnapshot(int stock, long ledgerMovementId, long version) {
+    }
+    
+    private record PendingMovement(long id, StockMovementType type, int quantity) {
     }
 }
@@ -0,0 +1,326 @@
+package com.nequi.franquicias.jpa.adapters;
+
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.StockMovement;
+import com.nequi.franquicias.model.StockMovementType;
+import com.nequi.franquicias.model.gateways.StockMovementRepository;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * R2DBC implementation of StockMovementRepository
+ * Appends are inserts into stock_movements and never lock the product row.
+ * Direct stock writes lock the product row and move its ledger_movement_id past the movements they
+ * supersede (PUT, batches, write-behind) or fold themselves (PATCH), so compaction never applies those twice.
+ * Compaction folds movements into products.stock and products.ledger_movement_id and refreshes
+ * branch_top_stock for the folded products in the same transaction, so the read model never lags the fold.
+ * The pending movements are read before the transaction starts and the fold only takes locking reads, so the
+ * first consistent read of the transaction is the refresh's, taken after the branch rows are locked.
+ */
+@Slf4j
+@Repository
+@Profile("!in-memory")
+@RequiredArgsConstructor
+public class StockMovementRepositoryAdapter implements StockMovementRepository {
+    
+    private static final int CHUNK_SIZE = 500;
+    private static final String INSERT_SQL_PREFIX =
+            "INSERT INTO stock_movements (product_id, movement_type, quantity, counterpart_product_id) VALUES ";
+    private static final String FIND_BY_PRODUCT_SQL =
+            "SELECT id, product_id, movement_type, quantity, counterpart_product_id, created_at "
+                    + "FROM stock_movements WHERE product_id = ? AND id > ? ORDER BY id LIMIT ?";
+    // One row per pending movement, or a single row with null movement columns when nothing is pending
+    private static final String CURRENT_STOCK_SQL =
+            "SELECT p.stock, m.movement_type, m.quantity FROM products p "
+                    + "LEFT JOIN stock_movements m ON m.product_id = p.id AND m.id > p.ledger_movement_id "
+                    + "WHERE p.id = ? ORDER BY m.id";
+    private static final String CURSOR_SQL = "SELECT movement_id FROM stock_ledger_cursor WHERE id = 1";
+    // Serializes compactions across instances
+    private static final String LOCK_CURSOR_SQL = CURSOR_SQL + " FOR UPDATE";
+    private static final String PENDING_SQL =
+            "SELECT id, product_id, movement_type, quantity, "
+                    + "created_at <= NOW(3) - INTERVAL ? MICROSECOND AS settled "
+                    + "FROM stock_movements WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String LOCK_SNAPSHOTS_SQL_PREFIX =
+            "SELECT id, stock, ledger_movement_id FROM products WHERE id IN (";
+    private static final String UPDATE_SNAPSHOT_SQL =
+            "UPDATE products SET stock = ?, ledger_movement_id = ?, updated_at = NOW(), version = version + 1 "
+                    + "WHERE id = ?";
+    private static final String UPDATE_CURSOR_SQL =
+            "UPDATE stock_ledger_cursor SET movement_id = ? WHERE id = 1";
+    
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final TopStockRefresher topStockRefresher;
+    
+    @Override
+    public Mono<StockMovement> append(StockMovement movement) {
+        return bindMovements(databaseClient.sql(insertSql(1)), List.of(movement))
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> StockMovement.builder()
+                        .id(id)
+                        .productId(movement.getProductId())
+                        .type(movement.getType())
+                        .quantity(movement.getQuantity())
+                        .counterpartProductId(movement.getCounterpartProductId())
+                        .build());
+    }
+    
+    @Override
+    public Mono<Void> appendAll(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return Mono.empty();
+        }
+        // A single statement is atomic on its own, no transaction round trips are needed
+        return bindMovements(databaseClient.sql(insertSql(movements.size())), movements)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+    
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL_PREFIX.length() + rows * 14)
+                .append(INSERT_SQL_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+    
+    private static DatabaseClient.GenericExecuteSpec bindMovements(DatabaseClient.GenericExecuteSpec spec,
+                                                                   List<StockMovement> movements) {
+        int index = 0;
+        for (StockMovement movement : movements) {
+            spec = spec.bind(index++, movement.getProductId())
+                    .bind(index++, movement.getType().name())
+                    .bind(index++, movement.getQuantity());
+            spec = movement.getCounterpartProductId() != null
+                    ? spec.bind(index++, movement.getCounterpartProductId())
+                    : spec.bindNull(index++, Long.class);
+        }
+        return spec;
+    }
+    
+    @Override
+    public Flux<StockMovement> findByProductId(Long productId, Long afterId, int limit) {
+        return databaseClient.sql(FIND_BY_PRODUCT_SQL)
+                .bind(0, productId)
+                .bind(1, afterId)
+                .bind(2, limit)
+                .map(row -> StockMovement.builder()
+                        .id(row.get("id", Long.class))
+                        .productId(row.get("product_id", Long.class))
+                        .type(StockMovementType.valueOf(row.get("movement_type", String.class)))
+                        .quantity(row.get("quantity", Integer.class))
+                        .counterpartProductId(row.get("counterpart_product_id", Long.class))
+                        .createdAt(row.get("created_at", LocalDateTime.class))
+                        .build())
+                .all();
+    }
+    
+    @Override
+    public Mono<StockLevel> findCurrentStock(Long productId) {
+        // Snapshot and pending movements come from one consistent read
+        return databaseClient.sql(CURRENT_STOCK_SQL)
+                .bind(0, productId)
+                .map(row -> new LedgerRow(
+                        row.get("stock", Integer.class),
+                        row.get("movement_type", String.class),
+                        row.get("quantity", Integer.class)))
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(rows -> {
+                    int snapshot = rows.get(0).stock();
+                    int stock = snapshot;
+                    int pending = 0;
+                    for (LedgerRow row : rows) {
+                        if (row.type() != null) {
+                            stock = StockMovementType.valueOf(row.type()).applyTo(stock, row.quantity());
+                            pending++;
+                        }
+                    }
+                    // Clamped like compaction does, so the value read is the value that will be folded
+                    return StockLevel.builder()
+                            .productId(productId)
+                            .stock(Math.max(stock, 0))
+                            .snapshotStock(snapshot)
+                            .pendingMovements(pending)
+                            .build();
+                });
+    }
+    
+    @Override
+    public Mono<Integer> compact(int maxMovements, Duration settleDelay) {
+        return databaseClient.sql(CURSOR_SQL)
+                .map(row -> row.get("movement_id", Long.class))
+                .one()
+                .flatMap(cursor -> databaseClient.sql(PENDING_SQL)
+                        .bind(0, settleDelay.toNanos() / 1_000)
+                        .bind(1, cursor)
+                        .bind(2, maxMovements)
+                        .map(row -> new PendingMovement(
+                                row.get("id", Long.class),
+                                row.get("product_id", Long.class),
+                                StockMovementType.valueOf(row.get("movement_type", String.class)),
+                                row.get("quantity", Integer.class),
+                                row.get("settled", Long.class) == 1L))
+                        .all()
+                        .collectList()
+                        .map(StockMovementRepositoryAdapter::settledPrefix)
+                        .filter(movements -> !movements.isEmpty())
+                        .flatMap(movements -> foldAndRefresh(cursor, movements)))
+                .defaultIfEmpty(0);
+    }
+    
+    /**
+     * Fold the movements read after the cursor and refresh the top stock of the folded products
+     * Another compaction that moved the cursor in the meantime already folded them, nothing is done then
+     */
+    private Mono<Integer> foldAndRefresh(Long cursor, List<PendingMovement> movements) {
+        return databaseClient.sql(LOCK_CURSOR_SQL)
+                .map(row -> row.get("movement_id", Long.class))
+                .one()
+                .flatMap(locked -> locked.equals(cursor) ? fold(movements) : Mono.just(Folded.NOTHING))
+                .flatMap(folded -> folded.productIds().isEmpty()
+                        ? Mono.just(folded.movements())
+                        : topStockRefresher.ofProducts(folded.productIds()).thenReturn(folded.movements()))
+                .as(transactionalOperator::transactional);
+    }
+    
+    /**
+     * Movements up to the first one younger than the settle delay
+     * IDs are assigned before commit, so a younger movement may still have lower IDs in flight;
+     * stopping at it keeps the cursor from moving past a movement that is not visible yet
+     */
+    private static List<PendingMovement> settledPrefix(List<PendingMovement> movements) {
+        for (int i = 0; i < movements.size(); i++) {
+            if (!movements.get(i).settled()) {
+                return movements.subList(0, i);
+            }
+        }
+        return movements;
+    }
+    
+    private Mono<Folded> fold(List<PendingMovement> movements) {
+        Map<Long, List<PendingMovement>> byProduct = new LinkedHashMap<>();
+        for (PendingMovement movement : movements) {
+            byProduct.computeIfAbsent(movement.productId(), id -> new ArrayList<>()).add(movement);
+        }
+        long lastMovementId = movements.get(movements.size() - 1).id();
+        return lockSnapshots(new ArrayList<>(byProduct.keySet()))
+                .flatMap(snapshot -> Mono.justOrEmpty(foldInto(snapshot, byProduct.get(snapshot.productId()))))
+                .collectList()
+                .flatMap(snapshots -> writeSnapshots(snapshots)
+                        .then(databaseClient.sql(UPDATE_CURSOR_SQL).bind(0, lastMovementId).then())
+                        .thenReturn(new Folded(movements.size(),
+                                snapshots.stream().map(Snapshot::productId).toList())));
+    }
+    
+    /**
+     * Lock the rows of the products being folded; products deleted since their movements were appended are skipped
+     */
+    private Flux<Snapshot> lockSnapshots(List<Long> productIds) {
+        return Flux.fromIterable(productIds)
+                .buffer(CHUNK_SIZE)
+                .concatMap(chunk -> {
+                    String markers = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                    DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                            LOCK_SNAPSHOTS_SQL_PREFIX + markers + ") FOR UPDATE");
+                    for (int i = 0; i < chunk.size(); i++) {
+                        spec = spec.bind(i, chunk.get(i));
+                    }
+                    return spec.map(StockMovementRepositoryAdapter::toSnapshot).all();
+                });
+    }
+    
+    private static Snapshot toSnapshot(Readable row) {
+        return new Snapshot(
+                row.get("id", Long.class),
+                row.get("stock", Integer.class),
+                row.get("ledger_movement_id", Long.class));
+    }
+    
+    /**
+     * Apply the movements the snapshot does not include yet
+     * Direct stock writes and PATCH adjustments move ledger_movement_id past the movements they superseded
+     * or folded themselves, so those are skipped here.
+     * Negative deltas are only checked on append, so concurrent sales can oversell; the stock is clamped at zero
+     * @return the folded snapshot, or null if the snapshot already covers every movement
+     */
+    private static Snapshot foldInto(Snapshot snapshot, List<PendingMovement> movements) {
+        int stock = snapshot.stock();
+        long folded = snapshot.ledgerMovementId();
+        for (PendingMovement movement : movements) {
+            if (movement.id() > snapshot.ledgerMovementId()) {
+                stock = movement.type().applyTo(stock, movement.quantity());
+                folded = movement.id();
+            }
+        }
+        if (folded == snapshot.ledgerMovementId()) {
+            return null;
+        }
+        if (stock < 0) {
+            log.warn("Stock ledger oversold product {} by {}, snapshot clamped to 0", snapshot.productId(), -stock);
+            stock = 0;
+        }
+        return new Snapshot(snapshot.productId(), stock, folded);
+    }
+    
+    /**
+     * Write the folded snapshots as batched statements, one binding per product
+     */
+    private Mono<Void> writeSnapshots(List<Snapshot> snapshots) {
+        return Flux.fromIterable(snapshots)
+                .buffer(CHUNK_SIZE)
+                .concatMap(chunk -> databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(UPDATE_SNAPSHOT_SQL);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        Snapshot snapshot = chunk.get(i);
+                        statement.bind(0, snapshot.stock())
+                                .bind(1, snapshot.ledgerMovementId())
+                                .bind(2, snapshot.productId());
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(result -> Mono.from(result.getRowsUpdated()));
+                }))
+                .then();
+    }
+    
+    private record LedgerRow(Integer stock, String type, Integer quantity) {
+    }
+    
+    private record PendingMovement(long id, long productId, StockMovementType type, int quantity, boolean settled) {
+    }
+    
+    private record Snapshot(long productId, int stock, long ledgerMovementId) {
+    }
+    
+    /**
+     * Movements folded by one compaction and the products they changed
+     */
+    private record Folded(int movements, List<Long> productIds) {
+        private static final Folded NOTHING = new Folded(0, List.of());
+    }
+}
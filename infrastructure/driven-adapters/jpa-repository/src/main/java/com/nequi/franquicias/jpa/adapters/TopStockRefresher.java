@@ -0,0 +1,160 @@
+package com.nequi.franquicias.jpa.adapters;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the branch_top_stock read model in line with product stock
+ * Callers run it inside the transaction of the write that changed the stock, after the write.
+ * Every branch has a row from its creation on, without a product while it is empty, so there is always a
+ * row to lock and writers of the same branch queue on it. Only that row is locked, and always after the
+ * product rows, so writes to different products of a branch never lock each other's products. A product
+ * that now beats the top replaces it with a conditional UPDATE; the branch is only recomputed when its top
+ * product went down or was deleted, from a non-locking read followed by an upsert.
+ * The recompute read must be the first consistent read of the transaction: its snapshot is then taken
+ * after the branch row is locked, so it includes every write that went through this row before. The row
+ * has no foreign key to products, so writing the recomputed top never waits on a writer of that product.
+ */
+@Component
+@Profile("!in-memory")
+@RequiredArgsConstructor
+class TopStockRefresher {
+    
+    private static final int CHUNK_SIZE = 500;
+    // The best changed product of each branch takes the top if it beats the current one
+    private static final String RAISE_SQL =
+            "UPDATE branch_top_stock t JOIN ("
+                    + "SELECT branch_id, id, stock FROM ("
+                    + "SELECT p.branch_id, p.id, p.stock, "
+                    + "ROW_NUMBER() OVER (PARTITION BY p.branch_id ORDER BY p.stock DESC, p.id) AS stock_rank "
+                    + "FROM products p WHERE p.id IN (%s)) ranked WHERE stock_rank = 1"
+                    + ") c ON c.branch_id = t.branch_id "
+                    + "SET t.product_id = c.id, t.stock = c.stock "
+                    + "WHERE t.product_id IS NULL OR t.stock < c.stock OR (t.stock = c.stock AND t.product_id > c.id)";
+    // Branches whose top product went down
+    private static final String STALE_BRANCHES_SQL =
+            "SELECT p.branch_id FROM products p "
+                    + "JOIN branch_top_stock t ON t.branch_id = p.branch_id "
+                    + "WHERE p.id IN (%s) AND t.product_id = p.id AND t.stock <> p.stock "
+                    + "FOR UPDATE OF t";
+    private static final String LOCK_BRANCHES_SQL =
+            "SELECT branch_id, product_id FROM branch_top_stock WHERE branch_id IN (%s) FOR UPDATE";
+    // Plain read, one idx_products_branch_stock dive per branch; branches without products get a null product
+    private static final String BEST_PRODUCTS_SQL =
+            "SELECT b.id AS branch_id, top.id AS product_id, top.stock FROM branches b "
+                    + "LEFT JOIN LATERAL ("
+                    + "SELECT p.id, p.stock FROM products p WHERE p.branch_id = b.id "
+                    + "ORDER BY p.stock DESC, p.id LIMIT 1) AS top ON TRUE "
+                    + "WHERE b.id IN (%s)";
+    private static final String UPSERT_SQL_PREFIX = "INSERT INTO branch_top_stock (branch_id, product_id, stock) VALUES ";
+    private static final String UPSERT_SQL_SUFFIX =
+            " AS top ON DUPLICATE KEY UPDATE product_id = top.product_id, stock = top.stock";
+    
+    private final DatabaseClient databaseClient;
+    
+    /**
+     * After the stock of existing or new products changed
+     * @param productIds the written products; unknown IDs are ignored
+     */
+    Mono<Void> ofProducts(List<Long> productIds) {
+        return chunks(productIds)
+                .concatMap(chunk -> bind(RAISE_SQL, chunk).then())
+                .thenMany(chunks(productIds))
+                .concatMap(chunk -> bind(STALE_BRANCHES_SQL, chunk)
+                        .map(row -> row.get("branch_id", Long.class))
+                        .all())
+                .distinct()
+                .collectList()
+                .flatMap(this::recompute);
+    }
+    
+    /**
+     * After products were inserted into the branches without their IDs being known
+     */
+    Mono<Void> ofBranches(List<Long> branchIds) {
+        return lock(branchIds)
+                .then(Mono.defer(() -> recompute(branchIds)));
+    }
+    
+    /**
+     * After a product of the branch was deleted
+     * The branch is only recomputed when the deleted product was its top
+     */
+    Mono<Void> afterDelete(Long branchId, Long productId) {
+        return bind(LOCK_BRANCHES_SQL, List.of(branchId))
+                .map(row -> productId.equals(row.get("product_id", Long.class)))
+                .one()
+                .filter(wasTop -> wasTop)
+                .flatMap(wasTop -> recompute(List.of(branchId)));
+    }
+    
+    private Mono<Void> lock(List<Long> branchIds) {
+        return chunks(branchIds)
+                .concatMap(chunk -> bind(LOCK_BRANCHES_SQL, chunk).map(row -> row.get("branch_id", Long.class)).all())
+                .then();
+    }
+    
+    /**
+     * Read the best product of each branch without locking, then write it; a branch left empty gets no product
+     */
+    private Mono<Void> recompute(List<Long> branchIds) {
+        return chunks(branchIds)
+                .concatMap(chunk -> bind(BEST_PRODUCTS_SQL, chunk)
+                        .map(row -> new Top(
+                                row.get("branch_id", Long.class),
+                                row.get("product_id", Long.class),
+                                row.get("stock", Integer.class)))
+                        .all()
+                        .collectList()
+                        .flatMap(this::write))
+                .then();
+    }
+    
+    private Mono<Void> write(List<Top> tops) {
+        if (tops.isEmpty()) {
+            return Mono.empty();
+        }
+        StringBuilder sql = new StringBuilder(UPSERT_SQL_PREFIX);
+        for (int i = 0; i < tops.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.append(UPSERT_SQL_SUFFIX).toString());
+        int index = 0;
+        for (Top top : tops) {
+            spec = spec.bind(index++, top.branchId());
+            spec = top.productId() == null
+                    ? spec.bindNull(index++, Long.class).bindNull(index++, Integer.class)
+                    : spec.bind(index++, top.productId()).bind(index++, top.stock());
+        }
+        return spec.then();
+    }
+    
+    /**
+     * Chunks keep the number of bind markers per statement bounded
+     */
+    private static Flux<List<Long>> chunks(List<Long> ids) {
+        return Flux.fromIterable(ids).buffer(CHUNK_SIZE);
+    }
+    
+    /**
+     * @param sql statement with a %s placeholder for the bind markers of the IDs
+     */
+    private DatabaseClient.GenericExecuteSpec bind(String sql, List<Long> ids) {
+        String markers = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(String.format(sql, markers));
+        for (int i = 0; i < ids.size(); i++) {
+            spec = spec.bind(i, ids.get(i));
+        }
+        return spec;
+    }
+    
+    private record Top(Long branchId, Long productId, Integer stock) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.nequi.franquicias.jpa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.nequi.franquicias.jpa.adapters.BranchRepositoryAdapter;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caching decorator of the R2DBC branch adapter for lookups by ID
+ * Branch rows almost never change and the franchise of a branch never does, so parent checks are served
+ * from memory. Writes through this instance invalidate the entry; changes made by other instances are
+ * picked up once it expires. A stale positive check is harmless for inserts, which still rely on the
+ * foreign key to report a missing branch.
+ */
+@Repository
+@Primary
+@Profile("!in-memory")
+public class CachingBranchRepository implements BranchRepository {
+    
+    private final BranchRepositoryAdapter delegate;
+    private final Cache<Long, Branch> cache;
+    
+    public CachingBranchRepository(BranchRepositoryAdapter delegate,
+                                   @Value("${franquicias.cache.entities.max-size:10000}") long maxSize,
+                                   @Value("${franquicias.cache.entities.ttl:5m}") Duration ttl) {
+        this.delegate = delegate;
+        this.cache = EntityCaches.build(maxSize, ttl);
+    }
+    
+    @Override
+    public Mono<Branch> save(Branch branch) {
+        return delegate.save(branch);
+    }
+    
+    @Override
+    public Mono<Branch> upsert(Branch branch) {
+        return delegate.upsert(branch);
+    }
+    
+    @Override
+    public Mono<Branch> findById(Long id) {
+        return EntityCaches.lookup(cache, id, delegate::findById, CachingBranchRepository::copy);
+    }
+    
+    @Override
+    public Flux<Branch> findByFranchiseId(Long franchiseId) {
+        return delegate.findByFranchiseId(franchiseId);
+    }
+    
+    @Override
+    public Flux<Branch> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Mono<Branch> update(Branch branch) {
+        return EntityCaches.invalidating(cache, branch.getId(), delegate.update(branch));
+    }
+    
+    @Override
+    public Mono<Branch> updateName(Long branchId, String name) {
+        return EntityCaches.invalidating(cache, branchId, delegate.updateName(branchId, name));
+    }
+    
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return EntityCaches.invalidating(cache, id, delegate.deleteById(id));
+    }
+    
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return findById(id).hasElement();
+    }
+    
+    @Override
+    public Mono<Boolean> existsByIdAndFranchiseId(Long branchId, Long franchiseId) {
+        if (franchiseId == null) {
+            return Mono.just(false);
+        }
+        return findById(branchId)
+                .map(branch -> franchiseId.equals(branch.getFranchiseId()))
+                .defaultIfEmpty(false);
+    }
+    
+    /**
+     * Drop the branches of a franchise, removed with it by the ON DELETE CASCADE
+     */
+    public void evictFranchise(Long franchiseId) {
+        cache.asMap().values().removeIf(branch -> franchiseId.equals(branch.getFranchiseId()));
+    }
+    
+    public Cache<Long, Branch> getCache() {
+        return cache;
+    }
+    
+    private static Branch copy(Branch branch) {
+        return Branch.builder()
+                .id(branch.getId())
+                .name(branch.getName())
+                .franchiseId(branch.getFranchiseId())
+                .products(List.of())
+                .build();
+    }
+}
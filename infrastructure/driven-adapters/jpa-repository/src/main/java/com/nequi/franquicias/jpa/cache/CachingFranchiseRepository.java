@@ -0,0 +1,118 @@
+package com.nequi.franquicias.jpa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.nequi.franquicias.jpa.adapters.FranchiseRepositoryAdapter;
+import com.nequi.franquicias.model.CatalogRow;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caching decorator of the R2DBC franchise adapter for lookups by ID
+ * Franchise rows almost never change, so parent checks are served from memory. Writes through this
+ * instance invalidate the entry; changes made by other instances are picked up once it expires.
+ * Tree, page and catalog reads are not cached, they carry branches and products.
+ */
+@Repository
+@Primary
+@Profile("!in-memory")
+public class CachingFranchiseRepository implements FranchiseRepository {
+    
+    private final FranchiseRepositoryAdapter delegate;
+    private final CachingBranchRepository branches;
+    private final Cache<Long, Franchise> cache;
+    
+    public CachingFranchiseRepository(FranchiseRepositoryAdapter delegate,
+                                      CachingBranchRepository branches,
+                                      @Value("${franquicias.cache.entities.max-size:10000}") long maxSize,
+                                      @Value("${franquicias.cache.entities.ttl:5m}") Duration ttl) {
+        this.delegate = delegate;
+        this.branches = branches;
+        this.cache = EntityCaches.build(maxSize, ttl);
+    }
+    
+    @Override
+    public Mono<Franchise> save(Franchise franchise) {
+        return delegate.save(franchise);
+    }
+    
+    @Override
+    public Mono<Franchise> findById(Long id) {
+        return EntityCaches.lookup(cache, id, delegate::findById, CachingFranchiseRepository::copy);
+    }
+    
+    @Override
+    public Flux<Franchise> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Flux<Franchise> findAllWithBranchesAndProducts() {
+        return delegate.findAllWithBranchesAndProducts();
+    }
+    
+    @Override
+    public Flux<Franchise> findPageWithBranchesAndProducts(Long afterId, int limit) {
+        return delegate.findPageWithBranchesAndProducts(afterId, limit);
+    }
+    
+    @Override
+    public Flux<CatalogRow> streamCatalog() {
+        return delegate.streamCatalog();
+    }
+    
+    @Override
+    public Mono<String> findCatalogFingerprint() {
+        return delegate.findCatalogFingerprint();
+    }
+    
+    @Override
+    public Mono<String> findCatalogFingerprint(List<Long> franchiseIds) {
+        return delegate.findCatalogFingerprint(franchiseIds);
+    }
+    
+    @Override
+    public Mono<Franchise> update(Franchise franchise) {
+        return EntityCaches.invalidating(cache, franchise.getId(), delegate.update(franchise));
+    }
+    
+    @Override
+    public Mono<Franchise> updateName(Long franchiseId, String name) {
+        return EntityCaches.invalidating(cache, franchiseId, delegate.updateName(franchiseId, name));
+    }
+    
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return EntityCaches.invalidating(cache, id, delegate.deleteById(id))
+                .doFinally(signal -> {
+                    if (id != null) {
+                        branches.evictFranchise(id);
+                    }
+                });
+    }
+    
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return findById(id).hasElement();
+    }
+    
+    public Cache<Long, Franchise> getCache() {
+        return cache;
+    }
+    
+    private static Franchise copy(Franchise franchise) {
+        return Franchise.builder()
+                .id(franchise.getId())
+                .name(franchise.getName())
+                .branches(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.nequi.franquicias.jpa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shared plumbing of the entity caching decorators
+ * Entries are bounded by size and expire after write; only entities found are cached, a missing ID is
+ * looked up again, as it may be created later
+ */
+final class EntityCaches {
+    
+    private EntityCaches() {
+    }
+    
+    /**
+     * @param maxSize maximum number of entities kept, 0 disables caching
+     * @param ttl time after which an entity is read again, bounding how stale a change made elsewhere can be
+     */
+    static <T> Cache<Long, T> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+    
+    /**
+     * Serve the entity from the cache, or load and cache it
+     * Cached instances are mutable domain objects, so callers always get their own copy
+     * @param copy copies an entity
+     */
+    static <T> Mono<T> lookup(Cache<Long, T> cache, Long id, Function<Long, Mono<T>> loader, UnaryOperator<T> copy) {
+        return Mono.defer(() -> {
+            T cached = id != null ? cache.getIfPresent(id) : null;
+            if (cached != null) {
+                return Mono.just(copy.apply(cached));
+            }
+            return loader.apply(id)
+                    .doOnNext(found -> cache.put(id, copy.apply(found)));
+        });
+    }
+    
+    /**
+     * Run a write of the entity, dropping its cache entry before and after it
+     * The second invalidation covers a lookup that read the old row while the write was running
+     */
+    static <T, R> Mono<R> invalidating(Cache<Long, T> cache, Long id, Mono<R> write) {
+        return Mono.defer(() -> {
+            if (id != null) {
+                cache.invalidate(id);
+            }
+            return write.doFinally(signal -> {
+                if (id != null) {
+                    cache.invalidate(id);
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.nequi.franquicias.jpa.config;
+
+/**
+ * Callback for timing events of a {@link TunableConnectionPool}
+ * Keeps this module free of a metrics library; the application binds it to Micrometer
+ */
+public interface PoolObserver {
+    
+    PoolObserver NONE = new PoolObserver() {
+    };
+    
+    /**
+     * Called once per connection request, including the wait for a free connection
+     * @param pool pool name
+     * @param nanos time until a connection was handed out or the request failed
+     * @param success false if no connection could be acquired
+     */
+    default void onAcquire(String pool, long nanos, boolean success) {
+    }
+    
+    /**
+     * Called for each validation round trip; not called for {@link PoolValidation#LOCAL}
+     * @param pool pool name
+     * @param validation validation depth used
+     * @param nanos time spent validating
+     * @param valid false if the connection was discarded
+     */
+    default void onValidation(String pool, PoolValidation validation, long nanos, boolean valid) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.nequi.franquicias.jpa.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Runtime-tunable settings of a {@link TunableConnectionPool}
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoolSettings {
+    
+    private int initialSize;
+    private int maxSize;
+    private PoolValidation validation;
+}
@@ -0,0 +1,22 @@
+package com.nequi.franquicias.jpa.config;
+
+/**
+ * How deeply a pooled connection is checked before it is handed out
+ */
+public enum PoolValidation {
+    
+    /**
+     * Client-side state check only, no round trip
+     */
+    LOCAL,
+    
+    /**
+     * Driver ping to the server
+     */
+    REMOTE,
+    
+    /**
+     * Full validation query (SELECT 1)
+     */
+    QUERY
+}
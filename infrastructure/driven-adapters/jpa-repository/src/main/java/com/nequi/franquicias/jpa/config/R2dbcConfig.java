@@ -2,12 +2,10 @@ package com.nequi.franquicias.jpa.config;
 
 import dev.miku.r2dbc.mysql.MySqlConnectionConfiguration;
 import dev.miku.r2dbc.mysql.MySqlConnectionFactory;
-import io.r2dbc.pool.ConnectionPool;
-import io.r2dbc.pool.ConnectionPoolConfiguration;
-import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 
@@ -16,8 +14,11 @@ import java.time.Duration;
 /**
  * R2DBC Configuration for MySQL connection
  * Production-ready configuration with connection pooling
+ * Builds a writer pool and, when a read replica is enabled, a reader pool behind a routing factory
+ * Inactive with the in-memory profile, which replaces the database adapters
  */
 @Configuration
+@Profile("!in-memory")
 @EnableR2dbcRepositories(basePackages = "com.nequi.franquicias.jpa.repositories")
 public class R2dbcConfig extends AbstractR2dbcConfiguration {
     
@@ -45,12 +46,39 @@ public class R2dbcConfig extends AbstractR2dbcConfiguration {
     @Value("${spring.r2dbc.pool.max-idle-time:30m}")
     private Duration maxIdleTime;
     
+    @Value("${spring.r2dbc.pool.validation:QUERY}")
+    private PoolValidation validation;
+    
+    @Value("${spring.r2dbc.reader.enabled:false}")
+    private boolean readerEnabled;
+    
+    @Value("${spring.r2dbc.reader.host:localhost}")
+    private String readerHost;
+    
+    @Value("${spring.r2dbc.reader.port:3306}")
+    private int readerPort;
+    
+    @Value("${spring.r2dbc.reader.pool.initial-size:10}")
+    private int readerInitialSize;
+    
+    @Value("${spring.r2dbc.reader.pool.max-size:20}")
+    private int readerMaxSize;
+    
     @Override
     @Bean
-    public ConnectionFactory connectionFactory() {
+    public ReadWriteRoutingConnectionFactory connectionFactory() {
+        TunableConnectionPool writer = createPool("writer", host, port, initialSize, maxSize);
+        TunableConnectionPool reader = readerEnabled
+                ? createPool("reader", readerHost, readerPort, readerInitialSize, readerMaxSize)
+                : writer;
+        
+        return new ReadWriteRoutingConnectionFactory(writer, reader);
+    }
+    
+    private TunableConnectionPool createPool(String name, String poolHost, int poolPort, int poolInitialSize, int poolMaxSize) {
         MySqlConnectionConfiguration configuration = MySqlConnectionConfiguration.builder()
-                .host(host)
-                .port(port)
+                .host(poolHost)
+                .port(poolPort)
                 .database(database)
                 .username(username)
                 .password(password)
@@ -58,14 +86,13 @@ public class R2dbcConfig extends AbstractR2dbcConfiguration {
         
         MySqlConnectionFactory connectionFactory = MySqlConnectionFactory.from(configuration);
         
-        // Connection pooling configuration
-        ConnectionPoolConfiguration poolConfiguration = ConnectionPoolConfiguration.builder(connectionFactory)
-                .maxIdleTime(maxIdleTime)
-                .initialSize(initialSize)
-                .maxSize(maxSize)
-                .validationQuery("SELECT 1")
+        // Connection pooling configuration, size and validation can be changed at runtime
+        PoolSettings settings = PoolSettings.builder()
+                .initialSize(poolInitialSize)
+                .maxSize(poolMaxSize)
+                .validation(validation)
                 .build();
         
-        return new ConnectionPool(poolConfiguration);
+        return new TunableConnectionPool(name, connectionFactory, maxIdleTime, settings);
     }
 }
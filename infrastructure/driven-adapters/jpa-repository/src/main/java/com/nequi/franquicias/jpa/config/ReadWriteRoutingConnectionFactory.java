@@ -0,0 +1,58 @@
+package com.nequi.franquicias.jpa.config;
+
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Connection factory choosing between the writer and reader pools from the Reactor context
+ * Pipelines default to the writer; see {@link ConnectionRoute} for how to opt into the reader
+ */
+public class ReadWriteRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements DisposableBean {
+    
+    private final Map<ConnectionRoute, TunableConnectionPool> pools;
+    
+    /**
+     * @param writer pool of the primary database
+     * @param reader pool of the read replica, or the writer pool itself when no replica is configured
+     */
+    public ReadWriteRoutingConnectionFactory(TunableConnectionPool writer, TunableConnectionPool reader) {
+        Map<ConnectionRoute, TunableConnectionPool> targets = new EnumMap<>(ConnectionRoute.class);
+        targets.put(ConnectionRoute.WRITER, writer);
+        targets.put(ConnectionRoute.READER, reader);
+        this.pools = Collections.unmodifiableMap(targets);
+        
+        setTargetConnectionFactories(Map.copyOf(targets));
+        setDefaultTargetConnectionFactory(writer);
+        setLenientFallback(false);
+    }
+    
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> Mono.just(ConnectionRoute.resolve(context)));
+    }
+    
+    /**
+     * @return pool per route; both routes share one pool when no replica is configured
+     */
+    public Map<ConnectionRoute, TunableConnectionPool> getPools() {
+        return pools;
+    }
+    
+    /**
+     * @return true if reads are served by a pool of their own
+     */
+    public boolean hasDedicatedReader() {
+        return pools.get(ConnectionRoute.READER) != pools.get(ConnectionRoute.WRITER);
+    }
+    
+    @Override
+    public void destroy() {
+        pools.values().stream().distinct().forEach(TunableConnectionPool::dispose);
+    }
+}
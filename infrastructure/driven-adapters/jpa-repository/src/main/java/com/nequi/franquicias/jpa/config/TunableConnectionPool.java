@@ -0,0 +1,209 @@
+package com.nequi.franquicias.jpa.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connection pool whose size and validation depth can be changed at runtime
+ * Resizing swaps in a new pool and disposes the old one once its borrowed connections are returned
+ */
+@Slf4j
+public class TunableConnectionPool implements ConnectionFactory {
+    
+    private static final String VALIDATION_QUERY = "SELECT 1";
+    private static final Duration DRAIN_POLL_INTERVAL = Duration.ofMillis(100);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    
+    private final String name;
+    private final ConnectionFactory target;
+    private final Duration maxIdleTime;
+    private final AtomicReference<ConnectionPool> current = new AtomicReference<>();
+    private volatile PoolSettings settings;
+    private volatile PoolObserver observer = PoolObserver.NONE;
+    
+    /**
+     * @param name pool name, used in metrics and logs
+     * @param target driver connection factory
+     * @param maxIdleTime idle time after which a connection is closed
+     * @param settings initial settings
+     */
+    public TunableConnectionPool(String name, ConnectionFactory target, Duration maxIdleTime, PoolSettings settings) {
+        this.name = name;
+        this.target = target;
+        this.maxIdleTime = maxIdleTime;
+        this.settings = validate(settings);
+        this.current.set(buildPool(settings));
+    }
+    
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(this::acquire)
+                .flatMap(this::check)
+                // A connection that failed validation has been discarded, one fresh attempt is enough
+                .retryWhen(Retry.max(1).filter(StaleConnectionException.class::isInstance));
+    }
+    
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return target.getMetadata();
+    }
+    
+    /**
+     * Apply new settings; a null argument keeps the current value
+     * Only a size change replaces the underlying pool, a validation change is applied immediately
+     * @return the settings now in effect
+     */
+    public synchronized PoolSettings reconfigure(Integer initialSize, Integer maxSize, PoolValidation validation) {
+        PoolSettings next = validate(settings.toBuilder()
+                .initialSize(initialSize != null ? initialSize : settings.getInitialSize())
+                .maxSize(maxSize != null ? maxSize : settings.getMaxSize())
+                .validation(validation != null ? validation : settings.getValidation())
+                .build());
+        
+        if (next.getInitialSize() != settings.getInitialSize() || next.getMaxSize() != settings.getMaxSize()) {
+            ConnectionPool replacement = buildPool(next);
+            replacement.warmup().subscribe(
+                    warmed -> log.info("Pool {} warmed up {} connections", name, warmed),
+                    error -> log.warn("Pool {} warm-up failed: {}", name, error.getMessage()));
+            drainAndDispose(current.getAndSet(replacement));
+        }
+        settings = next;
+        log.info("Pool {} reconfigured: {}", name, next);
+        return next;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public PoolSettings getSettings() {
+        return settings;
+    }
+    
+    /**
+     * @return metrics of the pool currently serving connections
+     */
+    public Optional<PoolMetrics> getMetrics() {
+        return current.get().getMetrics();
+    }
+    
+    /**
+     * Open the initial connections of the pool currently serving connections, instead of on first use
+     * @return number of connections opened
+     */
+    public Mono<Integer> warmup() {
+        return Mono.defer(() -> current.get().warmup());
+    }
+    
+    public void setObserver(PoolObserver observer) {
+        this.observer = observer != null ? observer : PoolObserver.NONE;
+    }
+    
+    public void dispose() {
+        current.get().dispose();
+    }
+    
+    private Mono<Connection> acquire() {
+        long start = System.nanoTime();
+        return current.get().create()
+                .doOnSuccess(connection -> observer.onAcquire(name, System.nanoTime() - start, true))
+                .doOnError(error -> observer.onAcquire(name, System.nanoTime() - start, false));
+    }
+    
+    private Mono<Connection> check(Connection connection) {
+        PoolValidation validation = settings.getValidation();
+        if (validation == PoolValidation.LOCAL) {
+            // Already covered by the pool's own LOCAL check on acquire
+            return Mono.just(connection);
+        }
+        long start = System.nanoTime();
+        Mono<Boolean> roundTrip = validation == PoolValidation.REMOTE
+                ? Mono.from(connection.validate(ValidationDepth.REMOTE))
+                : Flux.from(connection.createStatement(VALIDATION_QUERY).execute())
+                        .concatMap(result -> result.map((row, metadata) -> row))
+                        .then(Mono.just(true));
+        return roundTrip
+                .onErrorReturn(false)
+                .flatMap(valid -> {
+                    observer.onValidation(name, validation, System.nanoTime() - start, valid);
+                    if (valid) {
+                        return Mono.just(connection);
+                    }
+                    return discard(connection).then(Mono.error(new StaleConnectionException()));
+                });
+    }
+    
+    /**
+     * Close the physical connection, then return the pooled handle
+     * The pool's LOCAL check then evicts it instead of lending it again
+     */
+    private Mono<Void> discard(Connection connection) {
+        Mono<Void> closePhysical = connection instanceof Wrapped<?> wrapped && wrapped.unwrap() instanceof Connection physical
+                ? Mono.from(physical.close())
+                : Mono.empty();
+        return closePhysical
+                .onErrorResume(error -> Mono.empty())
+                .then(Mono.from(connection.close()))
+                .onErrorResume(error -> Mono.empty());
+    }
+    
+    private void drainAndDispose(ConnectionPool pool) {
+        Flux.interval(DRAIN_POLL_INTERVAL)
+                .filter(tick -> pool.getMetrics()
+                        .map(metrics -> metrics.acquiredSize() == 0 && metrics.pendingAcquireSize() == 0)
+                        .orElse(true))
+                .next()
+                .timeout(DRAIN_TIMEOUT, Mono.just(0L))
+                .then(Mono.defer(pool::disposeLater))
+                .subscribe(
+                        unused -> { },
+                        error -> log.warn("Pool {} previous instance failed to close: {}", name, error.getMessage()),
+                        () -> log.info("Pool {} previous instance closed", name));
+    }
+    
+    private ConnectionPool buildPool(PoolSettings poolSettings) {
+        ConnectionPoolConfiguration configuration = ConnectionPoolConfiguration.builder(target)
+                .name(name)
+                .maxIdleTime(maxIdleTime)
+                .initialSize(poolSettings.getInitialSize())
+                .maxSize(poolSettings.getMaxSize())
+                // Deeper validation is done in check(), timed and switchable at runtime
+                .validationDepth(ValidationDepth.LOCAL)
+                .build();
+        return new ConnectionPool(configuration);
+    }
+    
+    private static PoolSettings validate(PoolSettings poolSettings) {
+        if (poolSettings.getMaxSize() < 1) {
+            throw new IllegalArgumentException("Pool max size must be at least 1");
+        }
+        if (poolSettings.getInitialSize() < 0 || poolSettings.getInitialSize() > poolSettings.getMaxSize()) {
+            throw new IllegalArgumentException("Pool initial size must be between 0 and the max size");
+        }
+        if (poolSettings.getValidation() == null) {
+            throw new IllegalArgumentException("Pool validation cannot be null");
+        }
+        return poolSettings;
+    }
+    
+    private static final class StaleConnectionException extends RuntimeException {
+        
+        private StaleConnectionException() {
+            super("Pooled connection failed validation", null, false, false);
+        }
+    }
+}
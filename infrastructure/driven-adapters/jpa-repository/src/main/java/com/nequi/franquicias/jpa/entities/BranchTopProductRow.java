@@ -0,0 +1,36 @@
+package com.nequi.franquicias.jpa.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Flat projection of a branch joined with one of its ranked products
+ * Product columns are null for branches without products
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BranchTopProductRow {
+    
+    @Column("branch_id")
+    private Long branchId;
+    
+    @Column("branch_name")
+    private String branchName;
+    
+    @Column("franchise_id")
+    private Long franchiseId;
+    
+    @Column("product_id")
+    private Long productId;
+    
+    @Column("product_name")
+    private String productName;
+    
+    @Column("product_stock")
+    private Integer productStock;
+}
@@ -0,0 +1,39 @@
+package com.nequi.franquicias.jpa.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.relational.core.mapping.Column;
+
+/**
+ * Flat projection of the franchises ⋈ branches ⋈ products join
+ * One row per product; branch and product columns are null for empty franchises/branches
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranchiseTreeRow {
+    
+    @Column("franchise_id")
+    private Long franchiseId;
+    
+    @Column("franchise_name")
+    private String franchiseName;
+    
+    @Column("branch_id")
+    private Long branchId;
+    
+    @Column("branch_name")
+    private String branchName;
+    
+    @Column("product_id")
+    private Long productId;
+    
+    @Column("product_name")
+    private String productName;
+    
+    @Column("product_stock")
+    private Integer productStock;
+}
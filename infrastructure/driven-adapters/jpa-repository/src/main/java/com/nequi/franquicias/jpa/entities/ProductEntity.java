@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -33,6 +34,13 @@ public class ProductEntity {
     @Column("branch_id")
     private Long branchId;
     
+    /**
+     * Null marks a new entity; Spring Data then inserts it at version 0 and checks it on later saves
+     */
+    @Version
+    @Column("version")
+    private Long version;
+    
     @Column("created_at")
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -4,7 +4,7 @@ import com.nequi.franquicias.jpa.entities.BranchEntity;
 import com.nequi.franquicias.model.Branch;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Mapper between Branch domain model and BranchEntity
@@ -44,7 +44,7 @@ public class BranchMapper {
                 .id(entity.getId())
                 .name(entity.getName())
                 .franchiseId(entity.getFranchiseId())
-                .products(new ArrayList<>()) // Products loaded separately in service
+                .products(List.of()) // Products loaded separately in service
                 .build();
     }
     
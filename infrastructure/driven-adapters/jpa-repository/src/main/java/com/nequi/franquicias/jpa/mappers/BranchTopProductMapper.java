@@ -0,0 +1,46 @@
+package com.nequi.franquicias.jpa.mappers;
+
+import com.nequi.franquicias.jpa.entities.BranchTopProductRow;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapper from ranked branch/product rows to Branch domain models
+ */
+public class BranchTopProductMapper {
+    
+    /**
+     * Convert the ranked rows of one branch to a branch holding its top products
+     * Rows must belong to the same branch and be ordered by rank
+     * @param rows the ranked rows of a single branch
+     * @return branch whose products contain its top products in rank order, or are empty
+     */
+    public static Branch toDomain(List<BranchTopProductRow> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        
+        BranchTopProductRow first = rows.get(0);
+        List<Product> products = new ArrayList<>(rows.size());
+        for (BranchTopProductRow row : rows) {
+            if (row.getProductId() != null) {
+                products.add(Product.builder()
+                        .id(row.getProductId())
+                        .name(row.getProductName())
+                        .stock(row.getProductStock())
+                        .branchId(row.getBranchId())
+                        .build());
+            }
+        }
+        
+        return Branch.builder()
+                .id(first.getBranchId())
+                .name(first.getBranchName())
+                .franchiseId(first.getFranchiseId())
+                .products(products)
+                .build();
+    }
+}
@@ -4,7 +4,7 @@ import com.nequi.franquicias.jpa.entities.FranchiseEntity;
 import com.nequi.franquicias.model.Franchise;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Mapper between Franchise domain model and FranchiseEntity
@@ -42,7 +42,7 @@ public class FranchiseMapper {
         return Franchise.builder()
                 .id(entity.getId())
                 .name(entity.getName())
-                .branches(new ArrayList<>()) // Branches loaded separately in service
+                .branches(List.of()) // Branches loaded separately in service
                 .build();
     }
     
@@ -0,0 +1,62 @@
+package com.nequi.franquicias.jpa.mappers;
+
+import com.nequi.franquicias.jpa.entities.FranchiseTreeRow;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assembles Franchise aggregates from the rows of the franchise tree join
+ */
+public class FranchiseTreeMapper {
+    
+    /**
+     * Build one franchise from all of its joined rows
+     * Rows must belong to the same franchise and be ordered by branch and product ID
+     * @param rows the joined rows of a single franchise
+     * @return franchise with its branches and products
+     */
+    public static Franchise toDomain(List<FranchiseTreeRow> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        
+        FranchiseTreeRow first = rows.get(0);
+        List<Branch> branches = new ArrayList<>();
+        Branch currentBranch = null;
+        
+        for (FranchiseTreeRow row : rows) {
+            if (row.getBranchId() == null) {
+                continue; // Franchise without branches
+            }
+            
+            if (currentBranch == null || !row.getBranchId().equals(currentBranch.getId())) {
+                currentBranch = Branch.builder()
+                        .id(row.getBranchId())
+                        .name(row.getBranchName())
+                        .franchiseId(row.getFranchiseId())
+                        .products(new ArrayList<>())
+                        .build();
+                branches.add(currentBranch);
+            }
+            
+            if (row.getProductId() != null) {
+                currentBranch.getProducts().add(Product.builder()
+                        .id(row.getProductId())
+                        .name(row.getProductName())
+                        .stock(row.getProductStock())
+                        .branchId(row.getBranchId())
+                        .build());
+            }
+        }
+        
+        return Franchise.builder()
+                .id(first.getFranchiseId())
+                .name(first.getFranchiseName())
+                .branches(branches)
+                .build();
+    }
+}
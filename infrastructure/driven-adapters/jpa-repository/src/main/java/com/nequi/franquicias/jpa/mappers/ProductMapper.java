@@ -25,6 +25,7 @@ public class ProductMapper {
                 .name(product.getName())
                 .stock(product.getStock())
                 .branchId(product.getBranchId())
+                .version(product.getVersion())
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -45,6 +46,7 @@ public class ProductMapper {
                 .name(entity.getName())
                 .stock(entity.getStock())
                 .branchId(entity.getBranchId())
+                .version(entity.getVersion())
                 .build();
     }
     
@@ -64,6 +66,7 @@ public class ProductMapper {
                 .name(product.getName())
                 .stock(product.getStock())
                 .branchId(entity.getBranchId())
+                .version(entity.getVersion())
                 .createdAt(entity.getCreatedAt())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -0,0 +1,114 @@
+package com.nequi.franquicias.jpa.mappers;
+
+import com.nequi.franquicias.jpa.entities.BranchTopProductRow;
+import com.nequi.franquicias.jpa.entities.FranchiseTreeRow;
+import com.nequi.franquicias.model.Branch;
+import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.model.Product;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Hand-written row mappers for the hot read queries
+ * They build domain objects straight from the driver row, skipping Spring Data's reflective entity
+ * conversion and the entity-to-domain copy. Columns are read by position, so every query using a
+ * mapper must select the matching column list declared next to it.
+ */
+public final class RowMappers {
+    
+    /**
+     * Columns read by {@link #PRODUCT}, in order
+     */
+    public static final String PRODUCT_COLUMNS = "id, name, stock, branch_id, version";
+    
+    /**
+     * Columns read by {@link #BRANCH}, in order
+     */
+    public static final String BRANCH_COLUMNS = "id, name, franchise_id";
+    
+    /**
+     * Columns read by {@link #FRANCHISE}, in order
+     */
+    public static final String FRANCHISE_COLUMNS = "id, name";
+    
+    /**
+     * Columns read by {@link #FRANCHISE_TREE_ROW}, in order, for franchises f ⋈ branches b ⋈ products p
+     */
+    public static final String FRANCHISE_TREE_COLUMNS =
+            "f.id, f.name, b.id, b.name, p.id, p.name, p.stock";
+    
+    /**
+     * Columns read by {@link #BRANCH_TOP_PRODUCT_ROW}, in order, for branches b joined to a product p
+     */
+    public static final String BRANCH_TOP_PRODUCT_COLUMNS =
+            "b.id, b.name, b.franchise_id, p.id, p.name, p.stock";
+    
+    /**
+     * Columns read by {@link #FINGERPRINT}, in order: row count, ID sum and version sum of
+     * franchises f, branches b and products p
+     */
+    public static final String FINGERPRINT_COLUMNS =
+            "f.row_count, f.id_sum, f.version_sum, b.row_count, b.id_sum, b.version_sum, "
+                    + "p.row_count, p.id_sum, p.version_sum";
+    
+    private static final int FINGERPRINT_SIZE = 9;
+    
+    public static final BiFunction<Row, RowMetadata, Product> PRODUCT = (row, metadata) -> Product.builder()
+            .id(row.get(0, Long.class))
+            .name(row.get(1, String.class))
+            .stock(row.get(2, Integer.class))
+            .branchId(row.get(3, Long.class))
+            .version(row.get(4, Long.class))
+            .build();
+    
+    // Branches and franchises read on their own carry no children, so they share the immutable empty list
+    public static final BiFunction<Row, RowMetadata, Branch> BRANCH = (row, metadata) -> Branch.builder()
+            .id(row.get(0, Long.class))
+            .name(row.get(1, String.class))
+            .franchiseId(row.get(2, Long.class))
+            .products(List.of())
+            .build();
+    
+    public static final BiFunction<Row, RowMetadata, Franchise> FRANCHISE = (row, metadata) -> Franchise.builder()
+            .id(row.get(0, Long.class))
+            .name(row.get(1, String.class))
+            .branches(List.of())
+            .build();
+    
+    public static final BiFunction<Row, RowMetadata, FranchiseTreeRow> FRANCHISE_TREE_ROW =
+            (row, metadata) -> new FranchiseTreeRow(
+                    row.get(0, Long.class),
+                    row.get(1, String.class),
+                    row.get(2, Long.class),
+                    row.get(3, String.class),
+                    row.get(4, Long.class),
+                    row.get(5, String.class),
+                    row.get(6, Integer.class));
+    
+    public static final BiFunction<Row, RowMetadata, BranchTopProductRow> BRANCH_TOP_PRODUCT_ROW =
+            (row, metadata) -> new BranchTopProductRow(
+                    row.get(0, Long.class),
+                    row.get(1, String.class),
+                    row.get(2, Long.class),
+                    row.get(3, Long.class),
+                    row.get(4, String.class),
+                    row.get(5, Integer.class));
+    
+    // Base 36 keeps the ETag short
+    public static final BiFunction<Row, RowMetadata, String> FINGERPRINT = (row, metadata) -> {
+        StringBuilder fingerprint = new StringBuilder();
+        for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+            if (i > 0) {
+                fingerprint.append('.');
+            }
+            fingerprint.append(Long.toString(row.get(i, Long.class), 36));
+        }
+        return fingerprint.toString();
+    };
+    
+    private RowMappers() {
+    }
+}
@@ -1,9 +1,10 @@
 package com.nequi.franquicias.jpa.repositories;
 
 import com.nequi.franquicias.jpa.entities.BranchEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -12,13 +13,6 @@ import reactor.core.publisher.Mono;
 @Repository
 public interface BranchDataRepository extends ReactiveCrudRepository<BranchEntity, Long> {
     
-    /**
-     * Find all branches by franchise ID
-     * @param franchiseId the franchise ID
-     * @return Flux of branch entities
-     */
-    Flux<BranchEntity> findByFranchiseId(Long franchiseId);
-    
     /**
      * Check if branch exists by ID and franchise ID
      * @param id the branch ID
@@ -34,4 +28,14 @@ public interface BranchDataRepository extends ReactiveCrudRepository<BranchEntit
      * @return Mono of branch entity
      */
     Mono<BranchEntity> findByNameAndFranchiseId(String name, Long franchiseId);
+    
+    /**
+     * Update branch name
+     * @param id the branch ID
+     * @param name the new name
+     * @return Mono<Integer> number of affected rows
+     */
+    @Modifying
+    @Query("UPDATE branches SET name = :name, updated_at = NOW(), version = version + 1 WHERE id = :id")
+    Mono<Integer> updateNameById(Long id, String name);
 }
@@ -1,6 +1,8 @@
 package com.nequi.franquicias.jpa.repositories;
 
 import com.nequi.franquicias.jpa.entities.FranchiseEntity;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
@@ -24,4 +26,14 @@ public interface FranchiseDataRepository extends ReactiveCrudRepository<Franchis
      * @return Mono<Boolean>
      */
     Mono<Boolean> existsByName(String name);
+    
+    /**
+     * Update franchise name
+     * @param id the franchise ID
+     * @param name the new name
+     * @return Mono<Integer> number of affected rows
+     */
+    @Modifying
+    @Query("UPDATE franchises SET name = :name, updated_at = NOW(), version = version + 1 WHERE id = :id")
+    Mono<Integer> updateNameById(Long id, String name);
 }
@@ -0,0 +1,13 @@
+-- Composite index for per-branch product access
+-- V3__Add_products_branch_stock_index.sql
+
+-- Covers top stock per branch (branch_id = ? ORDER BY stock DESC, id) and per-branch listings
+-- without a filesort. Created before the old indexes are dropped so fk_products_branch
+-- always has an index with branch_id as its leftmost column.
+CREATE INDEX idx_products_branch_stock ON products (branch_id, stock DESC, id);
+
+-- Standalone stock index is never used by a query and slows down every stock write
+DROP INDEX idx_products_stock ON products;
+
+-- Redundant: branch_id is the leftmost prefix of idx_products_branch_stock
+DROP INDEX idx_products_branch_id ON products;
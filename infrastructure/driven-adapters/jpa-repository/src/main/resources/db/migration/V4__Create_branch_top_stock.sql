@@ -0,0 +1,31 @@
+-- Materialized top stock product per branch
+-- V4__Create_branch_top_stock.sql
+
+-- One row per branch that has products, pointing at its product with the highest stock
+-- (ties broken by lowest ID). Kept up to date by ProductRepositoryAdapter in the same
+-- transaction as every product write. Deleting the top product removes the row through
+-- the foreign key; the adapter then recomputes it from idx_products_branch_stock.
+CREATE TABLE branch_top_stock (
+    branch_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    stock INT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (branch_id),
+    KEY idx_branch_top_stock_product (product_id),
+    CONSTRAINT fk_branch_top_stock_branch FOREIGN KEY (branch_id)
+        REFERENCES branches (id) ON DELETE CASCADE,
+    CONSTRAINT fk_branch_top_stock_product FOREIGN KEY (product_id)
+        REFERENCES products (id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Backfill: one index dive per branch
+INSERT INTO branch_top_stock (branch_id, product_id, stock)
+SELECT b.id, top.id, top.stock
+FROM branches b,
+LATERAL (
+    SELECT p.id, p.stock
+    FROM products p
+    WHERE p.branch_id = b.id
+    ORDER BY p.stock DESC, p.id
+    LIMIT 1
+) AS top;
@@ -0,0 +1,8 @@
+-- Optimistic locking for products
+-- V5__Add_products_version.sql
+
+-- Incremented by every write to a product. Spring Data R2DBC checks it on entity saves,
+-- and the adapter's single-statement updates bump it and, when the client sent If-Match,
+-- only apply to the expected version. Exposed to clients as the product ETag.
+ALTER TABLE products
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER branch_id;
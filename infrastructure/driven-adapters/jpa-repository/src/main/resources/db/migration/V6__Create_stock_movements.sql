@@ -0,0 +1,33 @@
+-- Append-only stock ledger
+-- V6__Create_stock_movements.sql
+
+-- Every ledger change (set, delta, transfer leg) is one row. Appends are plain inserts into
+-- the auto-increment tail, so they scale with insert throughput instead of queueing on the
+-- row lock of a hot product. There is deliberately no foreign key to products: checking it
+-- would take a shared lock on the very row the ledger avoids. Movements of a deleted product
+-- are kept as history and ignored by the compactor.
+CREATE TABLE stock_movements (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    product_id BIGINT NOT NULL,
+    movement_type VARCHAR(16) NOT NULL,
+    quantity INT NOT NULL,
+    counterpart_product_id BIGINT NULL,
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (id),
+    KEY idx_stock_movements_product (product_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Last movement folded into products.stock. The current stock of a product is its stock
+-- plus the movements with a higher ID, read through idx_stock_movements_product.
+ALTER TABLE products
+    ADD COLUMN ledger_movement_id BIGINT NOT NULL DEFAULT 0 AFTER version;
+
+-- Global compaction position, a single row locked by the compactor so that only one
+-- instance folds movements at a time
+CREATE TABLE stock_ledger_cursor (
+    id TINYINT NOT NULL,
+    movement_id BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+INSERT INTO stock_ledger_cursor (id, movement_id) VALUES (1, 0);
@@ -0,0 +1,12 @@
+-- Change counters for franchises and branches
+-- V7__Add_franchises_branches_version.sql
+
+-- Incremented by every rename, like products.version. Together with row counts and ID sums
+-- they make up the catalog fingerprint used as the ETag of the catalog reads: inserts raise
+-- the ID sum, deletes lower the count and updates raise the version sum, so any change moves
+-- the fingerprint without reading the rows themselves.
+ALTER TABLE franchises
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER name;
+
+ALTER TABLE branches
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER franchise_id;
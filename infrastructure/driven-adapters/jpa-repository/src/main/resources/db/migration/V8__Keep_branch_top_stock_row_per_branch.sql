@@ -0,0 +1,22 @@
+-- One branch_top_stock row for every branch
+-- V8__Keep_branch_top_stock_row_per_branch.sql
+
+-- Writers lock the branch's row before reading its products. A branch without a row left
+-- nothing to lock, so concurrent first inserts could each recompute and the last write won,
+-- and locking the missing row took gap locks that deadlocked inserts into neighbouring empty
+-- branches. The row is now created with the branch; an empty branch has no product and no stock.
+-- The product foreign key goes: its check took shared locks on the new top product while the
+-- branch row was held, which could wait on a writer of that product waiting for the branch row.
+-- The adapter recomputes the branch when it deletes its top product instead.
+ALTER TABLE branch_top_stock
+    DROP FOREIGN KEY fk_branch_top_stock_product;
+
+ALTER TABLE branch_top_stock
+    MODIFY product_id BIGINT NULL,
+    MODIFY stock INT NULL;
+
+-- Branches without products had no row
+INSERT INTO branch_top_stock (branch_id, product_id, stock)
+SELECT b.id, NULL, NULL
+FROM branches b
+WHERE NOT EXISTS (SELECT 1 FROM branch_top_stock t WHERE t.branch_id = b.id);
@@ -0,0 +1,159 @@
+package com.nequi.franquicias.jpa;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query-shape audit for the hot product queries
+ * Migrates a MySQL container with the Flyway scripts, fills it with enough rows for the optimizer to prefer
+ * indexes, and checks EXPLAIN FORMAT=JSON of each query: the expected index, no full scan and no filesort.
+ * The queries mirror the SQL of ProductRepositoryAdapter and ProductDataRepository with literal parameters.
+ */
+@Testcontainers
+class QueryPlanTest {
+    
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    
+    @BeforeAll
+    static void migrateAndSeed() throws SQLException {
+        Flyway.configure()
+                .dataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO branches (name, franchise_id) "
+                    + "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 60) "
+                    + "SELECT CONCAT('Branch ', n), 1 + n % 3 FROM seq");
+            statement.execute("INSERT INTO products (name, stock, branch_id) "
+                    + "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 100) "
+                    + "SELECT CONCAT('Product ', seq.n), (seq.n * 37 + b.id) % 500, b.id FROM branches b, seq");
+            statement.execute("DELETE FROM branch_top_stock");
+            statement.execute("INSERT INTO branch_top_stock (branch_id, product_id, stock) "
+                    + "SELECT b.id, top.id, top.stock FROM branches b, LATERAL ("
+                    + "SELECT p.id, p.stock FROM products p WHERE p.branch_id = b.id "
+                    + "ORDER BY p.stock DESC, p.id LIMIT 1) AS top");
+            statement.execute("ANALYZE TABLE franchises, branches, products, branch_top_stock");
+        }
+    }
+    
+    @Test
+    void topStockByBranchWalksTheCompositeIndex() throws SQLException {
+        // ProductRepositoryAdapter.findTopByBranchIdOrderByStockDesc
+        JsonNode plan = explain("SELECT id, name, stock, branch_id, version FROM products "
+                + "WHERE branch_id = 7 ORDER BY stock DESC, id LIMIT 1");
+        
+        assertIndexAccess(plan, "products", "idx_products_branch_stock");
+        assertNoFilesort(plan);
+    }
+    
+    @Test
+    void findByBranchIdUsesTheCompositeIndex() throws SQLException {
+        // ProductRepositoryAdapter.findByBranchId
+        JsonNode plan = explain("SELECT id, name, stock, branch_id, version FROM products WHERE branch_id = 7");
+        
+        assertIndexAccess(plan, "products", "idx_products_branch_stock");
+        assertNoFilesort(plan);
+    }
+    
+    @Test
+    void branchProductsInStockOrderNeedNoFilesort() throws SQLException {
+        // Per-branch read in stock order, as consumed by the top N ranking
+        JsonNode plan = explain("SELECT id, stock FROM products WHERE branch_id = 7 ORDER BY stock DESC, id");
+        
+        assertIndexAccess(plan, "products", "idx_products_branch_stock");
+        assertNoFilesort(plan);
+    }
+    
+    @Test
+    void existsByIdAndBranchIdIsAPrimaryKeyLookup() throws SQLException {
+        // ProductDataRepository.existsByIdAndBranchId, as derived by Spring Data R2DBC
+        JsonNode plan = explain("SELECT products.id FROM products WHERE products.id = 7 AND products.branch_id = 1 LIMIT 1");
+        
+        // The primary key pins a single row, which beats any range over the branch
+        assertIndexAccess(plan, "products", "PRIMARY");
+        assertNoFilesort(plan);
+    }
+    
+    @Test
+    void topStockReadModelIsALookupPerBranch() throws SQLException {
+        // ProductRepositoryAdapter.findTopStockProductsPerBranch with limit 1
+        JsonNode plan = explain("SELECT b.id, b.name, p.id, p.name, p.stock FROM branches b "
+                + "LEFT JOIN branch_top_stock t ON t.branch_id = b.id "
+                + "LEFT JOIN products p ON p.id = t.product_id "
+                + "WHERE b.franchise_id IN (1) ORDER BY b.franchise_id, b.id");
+        
+        assertIndexAccess(plan, "b", "idx_branches_franchise_id");
+        assertIndexAccess(plan, "t", "PRIMARY");
+        assertIndexAccess(plan, "p", "PRIMARY");
+        assertNoFilesort(plan);
+    }
+    
+    private static JsonNode explain(String sql) throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("EXPLAIN FORMAT=JSON " + sql)) {
+            assertTrue(result.next(), "EXPLAIN returned no plan for " + sql);
+            return JSON.readTree(result.getString(1));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable plan for " + sql, e);
+        }
+    }
+    
+    private static void assertIndexAccess(JsonNode plan, String tableName, String expectedKey) {
+        JsonNode table = tables(plan).stream()
+                .filter(node -> tableName.equals(node.path("table_name").asText()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No table " + tableName + " in plan " + plan));
+        String accessType = table.path("access_type").asText();
+        
+        assertNotEquals("ALL", accessType, "Full scan of " + tableName + ": " + table);
+        assertNotEquals("index", accessType, "Full index scan of " + tableName + ": " + table);
+        assertEquals(expectedKey, table.path("key").asText(), "Wrong index for " + tableName + ": " + table);
+    }
+    
+    private static void assertNoFilesort(JsonNode plan) {
+        assertFalse(plan.findValues("using_filesort").stream().anyMatch(JsonNode::asBoolean),
+                "Plan uses a filesort: " + plan);
+        assertFalse(plan.findValues("using_temporary_table").stream().anyMatch(JsonNode::asBoolean),
+                "Plan uses a temporary table: " + plan);
+    }
+    
+    private static List<JsonNode> tables(JsonNode plan) {
+        List<JsonNode> tables = new ArrayList<>();
+        for (JsonNode node : plan.findValues("table")) {
+            if (node.isObject()) {
+                tables.add(node);
+            }
+        }
+        return tables;
+    }
+    
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword());
+    }
+}
@@ -0,0 +1,78 @@
+package com.nequi.franquicias.jpa.adapters;
+
+import com.nequi.franquicias.jpa.repositories.BranchDataRepository;
+import com.nequi.franquicias.jpa.repositories.FranchiseDataRepository;
+import com.nequi.franquicias.jpa.repositories.ProductDataRepository;
+import com.nequi.franquicias.model.gateways.BranchRepository;
+import com.nequi.franquicias.model.gateways.CatalogGatewayContract;
+import com.nequi.franquicias.model.gateways.FranchiseRepository;
+import com.nequi.franquicias.model.gateways.ProductRepository;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.MySQLR2DBCDatabaseContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Gateway contract run against the R2DBC adapters and a MySQL container migrated with the Flyway scripts
+ * The adapters are wired by hand the way the Spring context wires them. The database is shared by all
+ * tests, which the contract allows for by using unique names.
+ */
+@Testcontainers
+class R2dbcGatewayContractTest extends CatalogGatewayContract {
+    
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+    
+    private static FranchiseRepository franchiseRepository;
+    private static BranchRepository branchRepository;
+    private static ProductRepository productRepository;
+    
+    @BeforeAll
+    static void migrateAndWire() {
+        Flyway.configure()
+                .dataSource(MYSQL.getJdbcUrl(), MYSQL.getUsername(), MYSQL.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        
+        ConnectionFactory connectionFactory = ConnectionFactories.get(MySQLR2DBCDatabaseContainer.getOptions(MYSQL));
+        DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+        R2dbcRepositoryFactory repositories = new R2dbcRepositoryFactory(
+                new R2dbcEntityTemplate(databaseClient, MySqlDialect.INSTANCE));
+        TransactionalOperator transactionalOperator =
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        
+        franchiseRepository = new FranchiseRepositoryAdapter(
+                repositories.getRepository(FranchiseDataRepository.class), databaseClient, transactionalOperator);
+        branchRepository = new BranchRepositoryAdapter(
+                repositories.getRepository(BranchDataRepository.class), databaseClient, transactionalOperator);
+        productRepository = new ProductRepositoryAdapter(
+                repositories.getRepository(ProductDataRepository.class), databaseClient, transactionalOperator,
+                new TopStockRefresher(databaseClient));
+    }
+    
+    @Override
+    protected FranchiseRepository franchiseRepository() {
+        return franchiseRepository;
+    }
+    
+    @Override
+    protected BranchRepository branchRepository() {
+        return branchRepository;
+    }
+    
+    @Override
+    protected ProductRepository productRepository() {
+        return productRepository;
+    }
+}
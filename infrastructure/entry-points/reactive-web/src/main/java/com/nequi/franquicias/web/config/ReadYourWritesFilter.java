@@ -0,0 +1,90 @@
+package com.nequi.franquicias.web.config;
+
+import com.nequi.franquicias.model.routing.ConnectionRoute;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes stickiness for replica routing
+ * After a client writes, its reads are pinned to the writer for a configurable window,
+ * so it never reads a replica that has not caught up with its own change yet.
+ * The time of the last write travels with the client instead of being kept per instance: every write
+ * response carries it in a cookie and in the X-Last-Write header, and a read that echoes either one
+ * back is pinned while the window is open. This works behind proxies and across instances; clients that
+ * keep neither the cookie nor the header read from the reader right after their writes.
+ */
+@Component
+public class ReadYourWritesFilter implements WebFilter {
+    
+    public static final String LAST_WRITE_HEADER = "X-Last-Write";
+    public static final String LAST_WRITE_COOKIE = "last-write";
+    
+    private final Duration stickyWindow;
+    
+    public ReadYourWritesFilter(@Value("${spring.r2dbc.reader.sticky-window:5s}") Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (stickyWindow.isZero() || stickyWindow.isNegative()) {
+            return chain.filter(exchange);
+        }
+        
+        if (isWrite(exchange.getRequest().getMethod())) {
+            // Stamped before the response is sent, so the client cannot observe the write before being pinned
+            exchange.getResponse().beforeCommit(() -> Mono.fromRunnable(() -> stampWrite(exchange)));
+            return chain.filter(exchange);
+        }
+        
+        if (wroteRecently(exchange)) {
+            return chain.filter(exchange).contextWrite(ConnectionRoute::stickToWriter);
+        }
+        return chain.filter(exchange);
+    }
+    
+    private boolean isWrite(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT
+                || method == HttpMethod.PATCH || method == HttpMethod.DELETE;
+    }
+    
+    private void stampWrite(ServerWebExchange exchange) {
+        String writtenAt = Long.toString(System.currentTimeMillis());
+        exchange.getResponse().getHeaders().set(LAST_WRITE_HEADER, writtenAt);
+        exchange.getResponse().addCookie(ResponseCookie.from(LAST_WRITE_COOKIE, writtenAt)
+                .path("/")
+                .maxAge(stickyWindow)
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build());
+    }
+    
+    private boolean wroteRecently(ServerWebExchange exchange) {
+        String writtenAt = exchange.getRequest().getHeaders().getFirst(LAST_WRITE_HEADER);
+        if (writtenAt == null) {
+            HttpCookie cookie = exchange.getRequest().getCookies().getFirst(LAST_WRITE_COOKIE);
+            writtenAt = cookie != null ? cookie.getValue() : null;
+        }
+        if (writtenAt == null) {
+            return false;
+        }
+        try {
+            long age = System.currentTimeMillis() - Long.parseLong(writtenAt.trim());
+            // Clock skew between instances may put a stamp slightly in the future; one further ahead than the
+            // window was not issued by an instance and is ignored, or it would pin the client forever
+            long window = stickyWindow.toMillis();
+            return age >= -window && age <= window;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO for adjusting product stock by a relative amount
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdjustStockRequest {
+    
+    @NotNull(message = "Stock delta cannot be null")
+    @JsonProperty("delta")
+    private Integer delta; // negative to subtract
+}
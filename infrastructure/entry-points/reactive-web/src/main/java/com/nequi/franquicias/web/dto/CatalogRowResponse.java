@@ -0,0 +1,38 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one flat row of the catalog export
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogRowResponse {
+    
+    @JsonProperty("franchise_id")
+    private Long franchiseId;
+    
+    @JsonProperty("franchise_name")
+    private String franchiseName;
+    
+    @JsonProperty("branch_id")
+    private Long branchId;
+    
+    @JsonProperty("branch_name")
+    private String branchName;
+    
+    @JsonProperty("product_id")
+    private Long productId;
+    
+    @JsonProperty("product_name")
+    private String productName;
+    
+    @JsonProperty("stock")
+    private Integer stock;
+}
@@ -0,0 +1,38 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one line of the streamed product import report
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportEventResponse {
+    
+    @JsonProperty("type")
+    private String type; // PROGRESS, ERROR or SUMMARY
+    
+    @JsonProperty("line")
+    private Long line;
+    
+    @JsonProperty("message")
+    private String message;
+    
+    @JsonProperty("processed")
+    private Long processed;
+    
+    @JsonProperty("inserted")
+    private Long inserted;
+    
+    @JsonProperty("skipped")
+    private Long skipped;
+    
+    @JsonProperty("rejected")
+    private Long rejected;
+}
@@ -26,4 +26,10 @@ public class ProductResponse {
     
     @JsonProperty("branch_id")
     private Long branchId;
+    
+    /**
+     * Also sent as the ETag header; send it back in If-Match to update only this version
+     */
+    @JsonProperty("version")
+    private Long version;
 }
@@ -0,0 +1,29 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO for a single item of a batch stock update
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchItemRequest {
+    
+    @NotNull(message = "Product ID cannot be null")
+    @JsonProperty("product_id")
+    private Long productId;
+    
+    @NotNull(message = "Stock quantity cannot be null")
+    @Min(value = 0, message = "Stock quantity cannot be negative")
+    @JsonProperty("stock")
+    private Integer stock;
+}
@@ -0,0 +1,29 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the outcome of a single item of a batch stock update
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchItemResponse {
+    
+    public static final String STATUS_UPDATED = "UPDATED";
+    public static final String STATUS_NOT_FOUND = "NOT_FOUND";
+    
+    @JsonProperty("product_id")
+    private Long productId;
+    
+    @JsonProperty("stock")
+    private Integer stock;
+    
+    @JsonProperty("status")
+    private String status;
+}
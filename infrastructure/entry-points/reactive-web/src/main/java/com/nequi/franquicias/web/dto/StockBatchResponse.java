@@ -0,0 +1,31 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for the result of a batch stock update
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchResponse {
+    
+    @JsonProperty("branch_id")
+    private Long branchId;
+    
+    @JsonProperty("updated")
+    private Integer updated;
+    
+    @JsonProperty("not_found")
+    private Integer notFound;
+    
+    @JsonProperty("results")
+    private List<StockBatchItemResponse> results; // same order as the request items
+}
@@ -0,0 +1,29 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the current stock of a product derived from the ledger
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelResponse {
+    
+    @JsonProperty("product_id")
+    private Long productId;
+    
+    @JsonProperty("stock")
+    private Integer stock;
+    
+    @JsonProperty("snapshot_stock")
+    private Integer snapshotStock; // stock stored in the product by the last compaction or direct write
+    
+    @JsonProperty("pending_movements")
+    private Integer pendingMovements; // movements not yet folded into the snapshot
+}
@@ -0,0 +1,28 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for a keyset-paginated page of stock movements
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementPageResponse {
+    
+    @JsonProperty("items")
+    private List<StockMovementResponse> items;
+    
+    @JsonProperty("limit")
+    private Integer limit;
+    
+    @JsonProperty("next_cursor")
+    private Long nextCursor; // null when this is the last page
+}
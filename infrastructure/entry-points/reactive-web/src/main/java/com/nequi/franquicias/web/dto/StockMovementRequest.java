@@ -0,0 +1,28 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO for appending a movement to the stock ledger of a product
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementRequest {
+    
+    @NotBlank(message = "Movement type cannot be blank")
+    @JsonProperty("type")
+    private String type; // SET or DELTA
+    
+    @NotNull(message = "Movement quantity cannot be null")
+    @JsonProperty("quantity")
+    private Integer quantity; // new stock for SET, amount to add for DELTA
+}
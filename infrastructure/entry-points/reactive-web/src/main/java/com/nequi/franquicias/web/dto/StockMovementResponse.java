@@ -0,0 +1,37 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one movement of the stock ledger
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResponse {
+    
+    @JsonProperty("id")
+    private Long id;
+    
+    @JsonProperty("product_id")
+    private Long productId;
+    
+    @JsonProperty("type")
+    private String type;
+    
+    @JsonProperty("quantity")
+    private Integer quantity;
+    
+    @JsonProperty("counterpart_product_id")
+    private Long counterpartProductId; // only for transfers
+    
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt;
+}
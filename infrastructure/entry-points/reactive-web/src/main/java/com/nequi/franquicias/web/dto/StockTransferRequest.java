@@ -0,0 +1,33 @@
+package com.nequi.franquicias.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO for moving stock from one product to another through the ledger
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTransferRequest {
+    
+    @NotNull(message = "Source product ID cannot be null")
+    @JsonProperty("from_product_id")
+    private Long fromProductId;
+    
+    @NotNull(message = "Destination product ID cannot be null")
+    @JsonProperty("to_product_id")
+    private Long toProductId;
+    
+    @NotNull(message = "Transfer quantity cannot be null")
+    @Min(value = 1, message = "Transfer quantity must be positive")
+    @JsonProperty("quantity")
+    private Integer quantity;
+}
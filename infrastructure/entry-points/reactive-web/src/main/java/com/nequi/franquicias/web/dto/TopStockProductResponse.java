@@ -15,6 +15,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class TopStockProductResponse {
     
+    @JsonProperty("franchise_id")
+    private Long franchiseId;
+    
     @JsonProperty("branch_id")
     private Long branchId;
     
@@ -30,6 +33,9 @@ public class TopStockProductResponse {
     @JsonProperty("stock")
     private Integer stock;
     
+    @JsonProperty("rank")
+    private Integer rank;
+    
     @JsonProperty("has_product")
     private Boolean hasProduct;
 }
@@ -2,7 +2,10 @@ package com.nequi.franquicias.web.exception;
 
 import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.model.exceptions.DomainException;
+import com.nequi.franquicias.model.exceptions.DuplicateEntityException;
 import com.nequi.franquicias.model.exceptions.EntityNotFoundException;
+import com.nequi.franquicias.model.exceptions.InsufficientStockException;
+import com.nequi.franquicias.model.exceptions.VersionConflictException;
 import com.nequi.franquicias.web.dto.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
@@ -52,6 +55,14 @@ public class GlobalExceptionHandler implements WebExceptionHandler {
             return buildBadRequestResponse((BusinessValidationException) ex, path);
         }
         
+        if (ex instanceof InsufficientStockException || ex instanceof DuplicateEntityException) {
+            return buildConflictResponse((DomainException) ex, path);
+        }
+        
+        if (ex instanceof VersionConflictException) {
+            return buildPreconditionFailedResponse((VersionConflictException) ex, path);
+        }
+        
         if (ex instanceof WebExchangeBindException) {
             return buildValidationErrorResponse((WebExchangeBindException) ex, path);
         }
@@ -85,6 +96,28 @@ public class GlobalExceptionHandler implements WebExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
     
+    private ResponseEntity<ErrorResponse> buildConflictResponse(DomainException ex, String path) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .error("Conflict")
+                .message(ex.getMessage())
+                .path(path)
+                .build();
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+    
+    private ResponseEntity<ErrorResponse> buildPreconditionFailedResponse(VersionConflictException ex, String path) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .status(HttpStatus.PRECONDITION_FAILED.value())
+                .error("Precondition Failed")
+                .message(ex.getMessage())
+                .path(path)
+                .build();
+        
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+    
     private ResponseEntity<ErrorResponse> buildValidationErrorResponse(WebExchangeBindException ex, String path) {
         var fieldErrors = ex.getBindingResult().getFieldErrors().stream()
                 .map(error -> ErrorResponse.FieldError.builder()
@@ -28,6 +28,7 @@ public class BranchHandler {
     /**
      * Add a new branch to a franchise
      * POST /api/v1/franchises/{franchiseId}/branches
+     * With ?upsert=true or an Idempotency-Key header, an existing branch with the same name is returned
      */
     public Mono<ServerResponse> addBranchToFranchise(ServerRequest request) {
         String franchiseId = request.pathVariable("franchiseId");
@@ -36,7 +37,8 @@ public class BranchHandler {
         return request.bodyToMono(CreateBranchRequest.class)
                 .doOnNext(req -> log.debug("Create branch request: {}", req))
                 .map(BranchWebMapper::toDomain)
-                .flatMap(branch -> addBranchToFranchiseUseCase.execute(Long.valueOf(franchiseId), branch))
+                .flatMap(branch -> addBranchToFranchiseUseCase.execute(Long.valueOf(franchiseId), branch,
+                        RequestParameters.upsertRequested(request)))
                 .map(BranchWebMapper::toResponse)
                 .flatMap(response -> ServerResponse
                         .ok()
@@ -0,0 +1,99 @@
+package com.nequi.franquicias.web.handlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nequi.franquicias.model.CatalogRow;
+import com.nequi.franquicias.web.dto.CatalogRowResponse;
+import com.nequi.franquicias.web.mappers.FranchiseWebMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encoders writing catalog rows straight into response buffers
+ * Rows are grouped into small chunks per buffer, so at most one chunk is held in memory at a time
+ */
+final class CatalogExportWriter {
+    
+    private static final int ROWS_PER_BUFFER = 256;
+    private static final int ESTIMATED_ROW_BYTES = 160;
+    private static final byte[] NEW_LINE = {'\n'};
+    private static final String CSV_HEADER =
+            "franchise_id,franchise_name,branch_id,branch_name,product_id,product_name,stock\n";
+    
+    private CatalogExportWriter() {
+    }
+    
+    /**
+     * Encode rows as newline delimited JSON
+     * @param rows the catalog rows
+     * @param bufferFactory factory of the response, so buffers are allocated by the server
+     * @param objectMapper mapper used to write each row
+     * @return Flux of buffers ready to be written to the response
+     */
+    static Flux<DataBuffer> ndjson(Flux<CatalogRow> rows, DataBufferFactory bufferFactory, ObjectMapper objectMapper) {
+        ObjectWriter writer = objectMapper.writerFor(CatalogRowResponse.class);
+        return rows.buffer(ROWS_PER_BUFFER)
+                .map(chunk -> write(bufferFactory, chunk, (buffer, row) -> {
+                    buffer.write(writer.writeValueAsBytes(FranchiseWebMapper.toCatalogRowResponse(row)));
+                    buffer.write(NEW_LINE);
+                }));
+    }
+    
+    /**
+     * Encode rows as CSV with a header line
+     * @param rows the catalog rows
+     * @param bufferFactory factory of the response, so buffers are allocated by the server
+     * @return Flux of buffers ready to be written to the response
+     */
+    static Flux<DataBuffer> csv(Flux<CatalogRow> rows, DataBufferFactory bufferFactory) {
+        Flux<DataBuffer> header = Flux.defer(() ->
+                Flux.just(bufferFactory.wrap(CSV_HEADER.getBytes(StandardCharsets.UTF_8))));
+        return header.concatWith(rows.buffer(ROWS_PER_BUFFER)
+                .map(chunk -> write(bufferFactory, chunk, (buffer, row) -> {
+                    StringBuilder line = new StringBuilder(ESTIMATED_ROW_BYTES)
+                            .append(csvValue(row.getFranchiseId())).append(',')
+                            .append(csvValue(row.getFranchiseName())).append(',')
+                            .append(csvValue(row.getBranchId())).append(',')
+                            .append(csvValue(row.getBranchName())).append(',')
+                            .append(csvValue(row.getProductId())).append(',')
+                            .append(csvValue(row.getProductName())).append(',')
+                            .append(csvValue(row.getStock())).append('\n');
+                    buffer.write(line, StandardCharsets.UTF_8);
+                })));
+    }
+    
+    private static DataBuffer write(DataBufferFactory bufferFactory, List<CatalogRow> chunk, RowWriter rowWriter) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(chunk.size() * ESTIMATED_ROW_BYTES);
+        try {
+            for (CatalogRow row : chunk) {
+                rowWriter.write(buffer, row);
+            }
+            return buffer;
+        } catch (JsonProcessingException | RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw new IllegalStateException("Could not encode catalog row", e);
+        }
+    }
+    
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+    
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(DataBuffer buffer, CatalogRow row) throws JsonProcessingException;
+    }
+}
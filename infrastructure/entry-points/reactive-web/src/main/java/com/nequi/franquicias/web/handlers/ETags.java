@@ -0,0 +1,110 @@
+package com.nequi.franquicias.web.handlers;
+
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Helpers for ETags
+ * Products are tagged with the strong, quoted version number, so If-Match maps directly to a conditional
+ * UPDATE. Catalog reads are tagged with a fingerprint of the data, so If-None-Match is answered with a
+ * 304 before the data is loaded.
+ */
+final class ETags {
+    
+    private static final String ANY = "*";
+    
+    private ETags() {
+    }
+    
+    /**
+     * Add the ETag of a version to a response, if the version is known
+     * @param builder the response being built
+     * @param version the entity version, may be null
+     * @return the same builder
+     */
+    static ServerResponse.BodyBuilder tag(ServerResponse.BodyBuilder builder, Long version) {
+        return version != null ? builder.eTag(String.valueOf(version)) : builder;
+    }
+    
+    /**
+     * Answer a conditional GET
+     * The fingerprint is resolved first: when the client already holds that representation the response
+     * is a 304 and the data is never loaded nor serialized, otherwise the full response carries the ETag.
+     * @param request the server request
+     * @param fingerprint fingerprint of the data the response is built from
+     * @param response builds the full response from a builder already carrying the ETag
+     * @return the 304 or full response
+     */
+    static Mono<ServerResponse> conditional(ServerRequest request, Mono<String> fingerprint,
+                                            Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> response) {
+        return conditional(request, fingerprint, (ok, etag) -> response.apply(ok));
+    }
+    
+    /**
+     * Answer a conditional GET whose response is built for the fingerprint it is tagged with
+     * @param request the server request
+     * @param fingerprint fingerprint of the data the response is built from
+     * @param response builds the full response from a builder already carrying the ETag and the fingerprint
+     * @return the 304 or full response
+     */
+    static Mono<ServerResponse> conditional(ServerRequest request, Mono<String> fingerprint,
+                                            BiFunction<ServerResponse.BodyBuilder, String, Mono<ServerResponse>> response) {
+        return fingerprint.flatMap(etag -> ifNoneMatch(request, etag)
+                ? ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build()
+                : response.apply(ServerResponse.ok().eTag(etag), etag));
+    }
+    
+    /**
+     * Whether the If-None-Match header lists an ETag, using the weak comparison RFC 9110 prescribes for it
+     * @param request the server request
+     * @param etag the current ETag, unquoted
+     * @return true if the client already holds the representation
+     */
+    static boolean ifNoneMatch(ServerRequest request, String etag) {
+        String quoted = "\"" + etag + "\"";
+        for (String header : request.headers().header(HttpHeaders.IF_NONE_MATCH)) {
+            for (String candidate : header.split(",")) {
+                String value = candidate.trim();
+                if (value.startsWith("W/")) {
+                    value = value.substring(2);
+                }
+                if (ANY.equals(value) || quoted.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Read the version a write is conditioned on from the If-Match header
+     * A bare number is accepted as well as a quoted ETag; weak ETags never match a write (RFC 9110)
+     * @param request the server request
+     * @return the expected version, or null if the header is absent or "*"
+     */
+    static Long ifMatchVersion(ServerRequest request) {
+        String header = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (header == null || header.isBlank() || ANY.equals(header.trim())) {
+            return null;
+        }
+        String value = header.trim();
+        if (value.startsWith("W/")) {
+            throw new BusinessValidationException("If-Match requires a strong ETag");
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new BusinessValidationException("If-Match must be a single ETag returned by this API");
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.nequi.franquicias.web.handlers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nequi.franquicias.model.CatalogRow;
 import com.nequi.franquicias.usecase.franchise.CreateFranchiseUseCase;
+import com.nequi.franquicias.usecase.franchise.ExportCatalogUseCase;
 import com.nequi.franquicias.usecase.franchise.GetAllFranchisesUseCase;
 import com.nequi.franquicias.usecase.franchise.GetTopStockProductPerBranchUseCase;
 import com.nequi.franquicias.usecase.franchise.UpdateFranchiseNameUseCase;
 import com.nequi.franquicias.web.dto.CreateFranchiseRequest;
+import com.nequi.franquicias.web.dto.FranchiseResponse;
 import com.nequi.franquicias.web.dto.UpdateNameRequest;
 import com.nequi.franquicias.web.mappers.FranchiseWebMapper;
 import com.nequi.franquicias.web.mappers.ProductWebMapper;
@@ -12,10 +16,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Reactive handler for Franchise operations
  * Following Clean Architecture principles with RouterFunctions
@@ -25,10 +33,14 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class FranchiseHandler {
     
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    
     private final CreateFranchiseUseCase createFranchiseUseCase;
     private final GetAllFranchisesUseCase getAllFranchisesUseCase;
     private final UpdateFranchiseNameUseCase updateFranchiseNameUseCase;
     private final GetTopStockProductPerBranchUseCase getTopStockProductPerBranchUseCase;
+    private final ExportCatalogUseCase exportCatalogUseCase;
+    private final ObjectMapper objectMapper;
     
     /**
      * Create a new franchise
@@ -52,22 +64,85 @@ public class FranchiseHandler {
     
     /**
      * Get all franchises
-     * GET /api/v1/franchises
+     * GET /api/v1/franchises[?after={cursor}&limit={size}]
+     * With after/limit a keyset page is returned; with Accept: application/x-ndjson
+     * franchises are streamed one per line as soon as they are assembled
+     * Responses carry an ETag of the catalog; a matching If-None-Match gets a 304 without loading it
      */
     public Mono<ServerResponse> getAllFranchises(ServerRequest request) {
         log.info("Getting all franchises");
         
-        return getAllFranchisesUseCase.execute()
-                .map(FranchiseWebMapper::toResponse)
-                .collectList()
-                .flatMap(responseList -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(responseList))
+        return Mono.defer(() -> {
+                    boolean paged = request.queryParam("after").isPresent() || request.queryParam("limit").isPresent();
+                    Long afterId = RequestParameters.longParam(request, "after").orElse(null);
+                    Integer limit = RequestParameters.intParam(request, "limit", GetAllFranchisesUseCase.DEFAULT_PAGE_SIZE);
+                    boolean ndjson = acceptsNdjson(request);
+                    // JSON and NDJSON are different representations of the same URL, so they need different ETags
+                    Mono<String> fingerprint = getAllFranchisesUseCase.fingerprint()
+                            .map(catalog -> ndjson ? catalog + ".ndjson" : catalog);
+                    
+                    return ETags.conditional(request, fingerprint, ok -> {
+                        if (ndjson) {
+                            Flux<FranchiseResponse> franchises = (paged
+                                    ? getAllFranchisesUseCase.execute(afterId, limit)
+                                    : getAllFranchisesUseCase.execute())
+                                    .map(FranchiseWebMapper::toResponse);
+                            return ok
+                                    .contentType(MediaType.APPLICATION_NDJSON)
+                                    .body(franchises, FranchiseResponse.class);
+                        }
+                        
+                        if (paged) {
+                            return getAllFranchisesUseCase.execute(afterId, limit)
+                                    .map(FranchiseWebMapper::toResponse)
+                                    .collectList()
+                                    .map(items -> FranchiseWebMapper.toPageResponse(items, limit))
+                                    .flatMap(page -> ok
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .bodyValue(page));
+                        }
+                        
+                        // Encoded as a JSON array element by element, without collecting the catalog first
+                        return ok
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .body(getAllFranchisesUseCase.execute().map(FranchiseWebMapper::toResponse),
+                                        FranchiseResponse.class);
+                    });
+                })
                 .doOnSuccess(response -> log.info("All franchises retrieved successfully"))
                 .doOnError(error -> log.error("Error getting all franchises: {}", error.getMessage()));
     }
     
+    /**
+     * Export the whole catalog as flat rows
+     * GET /api/v1/catalog:export[?format=csv]
+     * Rows are encoded straight into response buffers as they are read, NDJSON by default
+     */
+    public Mono<ServerResponse> exportCatalog(ServerRequest request) {
+        log.info("Exporting catalog");
+        
+        return Mono.defer(() -> {
+                    boolean csv = request.queryParam("format").map("csv"::equalsIgnoreCase).orElse(false)
+                            || request.headers().accept().stream().anyMatch(TEXT_CSV::equalsTypeAndSubtype);
+                    Flux<CatalogRow> rows = exportCatalogUseCase.execute();
+                    var bufferFactory = request.exchange().getResponse().bufferFactory();
+                    
+                    return ServerResponse
+                            .ok()
+                            .contentType(csv ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                            .body(BodyInserters.fromDataBuffers(csv
+                                    ? CatalogExportWriter.csv(rows, bufferFactory)
+                                    : CatalogExportWriter.ndjson(rows, bufferFactory, objectMapper)));
+                })
+                .doOnSuccess(response -> log.info("Catalog export started"))
+                .doOnError(error -> log.error("Error exporting catalog: {}", error.getMessage()));
+    }
+    
+    private boolean acceptsNdjson(ServerRequest request) {
+        return request.headers().accept().stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+    }
+    
     /**
      * Update franchise name
      * PUT /api/v1/franchises/{franchiseId}/name
@@ -91,19 +166,51 @@ public class FranchiseHandler {
     /**
      * Get product with highest stock per branch for a franchise
      * GET /api/v1/franchises/{franchiseId}/top-stock-products
+     * A matching If-None-Match gets a 304 without running the report
      */
     public Mono<ServerResponse> getTopStockProductPerBranch(ServerRequest request) {
         String franchiseId = request.pathVariable("franchiseId");
         log.info("Getting top stock products per branch for franchise ID: {}", franchiseId);
         
-        return getTopStockProductPerBranchUseCase.execute(Long.valueOf(franchiseId))
-                .map(ProductWebMapper::toTopStockResponse)
-                .collectList()
-                .flatMap(responseList -> ServerResponse
-                        .ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(responseList))
+        return Mono.defer(() -> {
+                    Integer limit = RequestParameters.intParam(request, "limit",
+                            GetTopStockProductPerBranchUseCase.DEFAULT_LIMIT);
+                    return ETags.conditional(request,
+                            getTopStockProductPerBranchUseCase.fingerprint(Long.valueOf(franchiseId), limit),
+                            (ok, etag) -> getTopStockProductPerBranchUseCase.execute(
+                                            Long.valueOf(franchiseId), limit, etag)
+                                    .map(ProductWebMapper::toTopStockResponse)
+                                    .collectList()
+                                    .flatMap(responseList -> ok
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .bodyValue(responseList)));
+                })
                 .doOnSuccess(response -> log.info("Top stock products retrieved successfully"))
                 .doOnError(error -> log.error("Error getting top stock products: {}", error.getMessage()));
     }
+    
+    /**
+     * Get top stock products per branch for several franchises in one request
+     * GET /api/v1/top-stock-products?franchiseIds=1,2,3&limit=N
+     * A matching If-None-Match gets a 304 without running the report
+     */
+    public Mono<ServerResponse> getTopStockProductsForFranchises(ServerRequest request) {
+        log.info("Getting top stock products per branch for franchises: {}", request.queryParams().get("franchiseIds"));
+        
+        return Mono.defer(() -> {
+                    List<Long> franchiseIds = RequestParameters.longListParam(request, "franchiseIds");
+                    Integer limit = RequestParameters.intParam(request, "limit",
+                            GetTopStockProductPerBranchUseCase.DEFAULT_LIMIT);
+                    return ETags.conditional(request,
+                            getTopStockProductPerBranchUseCase.fingerprint(franchiseIds, limit),
+                            (ok, etag) -> getTopStockProductPerBranchUseCase.execute(franchiseIds, limit, etag)
+                                    .map(ProductWebMapper::toTopStockResponse)
+                                    .collectList()
+                                    .flatMap(responseList -> ok
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .bodyValue(responseList)));
+                })
+                .doOnSuccess(response -> log.info("Top stock products for franchises retrieved successfully"))
+                .doOnError(error -> log.error("Error getting top stock products for franchises: {}", error.getMessage()));
+    }
 }
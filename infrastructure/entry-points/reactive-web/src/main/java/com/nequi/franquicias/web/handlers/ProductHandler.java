@@ -1,19 +1,30 @@
 package com.nequi.franquicias.web.handlers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
 import com.nequi.franquicias.usecase.product.AddProductToBranchUseCase;
+import com.nequi.franquicias.usecase.product.AdjustProductStockUseCase;
+import com.nequi.franquicias.usecase.product.ImportProductsUseCase;
 import com.nequi.franquicias.usecase.product.RemoveProductFromBranchUseCase;
 import com.nequi.franquicias.usecase.product.UpdateProductNameUseCase;
+import com.nequi.franquicias.usecase.product.UpdateProductStockBatchUseCase;
 import com.nequi.franquicias.usecase.product.UpdateProductStockUseCase;
+import com.nequi.franquicias.web.dto.AdjustStockRequest;
 import com.nequi.franquicias.web.dto.CreateProductRequest;
+import com.nequi.franquicias.web.dto.ProductImportEventResponse;
+import com.nequi.franquicias.web.dto.StockBatchItemRequest;
 import com.nequi.franquicias.web.dto.UpdateNameRequest;
 import com.nequi.franquicias.web.dto.UpdateStockRequest;
 import com.nequi.franquicias.web.mappers.ProductWebMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -25,14 +36,21 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class ProductHandler {
     
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    
     private final AddProductToBranchUseCase addProductToBranchUseCase;
     private final RemoveProductFromBranchUseCase removeProductFromBranchUseCase;
     private final UpdateProductStockUseCase updateProductStockUseCase;
+    private final AdjustProductStockUseCase adjustProductStockUseCase;
+    private final UpdateProductStockBatchUseCase updateProductStockBatchUseCase;
     private final UpdateProductNameUseCase updateProductNameUseCase;
+    private final ImportProductsUseCase importProductsUseCase;
+    private final ObjectMapper objectMapper;
     
     /**
      * Add a product to a branch
      * POST /api/v1/branches/{branchId}/products
+     * With ?upsert=true or an Idempotency-Key header, an existing product with the same name gets the new stock
      */
     public Mono<ServerResponse> addProductToBranch(ServerRequest request) {
         String branchId = request.pathVariable("branchId");
@@ -41,16 +59,50 @@ public class ProductHandler {
         return request.bodyToMono(CreateProductRequest.class)
                 .doOnNext(req -> log.debug("Create product request: {}", req))
                 .map(ProductWebMapper::toDomain)
-                .flatMap(product -> addProductToBranchUseCase.execute(Long.valueOf(branchId), product))
+                .flatMap(product -> addProductToBranchUseCase.execute(Long.valueOf(branchId), product,
+                        RequestParameters.upsertRequested(request)))
                 .map(ProductWebMapper::toResponse)
-                .flatMap(response -> ServerResponse
-                        .ok()
+                .flatMap(response -> ETags.tag(ServerResponse.ok(), response.getVersion())
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
                 .doOnSuccess(response -> log.info("Product added successfully to branch"))
                 .doOnError(error -> log.error("Error adding product to branch: {}", error.getMessage()));
     }
     
+    /**
+     * Import products into a branch from a CSV (text/csv) or NDJSON (application/x-ndjson) body
+     * POST /api/v1/branches/{branchId}/products:import
+     * The body is parsed while it is uploaded and the report is streamed back as NDJSON
+     */
+    public Mono<ServerResponse> importProducts(ServerRequest request) {
+        String branchId = request.pathVariable("branchId");
+        log.info("Importing products into branch ID: {}", branchId);
+        
+        return Mono.defer(() -> {
+                    MediaType contentType = request.headers().contentType().orElse(MediaType.APPLICATION_NDJSON);
+                    Flux<DataBuffer> body = request.body(BodyExtractors.toDataBuffers());
+                    Flux<ImportProductsUseCase.ImportRow> rows;
+                    if (TEXT_CSV.equalsTypeAndSubtype(contentType)) {
+                        rows = ProductImportReader.csv(body);
+                    } else if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(contentType)) {
+                        rows = ProductImportReader.ndjson(body, objectMapper);
+                    } else {
+                        return Mono.error(new BusinessValidationException(
+                                "Import body must be text/csv or application/x-ndjson"));
+                    }
+                    
+                    Flux<ProductImportEventResponse> report = importProductsUseCase
+                            .execute(Long.valueOf(branchId), rows)
+                            .map(ProductWebMapper::toImportEventResponse);
+                    return ServerResponse
+                            .ok()
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .body(report, ProductImportEventResponse.class);
+                })
+                .doOnSuccess(response -> log.info("Product import started for branch ID: {}", branchId))
+                .doOnError(error -> log.error("Error importing products: {}", error.getMessage()));
+    }
+    
     /**
      * Remove a product from a branch
      * DELETE /api/v1/products/{productId}
@@ -87,6 +139,7 @@ public class ProductHandler {
     /**
      * Update product stock
      * PUT /api/v1/products/{productId}/stock
+     * With If-Match, the stock is only set if the product is still at that version
      */
     public Mono<ServerResponse> updateProductStock(ServerRequest request) {
         String productId = request.pathVariable("productId");
@@ -94,19 +147,41 @@ public class ProductHandler {
         
         return request.bodyToMono(UpdateStockRequest.class)
                 .doOnNext(req -> log.debug("Update stock request: {}", req))
-                .flatMap(req -> updateProductStockUseCase.execute(Long.valueOf(productId), req.getStock()))
+                .flatMap(req -> updateProductStockUseCase.execute(Long.valueOf(productId), req.getStock(),
+                        ETags.ifMatchVersion(request)))
                 .map(ProductWebMapper::toResponse)
-                .flatMap(response -> ServerResponse
-                        .ok()
+                .flatMap(response -> ETags.tag(ServerResponse.ok(), response.getVersion())
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
                 .doOnSuccess(response -> log.info("Product stock updated successfully"))
                 .doOnError(error -> log.error("Error updating product stock: {}", error.getMessage()));
     }
     
+    /**
+     * Adjust product stock by a relative amount
+     * PATCH /api/v1/products/{productId}/stock
+     * With If-Match, the delta is only applied if the product is still at that version
+     */
+    public Mono<ServerResponse> adjustProductStock(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        log.info("Adjusting stock for product ID: {}", productId);
+        
+        return request.bodyToMono(AdjustStockRequest.class)
+                .doOnNext(req -> log.debug("Adjust stock request: {}", req))
+                .flatMap(req -> adjustProductStockUseCase.execute(Long.valueOf(productId), req.getDelta(),
+                        ETags.ifMatchVersion(request)))
+                .map(ProductWebMapper::toResponse)
+                .flatMap(response -> ETags.tag(ServerResponse.ok(), response.getVersion())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(response))
+                .doOnSuccess(response -> log.info("Product stock adjusted successfully"))
+                .doOnError(error -> log.error("Error adjusting product stock: {}", error.getMessage()));
+    }
+    
     /**
      * Update product stock with branch validation
      * PUT /api/v1/branches/{branchId}/products/{productId}/stock
+     * With If-Match, the stock is only set if the product is still at that version
      */
     public Mono<ServerResponse> updateProductStockInBranch(ServerRequest request) {
         String branchId = request.pathVariable("branchId");
@@ -118,19 +193,42 @@ public class ProductHandler {
                 .flatMap(req -> updateProductStockUseCase.execute(
                         Long.valueOf(productId), 
                         Long.valueOf(branchId), 
-                        req.getStock()))
+                        req.getStock(),
+                        ETags.ifMatchVersion(request)))
                 .map(ProductWebMapper::toResponse)
-                .flatMap(response -> ServerResponse
-                        .ok()
+                .flatMap(response -> ETags.tag(ServerResponse.ok(), response.getVersion())
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
                 .doOnSuccess(response -> log.info("Product stock updated successfully in branch"))
                 .doOnError(error -> log.error("Error updating product stock in branch: {}", error.getMessage()));
     }
     
+    /**
+     * Update the stock of many products of a branch in one request
+     * POST /api/v1/branches/{branchId}/products/stock:batch
+     */
+    public Mono<ServerResponse> updateProductStockBatch(ServerRequest request) {
+        Long branchId = Long.valueOf(request.pathVariable("branchId"));
+        log.info("Updating stock batch for branch ID: {}", branchId);
+        
+        return request.bodyToFlux(StockBatchItemRequest.class)
+                .map(ProductWebMapper::toDomain)
+                .collectList()
+                .doOnNext(items -> log.debug("Stock batch with {} items", items.size()))
+                .flatMap(items -> updateProductStockBatchUseCase.execute(branchId, items).collectList())
+                .map(results -> ProductWebMapper.toStockBatchResponse(branchId, results))
+                .flatMap(response -> ServerResponse
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(response))
+                .doOnSuccess(response -> log.info("Product stock batch applied successfully"))
+                .doOnError(error -> log.error("Error updating product stock batch: {}", error.getMessage()));
+    }
+    
     /**
      * Update product name
      * PUT /api/v1/products/{productId}/name
+     * With If-Match, the product is only renamed if it is still at that version
      */
     public Mono<ServerResponse> updateProductName(ServerRequest request) {
         String productId = request.pathVariable("productId");
@@ -138,10 +236,10 @@ public class ProductHandler {
         
         return request.bodyToMono(UpdateNameRequest.class)
                 .doOnNext(req -> log.debug("Update product name request: {}", req))
-                .flatMap(req -> updateProductNameUseCase.execute(Long.valueOf(productId), req.getName()))
+                .flatMap(req -> updateProductNameUseCase.execute(Long.valueOf(productId), req.getName(),
+                        ETags.ifMatchVersion(request)))
                 .map(ProductWebMapper::toResponse)
-                .flatMap(response -> ServerResponse
-                        .ok()
+                .flatMap(response -> ETags.tag(ServerResponse.ok(), response.getVersion())
                         .contentType(MediaType.APPLICATION_JSON)
                         .bodyValue(response))
                 .doOnSuccess(response -> log.info("Product name updated successfully"))
@@ -0,0 +1,150 @@
+package com.nequi.franquicias.web.handlers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nequi.franquicias.model.Product;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.usecase.product.ImportProductsUseCase.ImportRow;
+import com.nequi.franquicias.web.dto.CreateProductRequest;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental parsers turning a raw request body into product import rows
+ * The body is split into lines as buffers arrive, so only the current line is held in memory
+ */
+final class ProductImportReader {
+    
+    private static final StringDecoder LINE_DECODER = StringDecoder.textPlainOnly();
+    private static final MimeType UTF8_TEXT = new MimeType("text", "plain", StandardCharsets.UTF_8);
+    
+    private ProductImportReader() {
+    }
+    
+    /**
+     * Parse a CSV body whose first line is a header containing the name and stock columns
+     * @param body the raw request body
+     * @return rows in file order, numbered from line 2
+     */
+    static Flux<ImportRow> csv(Flux<DataBuffer> body) {
+        return lines(body).switchOnFirst((first, lines) -> {
+            if (!first.hasValue()) {
+                return lines.thenMany(Flux.empty());
+            }
+            List<String> header = splitCsvLine(first.get().getT2());
+            int nameColumn = columnIndex(header, "name");
+            int stockColumn = columnIndex(header, "stock");
+            return lines.skip(1)
+                    .map(line -> csvRow(line.getT1(), line.getT2(), nameColumn, stockColumn));
+        });
+    }
+    
+    /**
+     * Parse a body with one JSON object per line, using the same fields as product creation
+     * @param body the raw request body
+     * @param objectMapper mapper used to read each line
+     * @return rows in file order
+     */
+    static Flux<ImportRow> ndjson(Flux<DataBuffer> body, ObjectMapper objectMapper) {
+        return lines(body).map(line -> {
+            try {
+                CreateProductRequest request = objectMapper.readValue(line.getT2(), CreateProductRequest.class);
+                if (request == null) {
+                    return error(line.getT1(), "Expected a JSON object");
+                }
+                return row(line.getT1(), request.getName(), request.getStock());
+            } catch (JsonProcessingException e) {
+                return error(line.getT1(), "Malformed JSON line");
+            }
+        });
+    }
+    
+    /**
+     * Split the body into non-blank lines paired with their 1-based line number
+     */
+    private static Flux<Tuple2<Long, String>> lines(Flux<DataBuffer> body) {
+        return LINE_DECODER.decode(body, ResolvableType.forClass(String.class), UTF8_TEXT, Map.of())
+                .index((index, line) -> Tuples.of(index + 1, line))
+                .filter(line -> !line.getT2().isBlank());
+    }
+    
+    private static ImportRow csvRow(long lineNumber, String line, int nameColumn, int stockColumn) {
+        List<String> columns = splitCsvLine(line);
+        if (columns.size() <= Math.max(nameColumn, stockColumn)) {
+            return error(lineNumber, "Expected at least " + (Math.max(nameColumn, stockColumn) + 1) + " columns");
+        }
+        String stock = columns.get(stockColumn).trim();
+        try {
+            return row(lineNumber, columns.get(nameColumn), stock.isEmpty() ? null : Integer.valueOf(stock));
+        } catch (NumberFormatException e) {
+            return error(lineNumber, "Stock must be an integer");
+        }
+    }
+    
+    private static int columnIndex(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (column.equalsIgnoreCase(header.get(i).trim())) {
+                return i;
+            }
+        }
+        throw new BusinessValidationException("CSV header must contain a '" + column + "' column");
+    }
+    
+    /**
+     * Split one CSV line on commas, honouring double-quoted fields and "" escapes
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static ImportRow row(long lineNumber, String name, Integer stock) {
+        return ImportRow.builder()
+                .line(lineNumber)
+                .product(Product.builder()
+                        .name(name)
+                        .stock(stock)
+                        .build())
+                .build();
+    }
+    
+    private static ImportRow error(long lineNumber, String message) {
+        return ImportRow.builder()
+                .line(lineNumber)
+                .error(message)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.nequi.franquicias.web.handlers;
+
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Helpers for reading typed query parameters from a ServerRequest
+ * Malformed values are reported as business validation errors (400)
+ */
+final class RequestParameters {
+    
+    static final String UPSERT_PARAM = "upsert";
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
+    private RequestParameters() {
+    }
+    
+    /**
+     * Read an optional integer query parameter
+     * @param request the server request
+     * @param name the parameter name
+     * @param defaultValue value used when the parameter is absent
+     * @return the parsed value or the default
+     */
+    static Integer intParam(ServerRequest request, String name, Integer defaultValue) {
+        return request.queryParam(name)
+                .filter(value -> !value.isBlank())
+                .map(value -> parseInt(name, value))
+                .orElse(defaultValue);
+    }
+    
+    /**
+     * Read an optional long query parameter
+     * @param request the server request
+     * @param name the parameter name
+     * @return the parsed value if present
+     */
+    static Optional<Long> longParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .filter(value -> !value.isBlank())
+                .map(value -> parseLong(name, value));
+    }
+    
+    /**
+     * Read a list of longs given either as repeated parameters or comma separated values
+     * @param request the server request
+     * @param name the parameter name
+     * @return the parsed values, empty if the parameter is absent
+     */
+    static List<Long> longListParam(ServerRequest request, String name) {
+        return request.queryParams().getOrDefault(name, List.of()).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(value -> parseLong(name, value))
+                .toList();
+    }
+    
+    /**
+     * Read an optional boolean query parameter
+     * @param request the server request
+     * @param name the parameter name
+     * @return true only if the parameter is present with the value "true"
+     */
+    static boolean booleanParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .map(value -> Boolean.parseBoolean(value.trim()))
+                .orElse(false);
+    }
+    
+    /**
+     * Whether a creation request asked to be idempotent, with ?upsert=true or an Idempotency-Key header
+     * The key itself is not stored: the name unique key within the parent identifies a retried creation
+     * @param request the server request
+     * @return true if the creation should be an upsert
+     */
+    static boolean upsertRequested(ServerRequest request) {
+        return booleanParam(request, UPSERT_PARAM) || request.headers().firstHeader(IDEMPOTENCY_KEY_HEADER) != null;
+    }
+    
+    private static Integer parseInt(String name, String value) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessValidationException("Query parameter '" + name + "' must be an integer");
+        }
+    }
+    
+    private static Long parseLong(String name, String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessValidationException("Query parameter '" + name + "' must be a number");
+        }
+    }
+}
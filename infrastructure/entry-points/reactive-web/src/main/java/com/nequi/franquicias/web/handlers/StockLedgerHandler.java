@@ -0,0 +1,113 @@
+package com.nequi.franquicias.web.handlers;
+
+import com.nequi.franquicias.usecase.product.GetStockLevelUseCase;
+import com.nequi.franquicias.usecase.product.GetStockMovementsUseCase;
+import com.nequi.franquicias.usecase.product.RecordStockMovementUseCase;
+import com.nequi.franquicias.web.dto.StockMovementRequest;
+import com.nequi.franquicias.web.dto.StockTransferRequest;
+import com.nequi.franquicias.web.mappers.StockLedgerWebMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive handler for the append-only stock ledger
+ * Following Clean Architecture principles with RouterFunctions
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockLedgerHandler {
+    
+    private final RecordStockMovementUseCase recordStockMovementUseCase;
+    private final GetStockLevelUseCase getStockLevelUseCase;
+    private final GetStockMovementsUseCase getStockMovementsUseCase;
+    
+    /**
+     * Append a set or delta movement to the ledger of a product
+     * POST /api/v1/products/{productId}/stock/movements
+     */
+    public Mono<ServerResponse> recordMovement(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        log.info("Recording stock movement for product ID: {}", productId);
+        
+        return request.bodyToMono(StockMovementRequest.class)
+                .doOnNext(req -> log.debug("Stock movement request: {}", req))
+                .flatMap(req -> recordStockMovementUseCase.record(Long.valueOf(productId),
+                        StockLedgerWebMapper.toMovementType(req.getType()), req.getQuantity()))
+                .map(StockLedgerWebMapper::toResponse)
+                .flatMap(response -> ServerResponse
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(response))
+                .doOnSuccess(response -> log.info("Stock movement recorded successfully"))
+                .doOnError(error -> log.error("Error recording stock movement: {}", error.getMessage()));
+    }
+    
+    /**
+     * Move stock between two products, both legs are appended atomically
+     * POST /api/v1/products/stock:transfer
+     */
+    public Mono<ServerResponse> transferStock(ServerRequest request) {
+        log.info("Transferring stock between products");
+        
+        return request.bodyToMono(StockTransferRequest.class)
+                .doOnNext(req -> log.debug("Stock transfer request: {}", req))
+                .flatMap(req -> recordStockMovementUseCase.transfer(
+                                req.getFromProductId(), req.getToProductId(), req.getQuantity())
+                        .map(StockLedgerWebMapper::toResponse)
+                        .collectList())
+                .flatMap(levels -> ServerResponse
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(levels))
+                .doOnSuccess(response -> log.info("Stock transferred successfully"))
+                .doOnError(error -> log.error("Error transferring stock: {}", error.getMessage()));
+    }
+    
+    /**
+     * Current stock of a product: its snapshot plus the movements not yet compacted
+     * GET /api/v1/products/{productId}/stock
+     */
+    public Mono<ServerResponse> getStockLevel(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        log.info("Getting stock level for product ID: {}", productId);
+        
+        return getStockLevelUseCase.execute(Long.valueOf(productId))
+                .map(StockLedgerWebMapper::toResponse)
+                .flatMap(response -> ServerResponse
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(response))
+                .doOnSuccess(response -> log.info("Stock level retrieved successfully"))
+                .doOnError(error -> log.error("Error getting stock level: {}", error.getMessage()));
+    }
+    
+    /**
+     * Stock history of a product, oldest first
+     * GET /api/v1/products/{productId}/stock/movements?after=&limit=
+     */
+    public Mono<ServerResponse> getMovements(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        log.info("Getting stock movements for product ID: {}", productId);
+        
+        return Mono.defer(() -> {
+                    Long afterId = RequestParameters.longParam(request, "after").orElse(null);
+                    Integer limit = RequestParameters.intParam(request, "limit", GetStockMovementsUseCase.DEFAULT_PAGE_SIZE);
+                    return getStockMovementsUseCase.execute(Long.valueOf(productId), afterId, limit)
+                            .map(StockLedgerWebMapper::toResponse)
+                            .collectList()
+                            .map(items -> StockLedgerWebMapper.toPageResponse(items, limit));
+                })
+                .flatMap(page -> ServerResponse
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(page))
+                .doOnSuccess(response -> log.info("Stock movements retrieved successfully"))
+                .doOnError(error -> log.error("Error getting stock movements: {}", error.getMessage()));
+    }
+}
@@ -1,10 +1,14 @@
 package com.nequi.franquicias.web.mappers;
 
+import com.nequi.franquicias.model.CatalogRow;
 import com.nequi.franquicias.model.Franchise;
+import com.nequi.franquicias.web.dto.CatalogRowResponse;
 import com.nequi.franquicias.web.dto.CreateFranchiseRequest;
+import com.nequi.franquicias.web.dto.FranchisePageResponse;
 import com.nequi.franquicias.web.dto.FranchiseResponse;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -48,4 +52,43 @@ public class FranchiseWebMapper {
                     new ArrayList<>())
                 .build();
     }
+    
+    /**
+     * Wrap one keyset page of franchises with its cursor
+     * @param items the franchises of the page, ordered by ID
+     * @param limit the requested page size
+     * @return page response whose next cursor is null when no more pages follow
+     */
+    public static FranchisePageResponse toPageResponse(List<FranchiseResponse> items, int limit) {
+        Long nextCursor = items.size() == limit && !items.isEmpty()
+                ? items.get(items.size() - 1).getId()
+                : null;
+        
+        return FranchisePageResponse.builder()
+                .items(items)
+                .limit(limit)
+                .nextCursor(nextCursor)
+                .build();
+    }
+    
+    /**
+     * Convert a flat catalog row to export DTO
+     * @param row the catalog row
+     * @return catalog row response DTO
+     */
+    public static CatalogRowResponse toCatalogRowResponse(CatalogRow row) {
+        if (row == null) {
+            return null;
+        }
+        
+        return CatalogRowResponse.builder()
+                .franchiseId(row.getFranchiseId())
+                .franchiseName(row.getFranchiseName())
+                .branchId(row.getBranchId())
+                .branchName(row.getBranchName())
+                .productId(row.getProductId())
+                .productName(row.getProductName())
+                .stock(row.getStock())
+                .build();
+    }
 }
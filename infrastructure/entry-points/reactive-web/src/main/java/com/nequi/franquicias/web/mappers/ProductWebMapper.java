@@ -2,10 +2,18 @@ package com.nequi.franquicias.web.mappers;
 
 import com.nequi.franquicias.model.Product;
 import com.nequi.franquicias.usecase.franchise.GetTopStockProductPerBranchUseCase;
+import com.nequi.franquicias.usecase.product.ImportProductsUseCase;
+import com.nequi.franquicias.usecase.product.UpdateProductStockBatchUseCase;
 import com.nequi.franquicias.web.dto.CreateProductRequest;
+import com.nequi.franquicias.web.dto.ProductImportEventResponse;
 import com.nequi.franquicias.web.dto.ProductResponse;
+import com.nequi.franquicias.web.dto.StockBatchItemRequest;
+import com.nequi.franquicias.web.dto.StockBatchItemResponse;
+import com.nequi.franquicias.web.dto.StockBatchResponse;
 import com.nequi.franquicias.web.dto.TopStockProductResponse;
 
+import java.util.List;
+
 /**
  * Mapper between Product domain model and DTOs
  */
@@ -42,6 +50,7 @@ public class ProductWebMapper {
                 .name(product.getName())
                 .stock(product.getStock())
                 .branchId(product.getBranchId())
+                .version(product.getVersion())
                 .build();
     }
     
@@ -56,12 +65,78 @@ public class ProductWebMapper {
         }
         
         return TopStockProductResponse.builder()
+                .franchiseId(branchTopProduct.getFranchiseId())
                 .branchId(branchTopProduct.getBranch() != null ? branchTopProduct.getBranch().getId() : null)
                 .branchName(branchTopProduct.getBranchName())
                 .productId(branchTopProduct.getProduct() != null ? branchTopProduct.getProduct().getId() : null)
                 .productName(branchTopProduct.getProductName())
                 .stock(branchTopProduct.getProductStock())
+                .rank(branchTopProduct.getRank())
                 .hasProduct(branchTopProduct.hasProduct())
                 .build();
     }
+    
+    /**
+     * Convert a batch stock update item to domain model
+     * @param request the item DTO
+     * @return product domain model holding ID and new stock
+     */
+    public static Product toDomain(StockBatchItemRequest request) {
+        if (request == null) {
+            return null;
+        }
+        
+        return Product.builder()
+                .id(request.getProductId())
+                .stock(request.getStock())
+                .build();
+    }
+    
+    /**
+     * Convert batch stock update results to response DTO
+     * @param branchId the branch ID
+     * @param results the use case results in request order
+     * @return batch response DTO with per-item status and totals
+     */
+    public static StockBatchResponse toStockBatchResponse(Long branchId,
+                                                          List<UpdateProductStockBatchUseCase.StockUpdateResult> results) {
+        List<StockBatchItemResponse> items = results.stream()
+                .map(result -> StockBatchItemResponse.builder()
+                        .productId(result.getProductId())
+                        .stock(result.getStock())
+                        .status(result.isUpdated()
+                                ? StockBatchItemResponse.STATUS_UPDATED
+                                : StockBatchItemResponse.STATUS_NOT_FOUND)
+                        .build())
+                .toList();
+        int updated = (int) results.stream().filter(UpdateProductStockBatchUseCase.StockUpdateResult::isUpdated).count();
+        
+        return StockBatchResponse.builder()
+                .branchId(branchId)
+                .updated(updated)
+                .notFound(results.size() - updated)
+                .results(items)
+                .build();
+    }
+    
+    /**
+     * Convert an import report event to response DTO
+     * @param event the use case event
+     * @return import event response DTO
+     */
+    public static ProductImportEventResponse toImportEventResponse(ImportProductsUseCase.ImportEvent event) {
+        if (event == null) {
+            return null;
+        }
+        
+        return ProductImportEventResponse.builder()
+                .type(event.getType().name())
+                .line(event.getLine())
+                .message(event.getMessage())
+                .processed(event.getProcessed())
+                .inserted(event.getInserted())
+                .skipped(event.getSkipped())
+                .rejected(event.getRejected())
+                .build();
+    }
 }
@@ -0,0 +1,90 @@
+package com.nequi.franquicias.web.mappers;
+
+import com.nequi.franquicias.model.StockLevel;
+import com.nequi.franquicias.model.StockMovement;
+import com.nequi.franquicias.model.StockMovementType;
+import com.nequi.franquicias.model.exceptions.BusinessValidationException;
+import com.nequi.franquicias.web.dto.StockLevelResponse;
+import com.nequi.franquicias.web.dto.StockMovementPageResponse;
+import com.nequi.franquicias.web.dto.StockMovementResponse;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Mapper between stock ledger domain models and DTOs
+ */
+public class StockLedgerWebMapper {
+    
+    /**
+     * Parse the movement type of a request, case insensitive
+     * @param type the type sent by the client
+     * @return the movement type, or a BusinessValidationException if it is unknown
+     */
+    public static StockMovementType toMovementType(String type) {
+        if (type == null || type.isBlank()) {
+            return null;
+        }
+        try {
+            return StockMovementType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessValidationException("Movement type must be SET or DELTA");
+        }
+    }
+    
+    /**
+     * Convert domain model to response DTO
+     * @param movement the domain model
+     * @return stock movement response DTO
+     */
+    public static StockMovementResponse toResponse(StockMovement movement) {
+        if (movement == null) {
+            return null;
+        }
+        
+        return StockMovementResponse.builder()
+                .id(movement.getId())
+                .productId(movement.getProductId())
+                .type(movement.getType().name())
+                .quantity(movement.getQuantity())
+                .counterpartProductId(movement.getCounterpartProductId())
+                .createdAt(movement.getCreatedAt())
+                .build();
+    }
+    
+    /**
+     * Convert domain model to response DTO
+     * @param level the domain model
+     * @return stock level response DTO
+     */
+    public static StockLevelResponse toResponse(StockLevel level) {
+        if (level == null) {
+            return null;
+        }
+        
+        return StockLevelResponse.builder()
+                .productId(level.getProductId())
+                .stock(level.getStock())
+                .snapshotStock(level.getSnapshotStock())
+                .pendingMovements(level.getPendingMovements())
+                .build();
+    }
+    
+    /**
+     * Build a page of movements; a full page carries the ID of its last movement as the next cursor
+     * @param items the movements of the page
+     * @param limit the requested page size
+     * @return page response DTO
+     */
+    public static StockMovementPageResponse toPageResponse(List<StockMovementResponse> items, int limit) {
+        Long nextCursor = items.size() == limit && !items.isEmpty()
+                ? items.get(items.size() - 1).getId()
+                : null;
+        
+        return StockMovementPageResponse.builder()
+                .items(items)
+                .limit(limit)
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
@@ -3,9 +3,11 @@ package com.nequi.franquicias.web.router;
 import com.nequi.franquicias.web.handlers.BranchHandler;
 import com.nequi.franquicias.web.handlers.FranchiseHandler;
 import com.nequi.franquicias.web.handlers.ProductHandler;
+import com.nequi.franquicias.web.handlers.StockLedgerHandler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -34,6 +36,7 @@ public class ApiRouter {
     private final FranchiseHandler franchiseHandler;
     private final BranchHandler branchHandler;
     private final ProductHandler productHandler;
+    private final StockLedgerHandler stockLedgerHandler;
     
     @Bean
     @RouterOperations({
@@ -44,10 +47,21 @@ public class ApiRouter {
             operation = @Operation(
                 operationId = "getAllFranchises",
                 summary = "Get all franchises",
+                description = "Returns a keyset page when after or limit is given; streams one franchise per line with Accept: application/x-ndjson",
                 tags = {"Franchises"},
+                parameters = {
+                    @Parameter(name = "after", in = ParameterIn.QUERY, description = "Cursor: ID of the last franchise of the previous page"),
+                    @Parameter(name = "limit", in = ParameterIn.QUERY, description = "Page size (1-500, default 50)")
+                },
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Franchises retrieved successfully",
-                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.FranchiseResponse.class)))
+                        content = {
+                            @Content(mediaType = "application/json",
+                                schema = @Schema(implementation = com.nequi.franquicias.web.dto.FranchiseResponse.class)),
+                            @Content(mediaType = "application/x-ndjson",
+                                schema = @Schema(implementation = com.nequi.franquicias.web.dto.FranchiseResponse.class))
+                        }),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the ETag sent in If-None-Match")
                 }
             )
         ),
@@ -97,13 +111,57 @@ public class ApiRouter {
                 operationId = "getTopStockProductPerBranch",
                 summary = "Get product with highest stock per branch",
                 tags = {"Franchises"},
-                parameters = @Parameter(name = "franchiseId", in = ParameterIn.PATH, required = true),
+                parameters = {
+                    @Parameter(name = "franchiseId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "limit", in = ParameterIn.QUERY, description = "Products per branch (1-50, default 1)")
+                },
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Top stock products retrieved successfully",
                         content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.TopStockProductResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the ETag sent in If-None-Match"),
                     @ApiResponse(responseCode = "404", description = "Franchise not found")
                 }
             )
+        ),
+        @RouterOperation(
+            path = "/api/v1/top-stock-products",
+            method = RequestMethod.GET,
+            operation = @Operation(
+                operationId = "getTopStockProductsForFranchises",
+                summary = "Get top stock products per branch for several franchises",
+                tags = {"Franchises"},
+                parameters = {
+                    @Parameter(name = "franchiseIds", in = ParameterIn.QUERY, required = true,
+                        description = "Comma separated franchise IDs (max 500)"),
+                    @Parameter(name = "limit", in = ParameterIn.QUERY, description = "Products per branch (1-50, default 1)")
+                },
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Top stock products retrieved successfully",
+                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.TopStockProductResponse.class))),
+                    @ApiResponse(responseCode = "304", description = "Not modified since the ETag sent in If-None-Match"),
+                    @ApiResponse(responseCode = "400", description = "Invalid franchise IDs or limit")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/catalog:export",
+            method = RequestMethod.GET,
+            operation = @Operation(
+                operationId = "exportCatalog",
+                summary = "Export the whole catalog as flat rows",
+                description = "Streams one row per product (or per empty branch/franchise) with constant memory. "
+                    + "NDJSON by default; CSV with format=csv or Accept: text/csv",
+                tags = {"Franchises"},
+                parameters = @Parameter(name = "format", in = ParameterIn.QUERY, description = "ndjson (default) or csv"),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Catalog stream",
+                        content = {
+                            @Content(mediaType = "application/x-ndjson",
+                                schema = @Schema(implementation = com.nequi.franquicias.web.dto.CatalogRowResponse.class)),
+                            @Content(mediaType = "text/csv")
+                        })
+                }
+            )
         )
     })
     public RouterFunction<ServerResponse> franchiseRoutes() {
@@ -114,6 +172,8 @@ public class ApiRouter {
                         .PUT("/{franchiseId}/name", accept(MediaType.APPLICATION_JSON), franchiseHandler::updateFranchiseName)
                         .GET("/{franchiseId}/top-stock-products", franchiseHandler::getTopStockProductPerBranch)
                 )
+                .GET("/api/v1/top-stock-products", franchiseHandler::getTopStockProductsForFranchises)
+                .GET("/api/v1/catalog:export", franchiseHandler::exportCatalog)
                 .build();
     }
     
@@ -126,8 +186,14 @@ public class ApiRouter {
             operation = @Operation(
                 operationId = "addBranchToFranchise",
                 summary = "Add a new branch to a franchise",
+                description = "With upsert=true or an Idempotency-Key header, an existing branch with the same name "
+                    + "in the franchise is returned instead of a 409, so the request is safe to retry",
                 tags = {"Branches"},
-                parameters = @Parameter(name = "franchiseId", in = ParameterIn.PATH, required = true),
+                parameters = {
+                    @Parameter(name = "franchiseId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "upsert", in = ParameterIn.QUERY, description = "Return the existing branch on a name clash"),
+                    @Parameter(name = "Idempotency-Key", in = ParameterIn.HEADER, description = "Same effect as upsert=true")
+                },
                 requestBody = @RequestBody(
                     description = "Branch creation request",
                     required = true,
@@ -135,7 +201,8 @@ public class ApiRouter {
                 ),
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Branch added successfully"),
-                    @ApiResponse(responseCode = "404", description = "Franchise not found")
+                    @ApiResponse(responseCode = "404", description = "Franchise not found"),
+                    @ApiResponse(responseCode = "409", description = "A branch with that name already exists in the franchise")
                 }
             )
         ),
@@ -177,8 +244,14 @@ public class ApiRouter {
             operation = @Operation(
                 operationId = "addProductToBranch",
                 summary = "Add a product to a branch",
+                description = "With upsert=true or an Idempotency-Key header, an existing product with the same name "
+                    + "in the branch gets the new stock instead of a 409, so the request is safe to retry",
                 tags = {"Products"},
-                parameters = @Parameter(name = "branchId", in = ParameterIn.PATH, required = true),
+                parameters = {
+                    @Parameter(name = "branchId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "upsert", in = ParameterIn.QUERY, description = "Update the existing product on a name clash"),
+                    @Parameter(name = "Idempotency-Key", in = ParameterIn.HEADER, description = "Same effect as upsert=true")
+                },
                 requestBody = @RequestBody(
                     description = "Product creation request",
                     required = true,
@@ -186,6 +259,35 @@ public class ApiRouter {
                 ),
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Product added successfully"),
+                    @ApiResponse(responseCode = "404", description = "Branch not found"),
+                    @ApiResponse(responseCode = "409", description = "A product with that name already exists in the branch")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/branches/{branchId}/products:import",
+            method = RequestMethod.POST,
+            operation = @Operation(
+                operationId = "importProducts",
+                summary = "Bulk import products into a branch",
+                description = "Accepts a CSV body with a name,stock header or one JSON object per line. "
+                    + "Rows are written in batches of 500 and a progress/error report is streamed back as NDJSON",
+                tags = {"Products"},
+                parameters = @Parameter(name = "branchId", in = ParameterIn.PATH, required = true),
+                requestBody = @RequestBody(
+                    description = "Products to import",
+                    required = true,
+                    content = {
+                        @Content(mediaType = "text/csv"),
+                        @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = com.nequi.franquicias.web.dto.CreateProductRequest.class))
+                    }
+                ),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Import report stream",
+                        content = @Content(mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = com.nequi.franquicias.web.dto.ProductImportEventResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Unsupported body or missing CSV columns"),
                     @ApiResponse(responseCode = "404", description = "Branch not found")
                 }
             )
@@ -211,7 +313,11 @@ public class ApiRouter {
                 operationId = "updateProductStock",
                 summary = "Update product stock",
                 tags = {"Products"},
-                parameters = @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                parameters = {
+                    @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "If-Match", in = ParameterIn.HEADER,
+                        description = "ETag of the product version the change applies to")
+                },
                 requestBody = @RequestBody(
                     description = "Stock update request",
                     required = true,
@@ -219,7 +325,55 @@ public class ApiRouter {
                 ),
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Product stock updated successfully"),
-                    @ApiResponse(responseCode = "404", description = "Product not found")
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "412", description = "Product changed since the If-Match ETag was read")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/products/{productId}/stock",
+            method = RequestMethod.PATCH,
+            operation = @Operation(
+                operationId = "adjustProductStock",
+                summary = "Atomically add or subtract product stock",
+                tags = {"Products"},
+                parameters = {
+                    @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "If-Match", in = ParameterIn.HEADER,
+                        description = "ETag of the product version the change applies to")
+                },
+                requestBody = @RequestBody(
+                    description = "Stock delta request, negative to subtract",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.AdjustStockRequest.class))
+                ),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Product stock adjusted successfully"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Insufficient stock for the requested delta"),
+                    @ApiResponse(responseCode = "412", description = "Product changed since the If-Match ETag was read")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/branches/{branchId}/products/stock:batch",
+            method = RequestMethod.POST,
+            operation = @Operation(
+                operationId = "updateProductStockBatch",
+                summary = "Update the stock of many products of a branch",
+                description = "Applies all items in one transaction with batched statements and reports a status per item",
+                tags = {"Products"},
+                parameters = @Parameter(name = "branchId", in = ParameterIn.PATH, required = true),
+                requestBody = @RequestBody(
+                    description = "Array of stock updates (max 10000)",
+                    required = true,
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockBatchItemRequest.class)))
+                ),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Batch applied, see per-item status",
+                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockBatchResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid batch"),
+                    @ApiResponse(responseCode = "404", description = "Branch not found")
                 }
             )
         ),
@@ -230,7 +384,11 @@ public class ApiRouter {
                 operationId = "updateProductName",
                 summary = "Update product name",
                 tags = {"Products"},
-                parameters = @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                parameters = {
+                    @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "If-Match", in = ParameterIn.HEADER,
+                        description = "ETag of the product version the change applies to")
+                },
                 requestBody = @RequestBody(
                     description = "Name update request",
                     required = true,
@@ -238,7 +396,8 @@ public class ApiRouter {
                 ),
                 responses = {
                     @ApiResponse(responseCode = "200", description = "Product name updated successfully"),
-                    @ApiResponse(responseCode = "404", description = "Product not found")
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "412", description = "Product changed since the If-Match ETag was read")
                 }
             )
         )
@@ -247,12 +406,110 @@ public class ApiRouter {
         return route()
                 .path("/api/v1", builder -> builder
                         .POST("/branches/{branchId}/products", accept(MediaType.APPLICATION_JSON), productHandler::addProductToBranch)
+                        .POST("/branches/{branchId}/products:import", productHandler::importProducts)
                         .DELETE("/products/{productId}", productHandler::removeProduct)
                         .DELETE("/branches/{branchId}/products/{productId}", productHandler::removeProductFromBranch)
                         .PUT("/products/{productId}/stock", accept(MediaType.APPLICATION_JSON), productHandler::updateProductStock)
+                        .PATCH("/products/{productId}/stock", accept(MediaType.APPLICATION_JSON), productHandler::adjustProductStock)
                         .PUT("/branches/{branchId}/products/{productId}/stock", accept(MediaType.APPLICATION_JSON), productHandler::updateProductStockInBranch)
+                        .POST("/branches/{branchId}/products/stock:batch", accept(MediaType.APPLICATION_JSON), productHandler::updateProductStockBatch)
                         .PUT("/products/{productId}/name", accept(MediaType.APPLICATION_JSON), productHandler::updateProductName)
                 )
                 .build();
     }
+    
+    @Bean
+    @RouterOperations({
+        // Stock ledger operations
+        @RouterOperation(
+            path = "/api/v1/products/{productId}/stock/movements",
+            method = RequestMethod.POST,
+            operation = @Operation(
+                operationId = "recordStockMovement",
+                summary = "Append a stock movement to the product ledger",
+                description = "Appends without locking the product row; SET replaces the stock and DELTA adds to it. "
+                    + "The stock check on negative deltas is best-effort, use PATCH /products/{productId}/stock when overselling must be impossible",
+                tags = {"Stock ledger"},
+                parameters = @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                requestBody = @RequestBody(
+                    description = "Movement with type SET or DELTA",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockMovementRequest.class))
+                ),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Movement recorded, stock level including it returned",
+                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockLevelResponse.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid movement"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Negative delta exceeds the current stock")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/products/{productId}/stock/movements",
+            method = RequestMethod.GET,
+            operation = @Operation(
+                operationId = "getStockMovements",
+                summary = "Get the stock history of a product, oldest first",
+                tags = {"Stock ledger"},
+                parameters = {
+                    @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                    @Parameter(name = "after", in = ParameterIn.QUERY, description = "Cursor: ID of the last movement of the previous page"),
+                    @Parameter(name = "limit", in = ParameterIn.QUERY, description = "Page size (1-1000, default 100)")
+                },
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Movements retrieved successfully",
+                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockMovementPageResponse.class)))
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/products/{productId}/stock",
+            method = RequestMethod.GET,
+            operation = @Operation(
+                operationId = "getStockLevel",
+                summary = "Get the current product stock derived from the ledger",
+                description = "Snapshot stored in the product plus the movements not yet compacted",
+                tags = {"Stock ledger"},
+                parameters = @Parameter(name = "productId", in = ParameterIn.PATH, required = true),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Stock level retrieved successfully",
+                        content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockLevelResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Product not found")
+                }
+            )
+        ),
+        @RouterOperation(
+            path = "/api/v1/products/stock:transfer",
+            method = RequestMethod.POST,
+            operation = @Operation(
+                operationId = "transferStock",
+                summary = "Move stock between two products",
+                description = "Both legs are appended to the ledger with a single statement",
+                tags = {"Stock ledger"},
+                requestBody = @RequestBody(
+                    description = "Transfer request",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockTransferRequest.class))
+                ),
+                responses = {
+                    @ApiResponse(responseCode = "200", description = "Stock transferred, levels of the source and destination returned",
+                        content = @Content(array = @ArraySchema(schema = @Schema(implementation = com.nequi.franquicias.web.dto.StockLevelResponse.class)))),
+                    @ApiResponse(responseCode = "400", description = "Invalid transfer"),
+                    @ApiResponse(responseCode = "404", description = "Product not found"),
+                    @ApiResponse(responseCode = "409", description = "Quantity exceeds the source stock")
+                }
+            )
+        )
+    })
+    public RouterFunction<ServerResponse> stockLedgerRoutes() {
+        return route()
+                .path("/api/v1", builder -> builder
+                        .POST("/products/stock:transfer", accept(MediaType.APPLICATION_JSON), stockLedgerHandler::transferStock)
+                        .POST("/products/{productId}/stock/movements", accept(MediaType.APPLICATION_JSON), stockLedgerHandler::recordMovement)
+                        .GET("/products/{productId}/stock/movements", stockLedgerHandler::getMovements)
+                        .GET("/products/{productId}/stock", stockLedgerHandler::getStockLevel)
+                )
+                .build();
+    }
 }